@@ -0,0 +1,595 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.riot.Lang;
+
+import uk.gov.gchq.magmacore.database.query.QueryResult;
+import uk.gov.gchq.magmacore.database.query.QueryResultList;
+import uk.gov.gchq.magmacore.database.validation.ValidationReportEntry;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.HqdmObjectFactory;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.util.Pair;
+import uk.gov.gchq.magmacore.service.dto.CacheStatistics;
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+import uk.gov.gchq.magmacore.service.dto.InferenceTiming;
+import uk.gov.gchq.magmacore.service.dto.LoadProgress;
+import uk.gov.gchq.magmacore.service.transformation.DbCreateOperation;
+import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
+
+/**
+ * A {@link MagmaCoreDatabase} that keeps the most recently used objects fetched by {@link #get(IRI)}
+ * and {@link #getAll(Collection)} in a bounded least-recently-used cache in front of another
+ * {@link MagmaCoreDatabase}.
+ *
+ * <p>
+ * The cache only ever holds committed data. Writes go straight to the wrapped database and remove the
+ * objects they touch from the cache. Within a write transaction the touched objects are read from the
+ * wrapped database, so the transaction sees its own changes, and they are removed from the cache again
+ * when the transaction is committed or aborted. Each cache hit returns a new {@link Thing}, so callers
+ * can modify what they are given without affecting the cache.
+ * </p>
+ *
+ * <p>
+ * All other queries are passed to the wrapped database unchanged.
+ * </p>
+ */
+public class CachingMagmaCoreDatabase implements MagmaCoreDatabase {
+
+    /** The default maximum number of objects held in the cache. */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final MagmaCoreDatabase database;
+    private final int maxEntries;
+
+    /** The cached predicates of each object in least-recently-used order. Guarded by {@code this}. */
+    private final LinkedHashMap<IRI, List<Pair<IRI, Object>>> cache;
+
+    /** The objects written by the write transaction of the current thread. */
+    private final ThreadLocal<Set<IRI>> written = new ThreadLocal<>();
+
+    /** Set when the write transaction of the current thread has dropped all the data. */
+    private final ThreadLocal<Boolean> dropped = new ThreadLocal<>();
+
+    /** Incremented whenever committed data changes, so that stale reads are not cached. */
+    private long generation;
+
+    /** The generation when the transaction of the current thread began. */
+    private final ThreadLocal<Long> transactionGeneration = new ThreadLocal<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a CachingMagmaCoreDatabase holding up to {@link #DEFAULT_MAX_ENTRIES} objects.
+     *
+     * @param database The {@link MagmaCoreDatabase} to cache.
+     */
+    public CachingMagmaCoreDatabase(final MagmaCoreDatabase database) {
+        this(database, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructs a CachingMagmaCoreDatabase.
+     *
+     * @param database   The {@link MagmaCoreDatabase} to cache.
+     * @param maxEntries The maximum number of objects to hold in the cache.
+     */
+    public CachingMagmaCoreDatabase(final MagmaCoreDatabase database, final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1: " + maxEntries);
+        }
+        this.database = database;
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<IRI, List<Pair<IRI, Object>>> eldest) {
+                if (size() > CachingMagmaCoreDatabase.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the counters of the cache.
+     *
+     * @return {@link CacheStatistics}.
+     */
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hits, misses, evictions, cache.size());
+    }
+
+    /**
+     * Remove all objects from the cache. The counters are not reset.
+     */
+    public synchronized void clearCache() {
+        cache.clear();
+        generation++;
+    }
+
+    /**
+     * Materialise the triples that a set of forward rules infer into a named graph of the cached
+     * database and keep them up to date, as {@link MagmaCoreJenaDatabase#materialise(String, String)}
+     * does. The inferred triples are not in the default graph, so the cache is unaffected.
+     *
+     * @param graphIri The IRI of the named graph to hold the inferred triples.
+     * @param rules    The rules, in Jena rule syntax.
+     * @throws IllegalArgumentException if a rule cannot be materialised.
+     * @throws IllegalStateException    if the cached database is not a Jena database.
+     */
+    public void materialise(final String graphIri, final String rules) {
+        if (database instanceof MagmaCoreJenaDatabase jenaDatabase) {
+            jenaDatabase.materialise(graphIri, rules);
+            return;
+        }
+        throw new IllegalStateException("Materialised inferences need a Jena database");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beginRead() {
+        beginTransaction();
+        database.beginRead();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beginWrite() {
+        beginTransaction();
+        database.beginWrite();
+        written.set(new HashSet<>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void commit() {
+        try {
+            database.commit();
+        } finally {
+            endTransaction();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void abort() {
+        try {
+            database.abort();
+        } finally {
+            endTransaction();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void drop() {
+        database.drop();
+        synchronized (this) {
+            if (written.get() != null) {
+                // Other transactions still read the data until this one commits, so clear the cache then.
+                dropped.set(Boolean.TRUE);
+            } else {
+                clearCache();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Thing get(final IRI iri) {
+        final long readGeneration;
+        synchronized (this) {
+            if (!isWritten(iri)) {
+                final List<Pair<IRI, Object>> pairs = cache.get(iri);
+                if (pairs != null) {
+                    hits++;
+                    return HqdmObjectFactory.create(iri, pairs);
+                }
+            }
+            misses++;
+            readGeneration = readGeneration();
+        }
+        final Thing thing = database.get(iri);
+        if (thing != null) {
+            put(thing, readGeneration);
+        }
+        return thing;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<IRI, Thing> getAll(final Collection<IRI> iris) {
+        final Map<IRI, Thing> result = new HashMap<>();
+        final Set<IRI> missing = new HashSet<>();
+        final long readGeneration;
+        synchronized (this) {
+            for (final IRI iri : iris) {
+                if (result.containsKey(iri) || missing.contains(iri)) {
+                    continue;
+                }
+                final List<Pair<IRI, Object>> pairs = isWritten(iri) ? null : cache.get(iri);
+                if (pairs != null) {
+                    hits++;
+                    result.put(iri, HqdmObjectFactory.create(iri, pairs));
+                } else {
+                    misses++;
+                    missing.add(iri);
+                }
+            }
+            readGeneration = readGeneration();
+        }
+        if (!missing.isEmpty()) {
+            final Map<IRI, Thing> fetched = database.getAll(missing);
+            fetched.values().forEach(thing -> put(thing, readGeneration));
+            result.putAll(fetched);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void create(final Thing object) {
+        invalidate(object.getId());
+        database.create(object);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void create(final List<DbCreateOperation> creates) {
+        creates.forEach(create -> invalidate(create.subject));
+        database.create(creates);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update(final Thing object) {
+        invalidate(object.getId());
+        database.update(object);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final Thing object) {
+        invalidate(object.getId());
+        database.delete(object);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final List<DbDeleteOperation> deletes) {
+        deletes.forEach(delete -> invalidate(delete.subject));
+        database.delete(deletes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Thing> findByPredicateIri(final IRI predicateIri, final IRI objectIri) {
+        return database.findByPredicateIri(predicateIri, objectIri);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Thing> findByPredicateIriOnly(final IRI predicateIri) {
+        return database.findByPredicateIriOnly(predicateIri);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Thing> findByPredicateIriAndValue(final IRI predicateIri, final Object value) {
+        return database.findByPredicateIriAndValue(predicateIri, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Thing> findByPredicateIriAndStringCaseInsensitive(final IRI predicateIri, final String value) {
+        return database.findByPredicateIriAndStringCaseInsensitive(predicateIri, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dump(final PrintStream out) {
+        database.dump(out);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dump(final PrintStream out, final Lang language) {
+        database.dump(out, language);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void export(final OutputStream out, final Lang language, final boolean gzip) {
+        database.export(out, language, gzip);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ChangeSubscription subscribe(final Consumer<ChangeEvent> listener, final int capacity,
+            final boolean dropWhenFull) {
+        return database.subscribe(listener, capacity, dropWhenFull);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void load(final InputStream in, final Lang language) {
+        database.load(in, language);
+        clearCache();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long load(final InputStream in, final Lang language, final int chunkSize, final Path checkpoint,
+            final Consumer<LoadProgress> progress) {
+        try {
+            return database.load(in, language, chunkSize, checkpoint, progress);
+        } finally {
+            clearCache();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryResultList executeQuery(final String sparqlQueryString) {
+        return database.executeQuery(sparqlQueryString);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryResultList executeQuery(final Query query, final QuerySolution bindings) {
+        return database.executeQuery(query, bindings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Thing> streamQuery(final String sparqlQueryString) {
+        return database.streamQuery(sparqlQueryString);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<QueryResult> streamResults(final String sparqlQueryString) {
+        return database.streamResults(sparqlQueryString);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<QueryResult> streamTriplesBySubject() {
+        return database.streamTriplesBySubject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Thing> toTopObjects(final QueryResultList queryResultsList) {
+        return database.toTopObjects(queryResultsList);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Thing> executeConstruct(final String query) {
+        return database.executeConstruct(query);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MagmaCoreDatabase applyInferenceRules(final String constructQuery, final String rules,
+            final boolean includeRdfsRules) {
+        return database.applyInferenceRules(constructQuery, rules, includeRdfsRules);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MagmaCoreDatabase applyInferenceRules(final String constructQuery, final String rules,
+            final boolean includeRdfsRules, final Consumer<InferenceTiming> timing) {
+        return database.applyInferenceRules(constructQuery, rules, includeRdfsRules, timing);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ValidationReportEntry> validate(final String constructQuery, final String rules,
+            final boolean includeRdfsRules) {
+        return database.validate(constructQuery, rules, includeRdfsRules);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ValidationReportEntry> validate(final String constructQuery, final String rules,
+            final boolean includeRdfsRules, final Consumer<InferenceTiming> timing) {
+        return database.validate(constructQuery, rules, includeRdfsRules, timing);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ValidationReportEntry> validate(final String constructQuery, final String rules,
+            final boolean includeRdfsRules, final Consumer<InferenceTiming> timing, final Duration queryTimeout) {
+        return database.validate(constructQuery, rules, includeRdfsRules, timing, queryTimeout);
+    }
+
+    /**
+     * Check whether an object has been written by the write transaction of the current thread, either
+     * directly or by dropping all the data.
+     *
+     * @param iri The {@link IRI} of the object.
+     * @return true if the object has been written.
+     */
+    private boolean isWritten(final IRI iri) {
+        final Set<IRI> writtenIris = written.get();
+        return writtenIris != null && (dropped.get() != null || writtenIris.contains(iri));
+    }
+
+    /**
+     * Remove an object that is being written from the cache. If the current thread is in a write
+     * transaction the object is also remembered so that it is not cached again before the transaction
+     * ends.
+     *
+     * @param iri The {@link IRI} of the object.
+     */
+    private synchronized void invalidate(final IRI iri) {
+        final Set<IRI> writtenIris = written.get();
+        if (writtenIris != null) {
+            writtenIris.add(iri);
+        } else {
+            generation++;
+        }
+        cache.remove(iri);
+    }
+
+    /**
+     * Record the generation as the current thread begins a transaction. This is done before the
+     * transaction of the underlying database begins, so that a commit between the two can only make
+     * the recorded generation older than the data the transaction reads, never newer.
+     */
+    private synchronized void beginTransaction() {
+        transactionGeneration.set(generation);
+    }
+
+    /**
+     * Get the generation that objects read by the current thread belong to.
+     *
+     * @return The generation when the transaction of the current thread began, or the current
+     *         generation if it is not in a transaction.
+     */
+    private synchronized long readGeneration() {
+        final Long started = transactionGeneration.get();
+        return started != null ? started : generation;
+    }
+
+    /**
+     * Remove the objects written by the current thread from the cache at the end of its transaction, or
+     * every object if it dropped all the data.
+     */
+    private synchronized void endTransaction() {
+        final Set<IRI> writtenIris = written.get();
+        final boolean droppedAll = dropped.get() != null;
+        written.remove();
+        dropped.remove();
+        transactionGeneration.remove();
+        if (droppedAll) {
+            clearCache();
+        } else if (writtenIris != null && !writtenIris.isEmpty()) {
+            writtenIris.forEach(cache::remove);
+            generation++;
+        }
+    }
+
+    /**
+     * Add an object read from the database to the cache, unless the committed data has changed since
+     * the transaction that read it began or the object has been written by the current transaction.
+     *
+     * @param thing          The {@link Thing} read from the database.
+     * @param readGeneration The generation when the transaction that read it began.
+     */
+    private synchronized void put(final Thing thing, final long readGeneration) {
+        if (readGeneration != generation || isWritten(thing.getId())) {
+            return;
+        }
+        final List<Pair<IRI, Object>> pairs = new ArrayList<>();
+        thing.getPredicates().forEach((predicate, values) -> values
+                .forEach(value -> pairs.add(new Pair<>(predicate, value))));
+        cache.put(thing.getId(), List.copyOf(pairs));
+    }
+}
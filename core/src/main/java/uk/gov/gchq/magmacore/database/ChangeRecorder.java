@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.apache.jena.graph.Triple;
+
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+
+/**
+ * Collects the net changes of the current write transaction and publishes them to the subscribers
+ * when it commits. Nothing is collected while there are no subscribers and nothing has asked for
+ * the changes to be kept.
+ */
+final class ChangeRecorder {
+
+    private final List<RingBufferSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Set<Triple> added = new LinkedHashSet<>();
+    private final Set<Triple> removed = new LinkedHashSet<>();
+    private volatile boolean retained;
+
+    /**
+     * Check whether there are any subscribers or the changes have been retained, and so whether changes
+     * need to be recorded.
+     *
+     * @return true if changes should be recorded.
+     */
+    boolean isActive() {
+        return retained || !subscriptions.isEmpty();
+    }
+
+    /**
+     * Record changes from now on whether or not there are any subscribers.
+     */
+    void retain() {
+        retained = true;
+    }
+
+    /**
+     * Record a triple that was not in the graph being added to it.
+     *
+     * @param triple The {@link Triple}.
+     */
+    synchronized void added(final Triple triple) {
+        if (!removed.remove(triple)) {
+            added.add(triple);
+        }
+    }
+
+    /**
+     * Record a triple that was in the graph being removed from it.
+     *
+     * @param triple The {@link Triple}.
+     */
+    synchronized void removed(final Triple triple) {
+        if (!added.remove(triple)) {
+            removed.add(triple);
+        }
+    }
+
+    /**
+     * Take the changes recorded so far, ready to publish once the transaction has committed.
+     *
+     * @return A {@link ChangeEvent}, or null if nothing changed.
+     */
+    synchronized ChangeEvent take() {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        final ChangeEvent event = new ChangeEvent(List.copyOf(added), List.copyOf(removed), 0);
+        reset();
+        return event;
+    }
+
+    /**
+     * Discard the changes recorded so far.
+     */
+    synchronized void reset() {
+        added.clear();
+        removed.clear();
+    }
+
+    /**
+     * Queue an event for every subscriber.
+     *
+     * @param event The {@link ChangeEvent}, or null to do nothing.
+     */
+    void publish(final ChangeEvent event) {
+        if (event != null) {
+            subscriptions.forEach(subscription -> subscription.offer(event));
+        }
+    }
+
+    /**
+     * Add a subscriber.
+     *
+     * @param listener     Receives the events on a thread of its own.
+     * @param capacity     The number of events that can be queued for the listener.
+     * @param dropWhenFull true to drop events when the queue is full, false to make commits wait.
+     * @return {@link ChangeSubscription}
+     */
+    ChangeSubscription subscribe(final Consumer<ChangeEvent> listener, final int capacity,
+            final boolean dropWhenFull) {
+        final RingBufferSubscription subscription = new RingBufferSubscription(listener, capacity, dropWhenFull,
+                subscriptions::remove);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads and writes the count saved in a checkpoint file, so that a long running load can be resumed
+ * from where an earlier one stopped. This package is not exported, so the class is only public to the
+ * rest of the module.
+ */
+public final class Checkpoint {
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Read the count saved in a checkpoint file.
+     *
+     * @param checkpoint The checkpoint {@link Path}, or null.
+     * @return The saved count, or 0 if there is no checkpoint file.
+     */
+    public static long read(final Path checkpoint) {
+        if (checkpoint == null || !Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).trim());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Save a count, replacing the checkpoint file in one step so that a failure part way through never
+     * leaves it unreadable.
+     *
+     * @param checkpoint The checkpoint {@link Path}, or null to save nothing.
+     * @param count      The count to save.
+     */
+    public static void write(final Path checkpoint, final long count) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            final Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            Files.writeString(temporary, Long.toString(count), StandardCharsets.UTF_8);
+            Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Delete a checkpoint file once the load it belongs to has finished.
+     *
+     * @param checkpoint The checkpoint {@link Path}, or null.
+     */
+    public static void delete(final Path checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(checkpoint);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
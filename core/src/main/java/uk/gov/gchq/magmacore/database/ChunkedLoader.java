@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+
+import uk.gov.gchq.magmacore.service.dto.LoadProgress;
+
+/**
+ * Parses RDF from a stream and hands the triples of the default graph to a writer in chunks, so that
+ * a large input never has to be held in memory or in one transaction.
+ *
+ * <p>
+ * If a checkpoint file is given, the number of triples written so far is saved in it after each chunk.
+ * Loading the same input again with the same checkpoint skips those triples, and the file is deleted
+ * when the load finishes. Blank nodes are given new identities by each parse, so resuming is only safe
+ * for inputs whose blank nodes do not span the point at which the earlier load stopped.
+ * </p>
+ */
+final class ChunkedLoader extends StreamRDFBase {
+
+    private final int chunkSize;
+    private final Path checkpoint;
+    private final Consumer<List<Triple>> writer;
+    private final Consumer<LoadProgress> progress;
+    private final long skip;
+    private final long start = System.currentTimeMillis();
+
+    private List<Triple> chunk;
+    private long parsed;
+    private long written;
+    private long chunks;
+
+    /**
+     * Constructs a ChunkedLoader.
+     *
+     * @param chunkSize  The maximum number of triples in each chunk.
+     * @param checkpoint The checkpoint {@link Path}, or null to load without one.
+     * @param writer     Writes a chunk of triples, committing them before it returns.
+     * @param progress   Told of the progress after each chunk, or null.
+     */
+    private ChunkedLoader(final int chunkSize, final Path checkpoint, final Consumer<List<Triple>> writer,
+            final Consumer<LoadProgress> progress) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.checkpoint = checkpoint;
+        this.writer = writer;
+        this.progress = progress;
+        this.skip = Checkpoint.read(checkpoint);
+        this.written = skip;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    /**
+     * Load RDF from an {@link InputStream} in chunks.
+     *
+     * @param in         {@link InputStream} to read from.
+     * @param language   RDF language syntax of the input.
+     * @param chunkSize  The maximum number of triples in each chunk.
+     * @param checkpoint The checkpoint {@link Path}, or null to load without one.
+     * @param writer     Writes a chunk of triples, committing them before it returns.
+     * @param progress   Told of the progress after each chunk, or null.
+     * @return The total number of triples written, including any skipped when resuming.
+     */
+    static long load(final InputStream in, final Lang language, final int chunkSize, final Path checkpoint,
+            final Consumer<List<Triple>> writer, final Consumer<LoadProgress> progress) {
+        final ChunkedLoader loader = new ChunkedLoader(chunkSize, checkpoint, writer, progress);
+        RDFParser.source(in).lang(language).parse(loader);
+        loader.flush();
+        Checkpoint.delete(checkpoint);
+        return loader.written;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void triple(final Triple triple) {
+        if (parsed++ < skip) {
+            return;
+        }
+        chunk.add(triple);
+        if (chunk.size() >= chunkSize) {
+            flush();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void quad(final Quad quad) {
+        if (quad.isDefaultGraph()) {
+            triple(quad.asTriple());
+        }
+    }
+
+    /**
+     * Write the current chunk, if it has any triples, and record the progress.
+     */
+    private void flush() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        writer.accept(chunk);
+        written += chunk.size();
+        chunks++;
+        chunk = new ArrayList<>(chunkSize);
+        Checkpoint.write(checkpoint, written);
+        if (progress != null) {
+            progress.accept(new LoadProgress(written, skip, chunks, System.currentTimeMillis() - start));
+        }
+    }
+}
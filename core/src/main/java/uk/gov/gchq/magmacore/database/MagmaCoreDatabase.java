@@ -15,15 +15,29 @@
 package uk.gov.gchq.magmacore.database;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QuerySolution;
 import org.apache.jena.riot.Lang;
 
+import uk.gov.gchq.magmacore.database.query.QueryResult;
 import uk.gov.gchq.magmacore.database.query.QueryResultList;
 import uk.gov.gchq.magmacore.database.validation.ValidationReportEntry;
 import uk.gov.gchq.magmacore.hqdm.model.Thing;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+import uk.gov.gchq.magmacore.service.dto.InferenceTiming;
+import uk.gov.gchq.magmacore.service.dto.LoadProgress;
 import uk.gov.gchq.magmacore.service.transformation.DbCreateOperation;
 import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
 
@@ -69,6 +83,15 @@ public interface MagmaCoreDatabase {
      */
     Thing get(IRI iri);
 
+    /**
+     * Get many objects from the collection at once. This needs far fewer round trips to the database
+     * than calling {@link #get(IRI)} for each object.
+     *
+     * @param iris IRIs of the objects to get.
+     * @return A {@link Map} of the fetched HQDM objects by IRI. IRIs that are not found have no entry.
+     */
+    Map<IRI, Thing> getAll(Collection<IRI> iris);
+
     /**
      * Add an entity to the collection.
      *
@@ -156,6 +179,33 @@ public interface MagmaCoreDatabase {
      */
     void dump(final PrintStream out, final Lang language);
 
+    /**
+     * Export the contents of the collection as a stream of triples, without holding them all in memory.
+     *
+     * @param out      {@link OutputStream} to write to. It is flushed but not closed.
+     * @param language An RDF language that can be written as a stream, such as N-Triples, N-Quads or RDF
+     *                 Thrift.
+     * @param gzip     true to gzip-compress the output.
+     * @throws IllegalArgumentException if the language cannot be written as a stream.
+     */
+    void export(final OutputStream out, final Lang language, final boolean gzip);
+
+    /**
+     * Subscribe to the net changes made by each committed write transaction. Each subscriber has a
+     * bounded buffer and its events are delivered in commit order on a thread of its own, so a slow
+     * subscriber does not hold up writers unless it is set to make them wait when its buffer is full.
+     * Changes are only recorded while there are subscribers.
+     *
+     * @param listener     Receives the {@link ChangeEvent}s.
+     * @param capacity     The number of events that can be waiting for the listener.
+     * @param dropWhenFull true to drop events when the buffer is full, false to make the committing
+     *                     thread wait for space.
+     * @return A {@link ChangeSubscription} to close when the events are no longer needed.
+     * @throws UnsupportedOperationException if the database cannot report its changes.
+     */
+    ChangeSubscription subscribe(final Consumer<ChangeEvent> listener, final int capacity,
+            final boolean dropWhenFull);
+
     /**
      * Import data into the model.
      *
@@ -164,6 +214,26 @@ public interface MagmaCoreDatabase {
      */
     void load(final InputStream in, final Lang language);
 
+    /**
+     * Import data into the model in chunks, each written in its own transaction, so that a large input
+     * does not have to be held in one transaction. This must not be called in a transaction.
+     *
+     * <p>
+     * If a checkpoint file is given, the number of triples written is saved in it after each chunk, and a
+     * later load of the same input with the same checkpoint resumes after them. The checkpoint file is
+     * deleted when the load completes.
+     * </p>
+     *
+     * @param in         {@link InputStream} to read from.
+     * @param language   RDF language syntax of the input.
+     * @param chunkSize  The maximum number of triples written in each transaction.
+     * @param checkpoint The checkpoint file {@link Path}, or null to load without one.
+     * @param progress   Told of the progress after each chunk, or null.
+     * @return The number of triples loaded, including any skipped when resuming.
+     */
+    long load(final InputStream in, final Lang language, final int chunkSize, final Path checkpoint,
+            final Consumer<LoadProgress> progress);
+
     /**
      * Perform a SPARQL query on the dataset.
      *
@@ -172,6 +242,51 @@ public interface MagmaCoreDatabase {
      */
     QueryResultList executeQuery(final String sparqlQueryString);
 
+    /**
+     * Perform a parsed SPARQL query on the dataset, substituting values for some of its variables. This
+     * allows a {@link Query} to be parsed once and then executed many times with different values.
+     *
+     * @param query    A parsed SPARQL {@link Query}, which is not modified.
+     * @param bindings The values to substitute for variables in the query.
+     * @return Results of the query.
+     */
+    QueryResultList executeQuery(final Query query, final QuerySolution bindings);
+
+    /**
+     * Perform a SPARQL SELECT query on the dataset and stream the results as {@link Thing} objects.
+     *
+     * <p>
+     * The first three result variables of the query are treated as subject, predicate and object. The
+     * subject is made the first sort key, ahead of any ORDER BY the query already has, so that each
+     * {@link Thing} can be emitted as soon as the rows for its subject have been read, rather than
+     * holding the whole result in memory. The stream must be consumed inside a transaction and closed
+     * when finished with.
+     * </p>
+     *
+     * @param sparqlQueryString SPARQL SELECT query to execute.
+     * @return A {@link Stream} of {@link Thing}.
+     */
+    Stream<Thing> streamQuery(final String sparqlQueryString);
+
+    /**
+     * Perform a SPARQL SELECT query on the dataset and stream the rows as they are read, rather than
+     * holding the whole result in memory. The stream must be consumed inside a transaction and closed
+     * when finished with.
+     *
+     * @param sparqlQueryString SPARQL SELECT query to execute.
+     * @return A {@link Stream} of {@link QueryResult}, one for each row.
+     */
+    Stream<QueryResult> streamResults(final String sparqlQueryString);
+
+    /**
+     * Stream every triple of the default graph as a row binding {@code s}, {@code p} and {@code o},
+     * with the triples of each subject next to each other. The stream must be consumed inside a
+     * transaction and closed when finished with.
+     *
+     * @return A {@link Stream} of {@link QueryResult}, one for each triple.
+     */
+    Stream<QueryResult> streamTriplesBySubject();
+
     /**
      * Convert a {@link QueryResultList} to a {@link List} of {@link Thing}.
      *
@@ -208,6 +323,23 @@ public interface MagmaCoreDatabase {
             final String rules,
             final boolean includeRdfsRules);
 
+    /**
+     * Apply a set of inference rules to a subset of the model, reporting how long each phase took. A
+     * rule set that has been applied before is not parsed again.
+     *
+     * @param constructQuery   a SPARQL query String to extract a subset of the model for inferencing.
+     * @param rules            a set of inference rules to be applied to the model subset.
+     * @param includeRdfsRules boolean true if inferencing should include the standard RDFS entailments.
+     * @param timing           Told how long each phase took, or null.
+     * @return an in-memory MagmaCoreDatabase attached to the inferencing results which is independent
+     *         of the source dataset.
+     */
+    MagmaCoreDatabase applyInferenceRules(
+            final String constructQuery,
+            final String rules,
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing);
+
     /**
      * Run a validation report. This is only valid for databases obtained from
      * the {@link MagmaCoreDatabase.applyInferenceRules} method.
@@ -226,4 +358,39 @@ public interface MagmaCoreDatabase {
             final String constructQuery,
             final String rules,
             final boolean includeRdfsRules);
+
+    /**
+     * Run a validation report, reporting how long each phase took. A rule set that has been applied
+     * before is not parsed again.
+     *
+     * @param constructQuery   a SPARQL query String to extract a subset of the model for inferencing.
+     * @param rules            a set of inference rules to be applied to the model subset.
+     * @param includeRdfsRules boolean true if inferencing should include the standard RDFS entailments.
+     * @param timing           Told how long each phase took, or null.
+     * @return A {@link List} of {@link ValidationReportEntry} objects.
+     */
+    List<ValidationReportEntry> validate(
+            final String constructQuery,
+            final String rules,
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing);
+
+    /**
+     * Run a validation report, giving up if the query that selects the subset of the model runs for
+     * longer than a timeout.
+     *
+     * @param constructQuery   a SPARQL query String to extract a subset of the model for inferencing.
+     * @param rules            a set of inference rules to be applied to the model subset.
+     * @param includeRdfsRules boolean true if inferencing should include the standard RDFS entailments.
+     * @param timing           Told how long each phase took, or null.
+     * @param queryTimeout     The longest the query may run for, or null for no limit.
+     * @return A {@link List} of {@link ValidationReportEntry} objects.
+     * @throws org.apache.jena.query.QueryCancelledException if the query times out.
+     */
+    List<ValidationReportEntry> validate(
+            final String constructQuery,
+            final String rules,
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing,
+            final Duration queryTimeout);
 }
@@ -15,24 +15,43 @@
 package uk.gov.gchq.magmacore.database;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionBuilder;
 import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ReadWrite;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.TxnType;
-import org.apache.jena.rdf.model.InfModel;
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
@@ -41,18 +60,21 @@ import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
-import org.apache.jena.reasoner.ValidityReport;
-import org.apache.jena.reasoner.ValidityReport.Report;
-import org.apache.jena.reasoner.rulesys.GenericRuleReasoner;
-import org.apache.jena.reasoner.rulesys.Rule;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.core.mem.DatasetGraphInMemory;
+import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
 import org.apache.jena.update.UpdateExecutionFactory;
 import org.apache.jena.update.UpdateFactory;
 import org.apache.jena.update.UpdateProcessor;
 import org.apache.jena.update.UpdateRequest;
 import org.apache.jena.util.PrintUtil;
+import org.apache.jena.util.iterator.ExtendedIterator;
 
 import uk.gov.gchq.magmacore.database.query.QueryResult;
 import uk.gov.gchq.magmacore.database.query.QueryResultList;
@@ -62,6 +84,10 @@ import uk.gov.gchq.magmacore.hqdm.rdf.HqdmObjectFactory;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
 import uk.gov.gchq.magmacore.hqdm.rdf.util.Pair;
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+import uk.gov.gchq.magmacore.service.dto.InferenceTiming;
+import uk.gov.gchq.magmacore.service.dto.LoadProgress;
 import uk.gov.gchq.magmacore.service.transformation.DbCreateOperation;
 import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
 
@@ -71,8 +97,25 @@ import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
  */
 public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
 
+    /** Query to get the triples of many subjects at once, formatted with a list of IRIs. */
+    private static final String GET_ALL_QUERY = "SELECT ?s ?p ?o WHERE { VALUES ?s { %s } ?s ?p ?o. }";
+
+    /** The named graph that records the rules of each materialised inference graph. */
+    private static final Node MATERIALISED_REGISTRY = NodeFactory.createURI("urn:uk.gov.gchq.magmacore:materialised");
+
+    /** The predicate linking a materialised inference graph to its rules in the registry. */
+    private static final Node MATERIALISED_RULES = NodeFactory.createURI("urn:uk.gov.gchq.magmacore:rules");
+
     private final Dataset dataset;
 
+    private final ChangeRecorder changes = new ChangeRecorder();
+
+    /** The materialised inference graphs kept up to date on each commit. */
+    private final List<MaterialisedInference> materialised = new CopyOnWriteArrayList<>();
+
+    /** Whether lookups by subject and predicate go directly to the {@link Graph} rather than via SPARQL. */
+    private boolean nativeGraphAccess = true;
+
     /**
      * Constructs a MagmaCoreJenaDatabase with a new in-memory Jena dataset.
      */
@@ -87,6 +130,7 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     public MagmaCoreJenaDatabase(final Dataset dataset) {
         this.dataset = dataset;
+        loadMaterialised();
     }
 
     /**
@@ -96,6 +140,20 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     public MagmaCoreJenaDatabase(final String location) {
         dataset = TDB2Factory.connectDataset(location);
+        loadMaterialised();
+    }
+
+    /**
+     * Keep the materialised inference graphs recorded in the dataset up to date from now on.
+     */
+    private void loadMaterialised() {
+        Txn.executeRead(dataset, () -> dataset.asDatasetGraph().getGraph(MATERIALISED_REGISTRY)
+                .find(Node.ANY, MATERIALISED_RULES, Node.ANY)
+                .forEachRemaining(registration -> materialised.add(new MaterialisedInference(
+                        registration.getSubject().getURI(), registration.getObject().getLiteralLexicalForm()))));
+        if (!materialised.isEmpty()) {
+            changes.retain();
+        }
     }
 
     /**
@@ -107,6 +165,27 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
         return dataset;
     }
 
+    /**
+     * Check whether {@link #get(IRI)} and the findByPredicate methods read the default {@link Graph}
+     * directly rather than executing SPARQL queries.
+     *
+     * @return true if native graph access is in use.
+     */
+    public boolean isNativeGraphAccess() {
+        return nativeGraphAccess;
+    }
+
+    /**
+     * Choose whether {@link #get(IRI)} and the findByPredicate methods read the default {@link Graph}
+     * directly or execute SPARQL queries. Both produce the same results, the native path avoids parsing
+     * and planning a query on every call. It is enabled by default.
+     *
+     * @param nativeGraphAccess true to use native graph access, false to use SPARQL.
+     */
+    public void setNativeGraphAccess(final boolean nativeGraphAccess) {
+        this.nativeGraphAccess = nativeGraphAccess;
+    }
+
     /**
      * Register a new prefix/namespace mapping which will be used to shorten the
      * print strings for resources in known namespaces.
@@ -147,8 +226,14 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
     @Override
     public void commit() {
         if (dataset.isInTransaction()) {
+            // Only the write transaction has changes, so a reader on another thread must leave them.
+            final ChangeEvent event = dataset.transactionMode() == ReadWrite.WRITE ? changes.take() : null;
+            if (event != null) {
+                materialised.forEach(view -> view.update(dataset.asDatasetGraph(), event.added(), event.removed()));
+            }
             dataset.commit();
             dataset.end();
+            changes.publish(event);
         } else {
             throw new IllegalStateException("Not in a transaction");
         }
@@ -160,6 +245,9 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
     @Override
     public void abort() {
         if (dataset.isInTransaction()) {
+            if (dataset.transactionMode() == ReadWrite.WRITE) {
+                changes.reset();
+            }
             dataset.abort();
             dataset.end();
         } else {
@@ -173,7 +261,18 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
     @Override
     public void drop() {
         final String drop = "drop all";
+        if (changes.isActive()) {
+            final Graph graph = dataset.getDefaultModel().getGraph();
+            recordRemoved(graph, graph.find());
+        }
+        if (materialised.isEmpty()) {
+            executeUpdate(drop);
+            return;
+        }
+        // The materialised inference graphs are still kept up to date, so keep their registrations.
+        final List<Triple> registrations = dataset.asDatasetGraph().getGraph(MATERIALISED_REGISTRY).find().toList();
         executeUpdate(drop);
+        registrations.forEach(dataset.asDatasetGraph().getGraph(MATERIALISED_REGISTRY)::add);
     }
 
     /**
@@ -181,6 +280,10 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     @Override
     public Thing get(final IRI iri) {
+        if (nativeGraphAccess) {
+            final Model model = dataset.getDefaultModel();
+            return findThing(model.getGraph(), model, model.createResource(iri.getIri()).asNode());
+        }
         final String query = String.format("SELECT (<%1$s> as ?s) ?p ?o WHERE {<%1$s> ?p ?o.}", iri.toString());
         final QueryResultList list = executeQuery(query);
         final List<Thing> objects = toTopObjects(list);
@@ -191,6 +294,35 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<IRI, Thing> getAll(final Collection<IRI> iris) {
+        final Map<IRI, Thing> result = new HashMap<>();
+        if (iris.isEmpty()) {
+            return result;
+        }
+        if (nativeGraphAccess) {
+            final Model model = dataset.getDefaultModel();
+            final Graph graph = model.getGraph();
+            for (final IRI iri : new LinkedHashSet<>(iris)) {
+                final Thing thing = findThing(graph, model, model.createResource(iri.getIri()).asNode());
+                if (thing != null) {
+                    result.put(iri, thing);
+                }
+            }
+            return result;
+        }
+        final String values = iris.stream()
+                .distinct()
+                .map(iri -> "<" + iri.getIri() + ">")
+                .collect(Collectors.joining(" "));
+        final QueryResultList list = executeQuery(String.format(GET_ALL_QUERY, values));
+        toTopObjects(list).forEach(thing -> result.put(thing.getId(), thing));
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -199,6 +331,13 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
         final Model defaultModel = dataset.getDefaultModel();
 
         final Resource resource = defaultModel.createResource(object.getId().getIri());
+        if (changes.isActive()) {
+            final Node subject = resource.asNode();
+            final List<Triple> triples = new ArrayList<>();
+            object.getPredicates().forEach((iri, predicates) -> predicates
+                    .forEach(value -> triples.add(ThingDelta.toTriple(subject, iri, value))));
+            recordAdded(defaultModel.getGraph(), triples.iterator());
+        }
 
         object.getPredicates().forEach((iri, predicates) -> predicates.forEach(value -> {
             if (value instanceof IRI) {
@@ -233,6 +372,7 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
 
         final Model model = dataset.getDefaultModel();
 
+        recordAdded(model.getGraph(), forCreation.getGraph().find());
         model.add(forCreation);
     }
 
@@ -241,8 +381,17 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     @Override
     public void update(final Thing object) {
-        delete(object);
-        create(object);
+        final Model model = dataset.getDefaultModel();
+        final Graph graph = model.getGraph();
+        final Node subject = NodeFactory.createURI(object.getId().getIri());
+        final ThingDelta delta = ThingDelta.of(model, object, graph.find(subject, Node.ANY, Node.ANY).toList());
+
+        if (changes.isActive()) {
+            delta.deletes().forEach(changes::removed);
+            delta.creates().forEach(changes::added);
+        }
+        delta.deletes().forEach(graph::delete);
+        delta.creates().forEach(graph::add);
     }
 
     /**
@@ -250,6 +399,10 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     @Override
     public void delete(final Thing object) {
+        if (changes.isActive()) {
+            final Graph graph = dataset.getDefaultModel().getGraph();
+            recordRemoved(graph, graph.find(NodeFactory.createURI(object.getId().getIri()), Node.ANY, Node.ANY));
+        }
         executeUpdate(String.format("delete {<%s> ?p ?o} WHERE {<%s> ?p ?o}", object.getId(), object.getId()));
     }
 
@@ -277,6 +430,7 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
 
         final Model model = dataset.getDefaultModel();
 
+        recordRemoved(model.getGraph(), forDeletion.getGraph().find());
         model.remove(forDeletion);
     }
 
@@ -285,6 +439,10 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     @Override
     public List<Thing> findByPredicateIri(final IRI predicateIri, final IRI objectIri) {
+        if (nativeGraphAccess) {
+            final Model model = dataset.getDefaultModel();
+            return findThings(model, predicateIri, model.createResource(objectIri.getIri()).asNode(), o -> true);
+        }
         final String query = "SELECT ?s ?p ?o WHERE {?s ?p ?o. ?s <" + predicateIri.toString() + "> <"
                 + objectIri.toString() + ">.}";
         final QueryResultList list = executeQuery(query);
@@ -296,6 +454,9 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     @Override
     public List<Thing> findByPredicateIriOnly(final IRI predicateIri) {
+        if (nativeGraphAccess) {
+            return findThings(dataset.getDefaultModel(), predicateIri, Node.ANY, o -> true);
+        }
         final String query = "SELECT ?s ?p ?o WHERE {{select ?s ?p ?o where { ?s ?p ?o.}}{select ?s where {?s <"
                 + predicateIri.toString() + "> ?o.}}}";
         final QueryResultList list = executeQuery(query);
@@ -307,6 +468,16 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     @Override
     public List<Thing> findByPredicateIriAndValue(final IRI predicateIri, final Object value) {
+        if (nativeGraphAccess) {
+            final Model model = dataset.getDefaultModel();
+            final Node object;
+            if (value instanceof IRI) {
+                object = model.createResource(value.toString()).asNode();
+            } else {
+                object = model.createLiteral(String.valueOf(value)).asNode();
+            }
+            return findThings(model, predicateIri, object, o -> true);
+        }
         final String query;
 
         if (value instanceof IRI) {
@@ -325,6 +496,13 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
      */
     @Override
     public List<Thing> findByPredicateIriAndStringCaseInsensitive(final IRI predicateIri, final String value) {
+        if (nativeGraphAccess) {
+            // Match the behaviour of LCASE() in SPARQL, which only applies to plain string literals here.
+            return findThings(dataset.getDefaultModel(), predicateIri, Node.ANY, o -> o.isLiteral()
+                    && o.getLiteralLanguage().isEmpty()
+                    && XSDDatatype.XSDstring.equals(o.getLiteralDatatype())
+                    && o.getLiteralLexicalForm().toLowerCase(Locale.ROOT).equals(value));
+        }
         final String query = "SELECT ?s ?p ?o WHERE {{ SELECT ?s ?p ?o where { ?s ?p ?o.}}{select ?s where {?s <"
                 + predicateIri.toString() + "> ?o. BIND(LCASE(?o) AS ?lcase) FILTER(?lcase= \"\"\"" + value
                 + "\"\"\")}}}";
@@ -332,6 +510,65 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
         return toTopObjects(list);
     }
 
+    /**
+     * Find the subjects of triples in the default graph with the given predicate and object, and build a
+     * {@link Thing} for each of them directly from the graph.
+     *
+     * @param model        The default {@link Model}.
+     * @param predicateIri The predicate {@link IRI}.
+     * @param object       The object {@link Node}, which may be {@link Node#ANY}.
+     * @param objectFilter A further test that matching objects must pass.
+     * @return a {@link List} of {@link Thing}
+     */
+    private static List<Thing> findThings(final Model model, final IRI predicateIri, final Node object,
+            final Predicate<Node> objectFilter) {
+        final Graph graph = model.getGraph();
+        final Node predicate = model.createProperty(predicateIri.getIri()).asNode();
+
+        final Set<Node> subjects = new LinkedHashSet<>();
+        final ExtendedIterator<Triple> matches = graph.find(Node.ANY, predicate, object);
+        try {
+            while (matches.hasNext()) {
+                final Triple triple = matches.next();
+                if (objectFilter.test(triple.getObject())) {
+                    subjects.add(triple.getSubject());
+                }
+            }
+        } finally {
+            matches.close();
+        }
+
+        final List<Thing> things = new ArrayList<>(subjects.size());
+        subjects.forEach(subject -> things.add(findThing(graph, model, subject)));
+        return things;
+    }
+
+    /**
+     * Build a {@link Thing} from all of the triples in a {@link Graph} with the given subject.
+     *
+     * @param graph   The {@link Graph} to read.
+     * @param model   The {@link Model} used to convert nodes in the same way as query results.
+     * @param subject The subject {@link Node}.
+     * @return The {@link Thing}, or null if there are no triples for the subject.
+     */
+    private static Thing findThing(final Graph graph, final Model model, final Node subject) {
+        final ExtendedIterator<Triple> triples = graph.find(subject, Node.ANY, Node.ANY);
+        try {
+            if (!triples.hasNext()) {
+                return null;
+            }
+            final List<Pair<IRI, Object>> pairs = new ArrayList<>();
+            while (triples.hasNext()) {
+                final Triple triple = triples.next();
+                pairs.add(ThingIterator.toPair(model.asRDFNode(triple.getPredicate()),
+                        model.asRDFNode(triple.getObject())));
+            }
+            return HqdmObjectFactory.create(new IRI(model.asRDFNode(subject).toString()), pairs);
+        } finally {
+            triples.close();
+        }
+    }
+
     /**
      * Execute a CONSTRUCT query.
      *
@@ -348,6 +585,55 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
         return toTopObjects(getQueryResultList(selectAllQueryExec));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Changes made through this class are reported, including loads, but changes made directly to the
+     * dataset returned by {@link #getDataset()} and loads with {@link #loadIntoEmptyDatabase(InputStream,
+     * Lang)} are not.
+     * </p>
+     */
+    @Override
+    public ChangeSubscription subscribe(final Consumer<ChangeEvent> listener, final int capacity,
+            final boolean dropWhenFull) {
+        return changes.subscribe(listener, capacity, dropWhenFull);
+    }
+
+    /**
+     * Record the triples that are about to be added and are not already in the graph, if there are
+     * change subscribers.
+     *
+     * @param graph   The {@link Graph} being added to.
+     * @param triples The {@link Triple}s to add.
+     */
+    private void recordAdded(final Graph graph, final Iterator<Triple> triples) {
+        if (changes.isActive()) {
+            triples.forEachRemaining(triple -> {
+                if (!graph.contains(triple)) {
+                    changes.added(triple);
+                }
+            });
+        }
+    }
+
+    /**
+     * Record the triples that are about to be removed and are in the graph, if there are change
+     * subscribers.
+     *
+     * @param graph   The {@link Graph} being removed from.
+     * @param triples The {@link Triple}s to remove.
+     */
+    private void recordRemoved(final Graph graph, final Iterator<Triple> triples) {
+        if (changes.isActive()) {
+            triples.forEachRemaining(triple -> {
+                if (graph.contains(triple)) {
+                    changes.removed(triple);
+                }
+            });
+        }
+    }
+
     /**
      * Perform an update query on the dataset.
      *
@@ -371,6 +657,53 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
         return getQueryResultList(queryExec);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryResultList executeQuery(final Query query, final QuerySolution bindings) {
+        final QueryExecution queryExec = QueryExecution.dataset(dataset)
+                .query(query)
+                .substitution(bindings)
+                .build();
+        return getQueryResultList(queryExec);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Thing> streamQuery(final String sparqlQueryString) {
+        final Query query = ThingIterator.orderBySubject(QueryFactory.create(sparqlQueryString));
+        return ThingIterator.stream(QueryExecutionFactory.create(query, dataset));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<QueryResult> streamResults(final String sparqlQueryString) {
+        return ThingIterator.rows(QueryExecutionFactory.create(QueryFactory.create(sparqlQueryString), dataset));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * TDB2 and in-memory transactional datasets find all the triples of the default graph through an
+     * index that starts with the subject, so they are read straight from the graph in index order
+     * without sorting. Other datasets are sorted by subject with a SPARQL query.
+     * </p>
+     */
+    @Override
+    public Stream<QueryResult> streamTriplesBySubject() {
+        if (!TDB2Factory.isTDB2(dataset) && !(dataset.asDatasetGraph() instanceof DatasetGraphInMemory)) {
+            return streamResults(ThingIterator.TRIPLES_BY_SUBJECT);
+        }
+        final Model model = dataset.getDefaultModel();
+        return ThingIterator.rows(model, model.getGraph().find());
+    }
+
     /**
      * Execute a SPARQL query and construct a list of HQDM objects from the
      * resulting RDF triples.
@@ -425,9 +758,9 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
                 objectMap.put(subjectValue, dataModelObject);
             }
             if (objectValue instanceof Literal) {
-                dataModelObject.add(new Pair<>(new IRI(predicateValue.toString()), objectValue.toString()));
+                dataModelObject.add(new Pair<>(IRI.of(predicateValue.toString()), objectValue.toString()));
             } else if (objectValue instanceof Resource) {
-                dataModelObject.add(new Pair<>(new IRI(predicateValue.toString()), new IRI(objectValue.toString())));
+                dataModelObject.add(new Pair<>(IRI.of(predicateValue.toString()), IRI.of(objectValue.toString())));
             } else {
                 throw new RuntimeException("objectValue is of unknown type: " + objectValue.getClass());
             }
@@ -468,6 +801,64 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
         abort();
     }
 
+    /**
+     * Materialise the triples that a set of forward rules infer from the default graph into a named
+     * graph, and keep them up to date as each later write transaction commits. Only the consequences of
+     * the triples each transaction added or removed are recomputed, so the inferred triples can be
+     * queried with {@code GRAPH <graphIri> { ... }} without running the rules again. Materialising into
+     * the same graph again replaces its rules. This must not be called in a transaction.
+     *
+     * <p>
+     * The graph IRI and rules are recorded in the dataset, so a MagmaCoreJenaDatabase opened on the
+     * same dataset later, such as after a restart with a TDB2 dataset, keeps the graph up to date too.
+     * </p>
+     *
+     * <p>
+     * The rules must be forward rules whose premises and conclusions are all triple patterns. The
+     * named graph holds only the inferred triples that are not in the default graph. As with
+     * {@link #subscribe(Consumer, int, boolean)}, changes made directly to the dataset, by SPARQL
+     * updates or by {@link #loadIntoEmptyDatabase(InputStream, Lang)} are not tracked; materialise the
+     * graph again after making them.
+     * </p>
+     *
+     * @param graphIri The IRI of the named graph to hold the inferred triples.
+     * @param rules    The rules, in Jena rule syntax.
+     * @throws IllegalArgumentException if a rule cannot be materialised.
+     */
+    public void materialise(final String graphIri, final String rules) {
+        final MaterialisedInference view = new MaterialisedInference(graphIri, rules);
+        changes.retain();
+        beginWrite();
+        try {
+            changes.reset();
+            view.recompute(dataset.asDatasetGraph());
+            final Graph registry = dataset.asDatasetGraph().getGraph(MATERIALISED_REGISTRY);
+            registry.remove(view.graphName(), MATERIALISED_RULES, Node.ANY);
+            registry.add(Triple.create(view.graphName(), MATERIALISED_RULES, NodeFactory.createLiteralString(rules)));
+            materialised.removeIf(existing -> existing.graphName().equals(view.graphName()));
+            materialised.add(view);
+            commit();
+        } catch (final RuntimeException e) {
+            materialised.remove(view);
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void export(final OutputStream out, final Lang language, final boolean gzip) {
+        beginRead();
+        try {
+            final Graph graph = dataset.getDefaultModel().getGraph();
+            StreamingExport.write(out, language, gzip, stream -> graph.find().forEachRemaining(stream::triple));
+        } finally {
+            abort();
+        }
+    }
+
     /**
      * Import data into the model.
      *
@@ -477,10 +868,72 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
     public final void load(final InputStream in, final Lang language) {
         beginWrite();
         final Model model = dataset.getDefaultModel();
-        RDFDataMgr.read(model, in, language);
+        if (changes.isActive()) {
+            final Model loaded = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(loaded, in, language);
+            recordAdded(model.getGraph(), loaded.getGraph().find());
+            model.add(loaded);
+        } else {
+            RDFDataMgr.read(model, in, language);
+        }
         commit();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long load(final InputStream in, final Lang language, final int chunkSize, final Path checkpoint,
+            final Consumer<LoadProgress> progress) {
+        return ChunkedLoader.load(in, language, chunkSize, checkpoint, triples -> {
+            beginWrite();
+            try {
+                final Graph graph = dataset.getDefaultModel().getGraph();
+                recordAdded(graph, triples.iterator());
+                triples.forEach(graph::add);
+                commit();
+            } catch (final RuntimeException e) {
+                abort();
+                throw e;
+            }
+        }, progress);
+    }
+
+    /**
+     * Import data into an empty TDB2 database with the TDB2 parallel loader, which builds the indexes in
+     * sorted passes rather than one triple at a time. This is much faster than {@link #load(InputStream,
+     * Lang)} for large inputs, but the load is not resumable and nothing else should use the database
+     * while it runs. Progress is written to the TDB2 loader log. This must not be called in a
+     * transaction.
+     *
+     * @param in       {@link InputStream} to read from.
+     * @param language RDF language syntax of the input.
+     * @return The number of triples loaded.
+     * @throws IllegalStateException if the database is not TDB2 or is not empty.
+     */
+    public long loadIntoEmptyDatabase(final InputStream in, final Lang language) {
+        if (!TDB2Factory.isTDB2(dataset)) {
+            throw new IllegalStateException("The parallel loader needs a TDB2 database");
+        }
+        beginRead();
+        final boolean empty = dataset.asDatasetGraph().isEmpty();
+        abort();
+        if (!empty) {
+            throw new IllegalStateException("The parallel loader needs an empty database");
+        }
+
+        final DataLoader loader = LoaderFactory.parallelLoader(dataset.asDatasetGraph(), LoaderOps.outputToLog());
+        loader.startBulk();
+        try {
+            RDFParser.source(in).lang(language).parse(loader.stream());
+            loader.finishBulk();
+        } catch (final RuntimeException e) {
+            loader.finishException(e);
+            throw e;
+        }
+        return loader.countTriples();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -489,66 +942,75 @@ public class MagmaCoreJenaDatabase implements MagmaCoreDatabase {
             final String constructQuery,
             final String rules,
             final boolean includeRdfsRules) {
-        // Create an Inference Model which will run the rules.
-        final InfModel model = getInferenceModel(constructQuery, rules, includeRdfsRules);
+        return applyInferenceRules(constructQuery, rules, includeRdfsRules, null);
+    }
 
-        // Convert the inference model to a dataset and return it wrapped as
-        // an in-memory MagmaCoreDatabase.
-        final Dataset inferenceDataset = DatasetFactory.wrap(model);
-        return new MagmaCoreJenaDatabase(inferenceDataset);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MagmaCoreDatabase applyInferenceRules(
+            final String constructQuery,
+            final String rules,
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing) {
+        // Run the rules and wrap the inference model as an in-memory MagmaCoreDatabase.
+        return RuleSetRegistry.infer(subset(constructQuery, null), rules,
+                model -> new MagmaCoreJenaDatabase(DatasetFactory.wrap(model)), timing);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public List<ValidationReportEntry> validate(final String constructQuery,
+    public List<ValidationReportEntry> validate(
+            final String constructQuery,
             final String rules,
             final boolean includeRdfsRules) {
-        // Create an Inference Model which will run the rules.
-        final InfModel model = getInferenceModel(constructQuery, rules, includeRdfsRules);
-
-        // Run the validation.
-        final ValidityReport validityReport = model.validate();
-
-        // Convert the result to be non-Jena-specific.
-        final List<ValidationReportEntry> entries = new ArrayList<>();
-        final Iterator<Report> reports = validityReport.getReports();
-
-        while (reports.hasNext()) {
-            final Report report = reports.next();
-
-            entries.add(new ValidationReportEntry(
-                    report.getType(),
-                    report.getExtension(),
-                    report.getDescription()));
-        }
-
-        return entries;
+        return validate(constructQuery, rules, includeRdfsRules, null);
     }
 
     /**
-     * Create an in-memory model for inferencing.
-     *
-     * @param constructQuery   {@link String}
-     * @param rules            {@link String}
-     * @param includeRdfsRules boolean
-     * @return {@link InfModel}
+     * {@inheritDoc}
      */
-    private InfModel getInferenceModel(
+    @Override
+    public List<ValidationReportEntry> validate(
             final String constructQuery,
             final String rules,
-            final boolean includeRdfsRules) {
-        // Get the default Model
-        // Execute the query to get a subset of the data model.
-        final QueryExecution queryExec = QueryExecutionFactory.create(constructQuery, dataset);
-        final Model subset = queryExec.execConstruct();
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing) {
+        return validate(constructQuery, rules, includeRdfsRules, timing, null);
+    }
 
-        // Parse the rules and create a reasoner using the rules and the sunset Model.
-        final List<Rule> ruleSet = Rule.parseRules(rules);
-        final GenericRuleReasoner reasoner = new GenericRuleReasoner(ruleSet);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ValidationReportEntry> validate(
+            final String constructQuery,
+            final String rules,
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing,
+            final Duration queryTimeout) {
+        return RuleSetRegistry.infer(subset(constructQuery, queryTimeout), rules, RuleSetRegistry::validate, timing);
+    }
 
-        // Create an Inference Model which will run the rules.
-        return ModelFactory.createInfModel(reasoner, subset);
+    /**
+     * Create a {@link Supplier} of the subset of the data model to run inference rules over.
+     *
+     * @param constructQuery A CONSTRUCT query {@link String} that selects the subset.
+     * @param queryTimeout   The longest the query may run for, or null for no limit.
+     * @return A {@link Supplier} of {@link Model}.
+     */
+    private Supplier<Model> subset(final String constructQuery, final Duration queryTimeout) {
+        return () -> {
+            final QueryExecutionBuilder builder = QueryExecution.dataset(dataset).query(constructQuery);
+            if (queryTimeout != null) {
+                builder.timeout(queryTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            try (QueryExecution queryExec = builder.build()) {
+                return queryExec.execConstruct();
+            }
+        };
     }
 }
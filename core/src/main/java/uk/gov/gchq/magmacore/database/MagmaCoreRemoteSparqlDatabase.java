@@ -15,41 +15,56 @@
 package uk.gov.gchq.magmacore.database;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionBuilder;
 import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ReadWrite;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.TxnType;
-import org.apache.jena.rdf.model.InfModel;
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.rdf.model.Statement;
-import org.apache.jena.rdf.model.StmtIterator;
 import org.apache.jena.rdfconnection.RDFConnection;
 import org.apache.jena.rdfconnection.RDFConnectionRemote;
-import org.apache.jena.reasoner.ValidityReport;
-import org.apache.jena.reasoner.ValidityReport.Report;
-import org.apache.jena.reasoner.rulesys.GenericRuleReasoner;
-import org.apache.jena.reasoner.rulesys.Rule;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.modify.request.QuadDataAcc;
+import org.apache.jena.sparql.modify.request.UpdateDataDelete;
+import org.apache.jena.sparql.modify.request.UpdateDataInsert;
+import org.apache.jena.update.UpdateRequest;
 import org.apache.jena.util.PrintUtil;
 
 import uk.gov.gchq.magmacore.database.query.QueryResult;
@@ -59,6 +74,10 @@ import uk.gov.gchq.magmacore.hqdm.model.Thing;
 import uk.gov.gchq.magmacore.hqdm.rdf.HqdmObjectFactory;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
 import uk.gov.gchq.magmacore.hqdm.rdf.util.Pair;
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+import uk.gov.gchq.magmacore.service.dto.InferenceTiming;
+import uk.gov.gchq.magmacore.service.dto.LoadProgress;
 import uk.gov.gchq.magmacore.service.transformation.DbCreateOperation;
 import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
 
@@ -67,8 +86,35 @@ import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
  */
 public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
 
+    /** Query to get the triples of many subjects at once, formatted with a list of IRIs. */
+    private static final String GET_ALL_QUERY = "SELECT ?s ?p ?o WHERE { VALUES ?s { %s } ?s ?p ?o. }";
+
+    /** The maximum number of IRIs in each query made by {@link #getAll(Collection)}. */
+    private static final int GET_ALL_BATCH_SIZE = 500;
+
+    /** Query to get the stored triples of a subject, formatted with its IRI. */
+    private static final String SUBJECT_QUERY = "CONSTRUCT { <%1$s> ?p ?o } WHERE { <%1$s> ?p ?o }";
+
+    /** Query to stream every triple of the default graph. */
+    private static final String EXPORT_QUERY = "CONSTRUCT { ?s ?p ?o } WHERE { ?s ?p ?o }";
+
+    /** The number of triples posted in each request made by {@link #load(InputStream, Lang)}. */
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+
+    /** The number of times a chunk is posted before a load gives up. */
+    private static final int LOAD_ATTEMPTS = 3;
+
+    /** The wait before the first retry of a chunk, which doubles for each later retry. */
+    private static final long LOAD_RETRY_DELAY_MILLIS = 1_000;
+
     private final RDFConnection connection;
 
+    /** Buffers the writes of write transactions, or null to send each write as it is made. */
+    private WriteBehindBuffer writeBehind;
+
+    /** The triples sent in the current write transaction, for the subscribers. */
+    private final ChangeRecorder changes = new ChangeRecorder();
+
     /**
      * Constructs a MagmaCoreRemoteSparqlDatabase connection to a SPARQL server.
      *
@@ -93,6 +139,48 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
         connection.load(dataset.getDefaultModel());
     }
 
+    /**
+     * Choose whether the writes made in a write transaction are sent as they are made or are buffered
+     * and sent together. When buffering, consecutive creates and deletes are combined into single INSERT
+     * DATA and DELETE DATA operations, and the buffer is sent as one update request when it holds
+     * {@code maxTriples} triples, when its oldest write is {@code maxDelayMillis} old, before any read
+     * and on commit. Writes made outside a transaction are always sent immediately.
+     *
+     * <p>
+     * A failure to send buffered writes is thrown by the next read or by {@link #commit()}, which then
+     * aborts the transaction. {@link #abort()} discards the buffer.
+     * </p>
+     *
+     * @param maxTriples     The number of buffered triples that causes the buffer to be sent, or zero to
+     *                       stop buffering.
+     * @param maxDelayMillis The age of the oldest buffered write that causes the buffer to be sent.
+     * @throws IllegalStateException if called in a transaction.
+     */
+    public void setWriteBehind(final int maxTriples, final long maxDelayMillis) {
+        if (connection.isInTransaction()) {
+            throw new IllegalStateException("Cannot change write-behind in a transaction");
+        }
+        writeBehind = maxTriples > 0 ? new WriteBehindBuffer(maxTriples, maxDelayMillis, connection::update) : null;
+    }
+
+    /**
+     * Check whether writes are being buffered.
+     *
+     * @return true if there is a write-behind buffer and a transaction is in progress.
+     */
+    private boolean buffering() {
+        return writeBehind != null && connection.isInTransaction();
+    }
+
+    /**
+     * Send any buffered writes so that a read sees them.
+     */
+    private void flushWrites() {
+        if (buffering()) {
+            writeBehind.flush();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -120,6 +208,12 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      */
     public final void abort() {
         if (connection.isInTransaction()) {
+            if (writeBehind != null) {
+                writeBehind.clear();
+            }
+            if (connection.transactionMode() == ReadWrite.WRITE) {
+                changes.reset();
+            }
             connection.abort();
         } else {
             throw new IllegalStateException("Not in a transaction");
@@ -139,7 +233,19 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      */
     public final void commit() {
         if (connection.isInTransaction()) {
+            final boolean write = connection.transactionMode() == ReadWrite.WRITE;
+            try {
+                flushWrites();
+            } catch (final RuntimeException e) {
+                if (write) {
+                    changes.reset();
+                }
+                connection.abort();
+                throw e;
+            }
+            final ChangeEvent event = write ? changes.take() : null;
             connection.commit();
+            changes.publish(event);
         } else {
             throw new IllegalStateException("Not in a transaction");
         }
@@ -164,11 +270,45 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
 
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The IRIs are sent in batches of {@value #GET_ALL_BATCH_SIZE} to keep each query a reasonable size,
+     * so the number of round trips is the number of batches rather than the number of IRIs.
+     * </p>
+     */
+    @Override
+    public Map<IRI, Thing> getAll(final Collection<IRI> iris) {
+        final Map<IRI, Thing> result = new HashMap<>();
+        final List<IRI> distinctIris = iris.stream().distinct().toList();
+
+        for (int start = 0; start < distinctIris.size(); start += GET_ALL_BATCH_SIZE) {
+            final String values = distinctIris
+                    .subList(start, Math.min(start + GET_ALL_BATCH_SIZE, distinctIris.size()))
+                    .stream()
+                    .map(iri -> "<" + iri.getIri() + ">")
+                    .collect(Collectors.joining(" "));
+            final QueryResultList list = executeQuery(String.format(GET_ALL_QUERY, values));
+            toTopObjects(list).forEach(thing -> result.put(thing.getId(), thing));
+        }
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void create(final Thing object) {
+        if (buffering()) {
+            final Node subject = NodeFactory.createURI(object.getId().getIri());
+            final List<Triple> triples = new ArrayList<>();
+            object.getPredicates().forEach((iri, values) -> values
+                    .forEach(value -> triples.add(ThingDelta.toTriple(subject, iri, value))));
+            writeBehind.insert(triples);
+            sent(triples, List.of());
+            return;
+        }
 
         final Model model = ModelFactory.createDefaultModel();
 
@@ -183,6 +323,7 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
             }
         }));
         connection.load(model);
+        sent(model.getGraph().find().toList(), List.of());
     }
 
     /**
@@ -190,6 +331,15 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      */
     @Override
     public void create(final List<DbCreateOperation> creates) {
+        if (buffering()) {
+            final List<Triple> triples = creates.stream()
+                    .map(c -> ThingDelta.toTriple(NodeFactory.createURI(c.subject.getIri()), c.predicate, c.object))
+                    .toList();
+            writeBehind.insert(triples);
+            sent(triples, List.of());
+            return;
+        }
+
         final Model forCreation = ModelFactory.createDefaultModel();
 
         creates.forEach(create -> {
@@ -208,6 +358,7 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
         });
 
         connection.load(forCreation);
+        sent(forCreation.getGraph().find().toList(), List.of());
     }
 
     /**
@@ -215,8 +366,62 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      */
     @Override
     public void update(final Thing object) {
-        delete(object);
-        create(object);
+        final List<Triple> stored = new ArrayList<>();
+        flushWrites();
+        try (QueryExecution queryExec = connection.query(String.format(SUBJECT_QUERY, object.getId().getIri()))) {
+            queryExec.execConstructTriples().forEachRemaining(stored::add);
+        }
+        final ThingDelta delta = ThingDelta.of(ModelFactory.createDefaultModel(), object, stored);
+        if (delta.isEmpty()) {
+            return;
+        }
+
+        if (buffering()) {
+            writeBehind.delete(delta.deletes());
+            writeBehind.insert(delta.creates());
+        } else {
+            final UpdateRequest request = new UpdateRequest();
+            if (!delta.deletes().isEmpty()) {
+                request.add(new UpdateDataDelete(toQuads(delta.deletes())));
+            }
+            if (!delta.creates().isEmpty()) {
+                request.add(new UpdateDataInsert(toQuads(delta.creates())));
+            }
+            connection.update(request);
+        }
+        sent(delta.creates(), delta.deletes());
+    }
+
+    /**
+     * Record triples that have been sent to the endpoint to insert or delete, so that they are published
+     * to the subscribers when the write transaction commits, or straight away if there is no
+     * transaction.
+     *
+     * @param inserted The {@link Triple}s sent to insert.
+     * @param deleted  The {@link Triple}s sent to delete.
+     */
+    private void sent(final Collection<Triple> inserted, final Collection<Triple> deleted) {
+        if (!changes.isActive() || inserted.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        if (connection.isInTransaction()) {
+            deleted.forEach(changes::removed);
+            inserted.forEach(changes::added);
+        } else {
+            changes.publish(new ChangeEvent(List.copyOf(inserted), List.copyOf(deleted), 0));
+        }
+    }
+
+    /**
+     * Put triples in the default graph for an INSERT DATA or DELETE DATA operation.
+     *
+     * @param triples The {@link Triple}s.
+     * @return {@link QuadDataAcc}
+     */
+    private static QuadDataAcc toQuads(final List<Triple> triples) {
+        final QuadDataAcc quads = new QuadDataAcc();
+        triples.forEach(triple -> quads.addQuad(new Quad(Quad.defaultGraphIRI, triple)));
+        return quads;
     }
 
     /**
@@ -236,6 +441,14 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
         if (deletes.isEmpty()) {
             return;
         }
+        final List<Triple> triples = deletes.stream()
+                .map(d -> ThingDelta.toTriple(NodeFactory.createURI(d.subject.getIri()), d.predicate, d.object))
+                .toList();
+        if (buffering()) {
+            writeBehind.delete(triples);
+            sent(List.of(), triples);
+            return;
+        }
 
         final StringBuilder statement = new StringBuilder();
         statement.append("delete data { ");
@@ -261,6 +474,7 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
         statement.append("}");
 
         executeUpdate(statement.toString());
+        sent(List.of(), triples);
     }
 
     /**
@@ -324,6 +538,7 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      * @return a List of {@link Thing}
      */
     public List<Thing> executeConstruct(final String sparqlQueryString) {
+        flushWrites();
         final QueryExecution queryExec = connection.query(sparqlQueryString);
 
         final Model model = queryExec.execConstruct();
@@ -338,11 +553,16 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      * @param statement SPARQL update query to execute.
      */
     protected void executeUpdate(final String statement) {
+        if (buffering()) {
+            writeBehind.update(statement);
+            return;
+        }
 
         connection.update(statement);
 
     }
 
+
     /**
      * Perform a SPARQL query on the dataset.
      *
@@ -350,10 +570,52 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      * @return Results of the query.
      */
     public QueryResultList executeQuery(final String sparqlQueryString) {
+        flushWrites();
         final QueryExecution queryExec = connection.query(sparqlQueryString);
         return getQueryResultList(queryExec);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryResultList executeQuery(final Query query, final QuerySolution bindings) {
+        flushWrites();
+        final QueryExecution queryExec = connection.newQuery().query(query).substitution(bindings).build();
+        return getQueryResultList(queryExec);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Thing> streamQuery(final String sparqlQueryString) {
+        flushWrites();
+        final Query query = ThingIterator.orderBySubject(QueryFactory.create(sparqlQueryString));
+        return ThingIterator.stream(connection.query(query));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<QueryResult> streamResults(final String sparqlQueryString) {
+        flushWrites();
+        return ThingIterator.rows(connection.query(QueryFactory.create(sparqlQueryString)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The endpoint is asked for the triples sorted by subject.
+     * </p>
+     */
+    @Override
+    public Stream<QueryResult> streamTriplesBySubject() {
+        return streamResults(ThingIterator.TRIPLES_BY_SUBJECT);
+    }
+
     /**
      * Execute a SPARQL query and construct a list of HQDM objects from the
      * resulting RDF triples.
@@ -411,10 +673,10 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
                 objectMap.put(subjectValue, dataModelObject);
             }
             if (objectValue instanceof Literal) {
-                dataModelObject.add(new Pair<>(new IRI(predicateValue.toString()), objectValue.toString()));
+                dataModelObject.add(new Pair<>(IRI.of(predicateValue.toString()), objectValue.toString()));
             } else if (objectValue instanceof Resource) {
-                dataModelObject.add(new Pair<>(new IRI(predicateValue.toString()),
-                        new IRI(objectValue.toString())));
+                dataModelObject.add(new Pair<>(IRI.of(predicateValue.toString()),
+                        IRI.of(objectValue.toString())));
             } else {
                 throw new RuntimeException("objectValue is of unknown type: " + objectValue.getClass());
             }
@@ -432,40 +694,126 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
      */
     @Override
     public void dump(final PrintStream out) {
-        final Dataset dataset = connection.fetchDataset();
-        final Model model = dataset.getDefaultModel();
-        final StmtIterator statements = model.listStatements();
-
-        while (statements.hasNext()) {
-            final Statement statement = statements.nextStatement();
-            out.println(" - " + PrintUtil.print(statement));
-        }
+        forEachTriple(triple -> out.println(" - " + PrintUtil.print(triple)));
     }
 
     /**
-     * Dump the contents of the collection as text in specified RDF language.
+     * Dump the contents of the collection as text in specified RDF language. Languages that can be
+     * written as a stream are written as the triples arrive from the endpoint; any other language needs
+     * a copy of the whole remote dataset in memory.
      *
      * @param out      Output stream to dump to.
      * @param language RDF language syntax to output data as.
      */
     public final void dump(final PrintStream out, final Lang language) {
-        final Dataset dataset = connection.fetchDataset();
-        RDFDataMgr.write(out, dataset.getDefaultModel(), language);
+        if (StreamRDFWriter.canWriteStream(language)) {
+            export(out, language, false);
+        } else {
+            flushWrites();
+            final Dataset dataset = connection.fetchDataset();
+            RDFDataMgr.write(out, dataset.getDefaultModel(), language);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void export(final OutputStream out, final Lang language, final boolean gzip) {
+        StreamingExport.write(out, language, gzip, stream -> forEachTriple(stream::triple));
     }
 
     /**
-     * Import data into the model.
+     * {@inheritDoc}
+     *
+     * <p>
+     * The database cannot see what its SPARQL updates change on the endpoint, so the events hold the
+     * triples this client sends as INSERT DATA and DELETE DATA, or loads, when it creates, updates and
+     * deletes with lists of operations. They are net of each other within a transaction but not of the
+     * stored data, so inserting a triple that is already stored is reported as an addition. Deleting a
+     * {@link Thing} as a whole, other SPARQL updates, imports, drops and the writes of other clients of
+     * the endpoint are not reported. Writes made outside a transaction are published as they are sent.
+     * </p>
+     */
+    @Override
+    public ChangeSubscription subscribe(final Consumer<ChangeEvent> listener, final int capacity,
+            final boolean dropWhenFull) {
+        return changes.subscribe(listener, capacity, dropWhenFull);
+    }
+
+    /**
+     * Stream every triple of the default graph from the endpoint.
+     *
+     * @param action The {@link Consumer} to pass each {@link Triple} to as it arrives.
+     */
+    private void forEachTriple(final Consumer<Triple> action) {
+        flushWrites();
+        try (QueryExecution queryExec = connection.query(EXPORT_QUERY)) {
+            queryExec.execConstructTriples().forEachRemaining(action);
+        }
+    }
+
+    /**
+     * Import data into the model. The input is parsed as a stream and posted to the endpoint in chunks
+     * of {@value #LOAD_CHUNK_SIZE} triples, so neither the input nor the remote dataset is held in
+     * memory.
      *
      * @param in       {@link InputStream} to read from.
      * @param language RDF language syntax to output data as.
      */
     public final void load(final InputStream in, final Lang language) {
-        beginWrite();
-        final Dataset dataset = connection.fetchDataset();
-        final Model model = dataset.getDefaultModel();
-        RDFDataMgr.read(model, in, language);
-        connection.load(model);
-        commit();
+        load(in, language, LOAD_CHUNK_SIZE, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Each chunk is posted to the default graph with the Graph Store Protocol and is retried up to
+     * {@value #LOAD_ATTEMPTS} times if the request fails. Posting the same triples again does not
+     * duplicate them, except for triples with blank nodes.
+     * </p>
+     */
+    @Override
+    public long load(final InputStream in, final Lang language, final int chunkSize, final Path checkpoint,
+            final Consumer<LoadProgress> progress) {
+        return ChunkedLoader.load(in, language, chunkSize, checkpoint, triples -> {
+            final Graph graph = GraphFactory.createDefaultGraph();
+            triples.forEach(graph::add);
+            loadWithRetries(ModelFactory.createModelForGraph(graph));
+        }, progress);
+    }
+
+    /**
+     * Post a {@link Model} to the default graph, waiting and trying again if the request fails. The
+     * transaction is aborted whatever the failure, but only an {@link HttpException} is retried.
+     *
+     * @param model The {@link Model} to post.
+     */
+    private void loadWithRetries(final Model model) {
+        long delay = LOAD_RETRY_DELAY_MILLIS;
+        for (int attempt = 1;; attempt++) {
+            beginWrite();
+            try {
+                connection.load(model);
+                commit();
+                return;
+            } catch (final RuntimeException e) {
+                if (connection.isInTransaction()) {
+                    abort();
+                }
+                if (!(e instanceof HttpException) || attempt >= LOAD_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (final InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                delay *= 2;
+            }
+        }
     }
 
     /**
@@ -476,14 +824,21 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
             final String constructQuery,
             final String rules,
             final boolean includeRdfsRules) {
+        return applyInferenceRules(constructQuery, rules, includeRdfsRules, null);
+    }
 
-        // Create an Inference Model which will run the rules.
-        final InfModel model = getInferenceModel(constructQuery, rules, includeRdfsRules);
-
-        // Convert the inference model to a dataset and return it wrapped as
-        // an in-memory MagmaCoreDatabase.
-        final Dataset inferenceDataset = DatasetFactory.create(model);
-        return new MagmaCoreJenaDatabase(inferenceDataset);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MagmaCoreDatabase applyInferenceRules(
+            final String constructQuery,
+            final String rules,
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing) {
+        // Run the rules and wrap the inference model as an in-memory MagmaCoreDatabase.
+        return RuleSetRegistry.infer(subset(constructQuery, null), rules,
+                model -> new MagmaCoreJenaDatabase(DatasetFactory.create(model)), timing);
     }
 
     /**
@@ -494,50 +849,51 @@ public class MagmaCoreRemoteSparqlDatabase implements MagmaCoreDatabase {
             final String constructQuery,
             final String rules,
             final boolean includeRdfsRules) {
-
-        // Create an Inference Model which will run the rules.
-        final InfModel model = getInferenceModel(constructQuery, rules, includeRdfsRules);
-
-        // Run the validation.
-        final ValidityReport validityReport = model.validate();
-
-        // Convert the result to be non-Jena-specific.
-        final List<ValidationReportEntry> entries = new ArrayList<>();
-        final Iterator<Report> reports = validityReport.getReports();
-
-        while (reports.hasNext()) {
-            final Report report = reports.next();
-
-            entries.add(new ValidationReportEntry(
-                    report.getType(),
-                    report.getExtension(),
-                    report.getDescription()));
-        }
-
-        return entries;
+        return validate(constructQuery, rules, includeRdfsRules, null);
     }
 
     /**
-     * Create an in-memory model for inferencing.
-     *
-     * @param constructQuery   {@link String}
-     * @param rules            {@link String}
-     * @param includeRdfsRules boolean
-     * @return {@link InfModel}
+     * {@inheritDoc}
      */
-    private InfModel getInferenceModel(
+    @Override
+    public List<ValidationReportEntry> validate(
             final String constructQuery,
             final String rules,
-            final boolean includeRdfsRules) {
-        // Execute the query to get a subset of the data model.
-        final QueryExecution queryExec = connection.query(constructQuery);
-        final Model subset = queryExec.execConstruct();
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing) {
+        return validate(constructQuery, rules, includeRdfsRules, timing, null);
+    }
 
-        // Parse the rules and create a reasoner using the rules and the sunset Model.
-        final List<Rule> ruleSet = Rule.parseRules(rules);
-        final GenericRuleReasoner reasoner = new GenericRuleReasoner(ruleSet);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ValidationReportEntry> validate(
+            final String constructQuery,
+            final String rules,
+            final boolean includeRdfsRules,
+            final Consumer<InferenceTiming> timing,
+            final Duration queryTimeout) {
+        return RuleSetRegistry.infer(subset(constructQuery, queryTimeout), rules, RuleSetRegistry::validate, timing);
+    }
 
-        // Create an Inference Model which will run the rules.
-        return ModelFactory.createInfModel(reasoner, subset);
+    /**
+     * Create a {@link Supplier} of the subset of the data model to run inference rules over.
+     *
+     * @param constructQuery A CONSTRUCT query {@link String} that selects the subset.
+     * @param queryTimeout   The longest the query may run for, or null for no limit.
+     * @return A {@link Supplier} of {@link Model}.
+     */
+    private Supplier<Model> subset(final String constructQuery, final Duration queryTimeout) {
+        return () -> {
+            flushWrites();
+            final QueryExecutionBuilder builder = connection.newQuery().query(constructQuery);
+            if (queryTimeout != null) {
+                builder.timeout(queryTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            try (QueryExecution queryExec = builder.build()) {
+                return queryExec.execConstruct();
+            }
+        };
     }
 }
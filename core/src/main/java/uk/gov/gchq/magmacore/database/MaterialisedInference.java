@@ -0,0 +1,415 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.reasoner.TriplePattern;
+import org.apache.jena.reasoner.rulesys.ClauseEntry;
+import org.apache.jena.reasoner.rulesys.Functor;
+import org.apache.jena.reasoner.rulesys.Node_RuleVariable;
+import org.apache.jena.reasoner.rulesys.Rule;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+/**
+ * The triples inferred from the default graph by a set of forward rules, kept in a named graph of the
+ * same dataset and brought up to date with the changes of each write transaction before it commits.
+ *
+ * <p>
+ * Added triples are propagated semi-naively: each round only fires rules that match at least one
+ * triple that was new in the previous round, so the cost of a change depends on what it implies rather
+ * than on the size of the dataset. Removed triples are handled by deleting and rederiving: every
+ * inferred triple with a derivation that used a removed triple is deleted, and those that can still
+ * be derived from what is left are put back and propagated again.
+ * </p>
+ *
+ * <p>
+ * Only forward rules whose premises and conclusions are all triple patterns are supported, and every
+ * variable in a conclusion must appear in a premise. The named graph holds every inferred triple
+ * that is not in the default graph.
+ * </p>
+ */
+final class MaterialisedInference {
+
+    private final Node graphName;
+    private final List<Rule> rules;
+
+    /**
+     * Constructs a MaterialisedInference.
+     *
+     * @param graphIri The IRI of the named graph to hold the inferred triples.
+     * @param rules    The rules, in Jena rule syntax.
+     * @throws IllegalArgumentException if a rule cannot be materialised.
+     */
+    MaterialisedInference(final String graphIri, final String rules) {
+        this.graphName = NodeFactory.createURI(graphIri);
+        this.rules = Rule.parseRules(rules);
+        this.rules.forEach(MaterialisedInference::checkRule);
+    }
+
+    /**
+     * Get the name of the graph that holds the inferred triples.
+     *
+     * @return The graph name {@link Node}.
+     */
+    Node graphName() {
+        return graphName;
+    }
+
+    /**
+     * Replace the contents of the named graph with everything the rules infer from the default graph.
+     * This must be called in a write transaction.
+     *
+     * @param datasetGraph The {@link DatasetGraph}.
+     */
+    void recompute(final DatasetGraph datasetGraph) {
+        final Graph base = datasetGraph.getDefaultGraph();
+        final Graph inferred = datasetGraph.getGraph(graphName);
+        inferred.clear();
+
+        final Set<Triple> seeds = new LinkedHashSet<>();
+        for (final Rule rule : rules) {
+            for (final ClauseEntry clause : rule.getBody()) {
+                seeds.addAll(find(base, (TriplePattern) clause, new Node[rule.getNumVars()]));
+            }
+        }
+        propagate(base, inferred, seeds);
+    }
+
+    /**
+     * Bring the named graph up to date with changes to the default graph. This must be called in the
+     * write transaction that made the changes, after they have been made.
+     *
+     * @param datasetGraph The {@link DatasetGraph}.
+     * @param added        The triples added to the default graph that were not already in it.
+     * @param removed      The triples removed from the default graph that were in it.
+     */
+    void update(final DatasetGraph datasetGraph, final Collection<Triple> added, final Collection<Triple> removed) {
+        final Graph base = datasetGraph.getDefaultGraph();
+        final Graph inferred = datasetGraph.getGraph(graphName);
+        if (base.isEmpty()) {
+            inferred.clear();
+            return;
+        }
+
+        final Set<Triple> delta = new LinkedHashSet<>(added);
+        if (!removed.isEmpty()) {
+            delta.addAll(deleteAndRederive(base, inferred, removed));
+        }
+        added.forEach(inferred::delete);
+        propagate(base, inferred, delta);
+    }
+
+    /**
+     * Add everything that follows from some new triples to the inferred graph, one round at a time.
+     *
+     * @param base     The default {@link Graph}.
+     * @param inferred The inferred {@link Graph}.
+     * @param delta    The triples that are new in the union of the two graphs.
+     */
+    private void propagate(final Graph base, final Graph inferred, final Set<Triple> delta) {
+        Set<Triple> current = delta;
+        while (!current.isEmpty()) {
+            final Set<Triple> next = new LinkedHashSet<>();
+            fire(current, base, inferred, Set.of(), triple -> {
+                if (!base.contains(triple) && !inferred.contains(triple)) {
+                    next.add(triple);
+                }
+            });
+            next.forEach(inferred::add);
+            current = next;
+        }
+    }
+
+    /**
+     * Delete every inferred triple that has a derivation using a removed triple, then put back those,
+     * and any of the removed triples, that can still be derived in one step from what is left.
+     *
+     * @param base     The default {@link Graph}, without the removed triples.
+     * @param inferred The inferred {@link Graph}.
+     * @param removed  The triples removed from the default graph.
+     * @return The triples that were put back, which still need to be propagated.
+     */
+    private Set<Triple> deleteAndRederive(final Graph base, final Graph inferred, final Collection<Triple> removed) {
+        final Set<Triple> before = new HashSet<>(removed);
+        final Set<Triple> deleted = new LinkedHashSet<>();
+        Set<Triple> current = new LinkedHashSet<>(removed);
+        while (!current.isEmpty()) {
+            final Set<Triple> next = new LinkedHashSet<>();
+            fire(current, base, inferred, before, triple -> {
+                if (inferred.contains(triple) && deleted.add(triple)) {
+                    next.add(triple);
+                }
+            });
+            current = next;
+        }
+        deleted.forEach(inferred::delete);
+
+        final Set<Triple> candidates = new LinkedHashSet<>(deleted);
+        candidates.addAll(removed);
+        final Set<Triple> rederived = new LinkedHashSet<>();
+        for (final Triple triple : candidates) {
+            if (!base.contains(triple) && isDerivable(triple, base, inferred)) {
+                rederived.add(triple);
+            }
+        }
+        rederived.forEach(inferred::add);
+        return rederived;
+    }
+
+    /**
+     * Fire every rule with a premise that matches one of some triples, the other premises matching the
+     * graphs.
+     *
+     * @param triples    The triples to match one premise against.
+     * @param base       The default {@link Graph}.
+     * @param inferred   The inferred {@link Graph}.
+     * @param extra      Triples to treat as being in the graphs as well.
+     * @param conclusion Told each conclusion of each rule that fires.
+     */
+    private void fire(final Set<Triple> triples, final Graph base, final Graph inferred, final Set<Triple> extra,
+            final Consumer<Triple> conclusion) {
+        for (final Triple triple : triples) {
+            for (final Rule rule : rules) {
+                final ClauseEntry[] body = rule.getBody();
+                for (int i = 0; i < body.length; i++) {
+                    final Node[] env = new Node[rule.getNumVars()];
+                    if (bind((TriplePattern) body[i], triple, env)) {
+                        join(rule, i, 0, env, base, inferred, extra, match -> {
+                            for (final ClauseEntry head : rule.getHead()) {
+                                final Triple inferredTriple = instantiate((TriplePattern) head, match);
+                                if (inferredTriple != null) {
+                                    conclusion.accept(inferredTriple);
+                                }
+                            }
+                            return false;
+                        });
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a triple can be derived in one step from the graphs.
+     *
+     * @param triple   The {@link Triple}.
+     * @param base     The default {@link Graph}.
+     * @param inferred The inferred {@link Graph}.
+     * @return true if some rule concludes the triple from premises in the graphs.
+     */
+    private boolean isDerivable(final Triple triple, final Graph base, final Graph inferred) {
+        for (final Rule rule : rules) {
+            for (final ClauseEntry head : rule.getHead()) {
+                final Node[] env = new Node[rule.getNumVars()];
+                if (bind((TriplePattern) head, triple, env)
+                        && join(rule, -1, 0, env, base, inferred, Set.of(), match -> true)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Match the premises of a rule from an index onwards against the graphs, depth first.
+     *
+     * @param rule     The {@link Rule}.
+     * @param skip     The index of a premise that is already matched, or -1.
+     * @param index    The index of the next premise to match.
+     * @param env      The variable bindings so far.
+     * @param base     The default {@link Graph}.
+     * @param inferred The inferred {@link Graph}.
+     * @param extra    Triples to treat as being in the graphs as well.
+     * @param onMatch  Told the bindings of each complete match, returning true to stop.
+     * @return true if stopped by onMatch.
+     */
+    private static boolean join(final Rule rule, final int skip, final int index, final Node[] env, final Graph base,
+            final Graph inferred, final Set<Triple> extra, final Predicate<Node[]> onMatch) {
+        final ClauseEntry[] body = rule.getBody();
+        if (index == body.length) {
+            return onMatch.test(env);
+        }
+        if (index == skip) {
+            return join(rule, skip, index + 1, env, base, inferred, extra, onMatch);
+        }
+
+        final TriplePattern pattern = (TriplePattern) body[index];
+        final List<Triple> matches = find(base, pattern, env);
+        for (final Triple triple : find(inferred, pattern, env)) {
+            if (!base.contains(triple)) {
+                matches.add(triple);
+            }
+        }
+        for (final Triple triple : extra) {
+            if (!base.contains(triple) && !inferred.contains(triple)) {
+                matches.add(triple);
+            }
+        }
+
+        for (final Triple triple : matches) {
+            final Node[] next = env.clone();
+            if (bind(pattern, triple, next) && join(rule, skip, index + 1, next, base, inferred, extra, onMatch)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the triples in a graph that could match a pattern with some variables bound.
+     *
+     * @param graph   The {@link Graph}.
+     * @param pattern The {@link TriplePattern}.
+     * @param env     The variable bindings.
+     * @return A {@link List} of {@link Triple}.
+     */
+    private static List<Triple> find(final Graph graph, final TriplePattern pattern, final Node[] env) {
+        final List<Triple> triples = new ArrayList<>();
+        final ExtendedIterator<Triple> iterator = graph.find(resolve(pattern.getSubject(), env, Node.ANY),
+                resolve(pattern.getPredicate(), env, Node.ANY), resolve(pattern.getObject(), env, Node.ANY));
+        try {
+            iterator.forEachRemaining(triples::add);
+        } finally {
+            iterator.close();
+        }
+        return triples;
+    }
+
+    /**
+     * Match a pattern against a triple, binding its unbound variables.
+     *
+     * @param pattern The {@link TriplePattern}.
+     * @param triple  The {@link Triple}.
+     * @param env     The variable bindings, updated if the triple matches.
+     * @return true if the triple matches.
+     */
+    private static boolean bind(final TriplePattern pattern, final Triple triple, final Node[] env) {
+        return bind(pattern.getSubject(), triple.getSubject(), env)
+                && bind(pattern.getPredicate(), triple.getPredicate(), env)
+                && bind(pattern.getObject(), triple.getObject(), env);
+    }
+
+    /**
+     * Match one node of a pattern against a value.
+     *
+     * @param node  The pattern {@link Node}.
+     * @param value The value {@link Node}.
+     * @param env   The variable bindings, updated if the node is an unbound variable.
+     * @return true if the value matches.
+     */
+    private static boolean bind(final Node node, final Node value, final Node[] env) {
+        if (node instanceof Node_RuleVariable variable) {
+            if (variable.getIndex() < 0) {
+                return true;
+            }
+            final Node bound = env[variable.getIndex()];
+            if (bound == null) {
+                env[variable.getIndex()] = value;
+                return true;
+            }
+            return bound.sameValueAs(value);
+        }
+        return node.sameValueAs(value);
+    }
+
+    /**
+     * Create the triple for a conclusion of a rule.
+     *
+     * @param pattern The conclusion {@link TriplePattern}.
+     * @param env     The variable bindings of a match of the rule.
+     * @return The {@link Triple}, or null if it would have a literal subject.
+     */
+    private static Triple instantiate(final TriplePattern pattern, final Node[] env) {
+        final Node subject = resolve(pattern.getSubject(), env, null);
+        if (subject.isLiteral()) {
+            return null;
+        }
+        return Triple.create(subject, resolve(pattern.getPredicate(), env, null),
+                resolve(pattern.getObject(), env, null));
+    }
+
+    /**
+     * Replace a variable by its binding.
+     *
+     * @param node    A pattern {@link Node}.
+     * @param env     The variable bindings.
+     * @param unbound The {@link Node} to use for an unbound variable.
+     * @return The resolved {@link Node}.
+     */
+    private static Node resolve(final Node node, final Node[] env, final Node unbound) {
+        if (node instanceof Node_RuleVariable variable) {
+            final Node bound = variable.getIndex() < 0 ? null : env[variable.getIndex()];
+            return bound == null ? unbound : bound;
+        }
+        return node;
+    }
+
+    /**
+     * Check that a rule can be materialised.
+     *
+     * @param rule The {@link Rule}.
+     * @throws IllegalArgumentException if it cannot.
+     */
+    private static void checkRule(final Rule rule) {
+        final Set<Integer> bodyVariables = new HashSet<>();
+        boolean valid = !rule.isBackward() && rule.bodyLength() > 0;
+        for (final ClauseEntry clause : rule.getBody()) {
+            valid &= isPlainPattern(clause);
+            if (clause instanceof TriplePattern pattern) {
+                for (final Node node : List.of(pattern.getSubject(), pattern.getPredicate(), pattern.getObject())) {
+                    if (node instanceof Node_RuleVariable variable) {
+                        bodyVariables.add(variable.getIndex());
+                    }
+                }
+            }
+        }
+        for (final ClauseEntry clause : rule.getHead()) {
+            valid &= isPlainPattern(clause);
+            if (clause instanceof TriplePattern pattern) {
+                for (final Node node : List.of(pattern.getSubject(), pattern.getPredicate(), pattern.getObject())) {
+                    valid &= !(node instanceof Node_RuleVariable variable)
+                            || bodyVariables.contains(variable.getIndex());
+                }
+            }
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Only forward rules of triple patterns can be materialised: " + rule);
+        }
+    }
+
+    /**
+     * Check whether a clause is a triple pattern with no functors.
+     *
+     * @param clause The {@link ClauseEntry}.
+     * @return true if it is.
+     */
+    private static boolean isPlainPattern(final ClauseEntry clause) {
+        return clause instanceof TriplePattern pattern && !Functor.isFunctor(pattern.getSubject())
+                && !Functor.isFunctor(pattern.getPredicate()) && !Functor.isFunctor(pattern.getObject());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+
+/**
+ * Delivers {@link ChangeEvent}s to a listener on its own thread through a bounded ring buffer, so
+ * that a slow listener never holds up the transactions that produce the events.
+ *
+ * <p>
+ * Committing threads claim a slot by advancing the tail with a compare-and-set and then fill it, and
+ * the delivery thread empties the slots in order, so neither side takes a lock. When the buffer is
+ * full a committing thread either waits for a free slot or drops the event, in which case the next
+ * event that is delivered carries the number that were dropped so the listener knows to resynchronise.
+ * </p>
+ *
+ * <p>
+ * An exception thrown by the listener is logged and caught, so one bad event does not stop later
+ * ones.
+ * </p>
+ */
+final class RingBufferSubscription implements ChangeSubscription {
+
+    private static final Logger LOGGER = System.getLogger(RingBufferSubscription.class.getName());
+
+    private static final long PARK_NANOS = 1_000_000L;
+
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Consumer<ChangeEvent> listener;
+    private final boolean dropWhenFull;
+    private final Consumer<RingBufferSubscription> onClose;
+    private final Thread delivery;
+
+    private volatile long head;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a RingBufferSubscription and starts its delivery thread.
+     *
+     * @param listener     Receives the events.
+     * @param capacity     The minimum number of events the buffer can hold, rounded up to a power of
+     *                     two.
+     * @param dropWhenFull true to drop events when the buffer is full, false to make the committing
+     *                     thread wait.
+     * @param onClose      Told when the subscription is closed.
+     */
+    RingBufferSubscription(final Consumer<ChangeEvent> listener, final int capacity, final boolean dropWhenFull,
+            final Consumer<RingBufferSubscription> onClose) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+        this.mask = slots.length() - 1;
+        this.listener = listener;
+        this.dropWhenFull = dropWhenFull;
+        this.onClose = onClose;
+        this.delivery = new Thread(this::deliver, "magma-core-change-listener");
+        this.delivery.setDaemon(true);
+        this.delivery.start();
+    }
+
+    /**
+     * Queue an event for delivery.
+     *
+     * @param event The {@link ChangeEvent}.
+     */
+    void offer(final ChangeEvent event) {
+        while (!closed) {
+            final long claim = tail.get();
+            if (claim - head >= slots.length()) {
+                if (dropWhenFull) {
+                    missed.incrementAndGet();
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+            } else if (tail.compareAndSet(claim, claim + 1)) {
+                final long count = missed.getAndSet(0);
+                slots.set((int) claim & mask, count == 0 ? event
+                        : new ChangeEvent(event.added(), event.removed(), count));
+                LockSupport.unpark(delivery);
+                return;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            onClose.accept(this);
+            LockSupport.unpark(delivery);
+        }
+    }
+
+    /**
+     * Deliver events in order until the subscription is closed and every claimed slot has been
+     * delivered. The thread parks while the next slot is empty, and is unparked when it is filled or
+     * the subscription is closed.
+     */
+    private void deliver() {
+        while (!closed || head < tail.get()) {
+            final int index = (int) head & mask;
+            final ChangeEvent event = slots.get(index);
+            if (event == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            slots.set(index, null);
+            head++;
+            try {
+                listener.accept(event);
+            } catch (final RuntimeException e) {
+                // Keep delivering later events.
+                LOGGER.log(Level.WARNING, "Change listener failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.jena.rdf.model.InfModel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.reasoner.ValidityReport.Report;
+import org.apache.jena.reasoner.rulesys.GenericRuleReasoner;
+import org.apache.jena.reasoner.rulesys.Rule;
+
+import uk.gov.gchq.magmacore.database.validation.ValidationReportEntry;
+import uk.gov.gchq.magmacore.service.dto.InferenceTiming;
+
+/**
+ * Keeps a compiled {@link GenericRuleReasoner} for each rule set that has been applied, so that a
+ * rule set used again is not parsed again.
+ *
+ * <p>
+ * A reasoner holds no state about the data it is bound to, so one reasoner is shared by every call
+ * with the same rules, on any database and thread. Besides the parsed rules, Jena prepares the rules
+ * over an empty graph the first time the reasoner is bound and starts each later binding from that.
+ * The most recently used {@link #MAX_RULE_SETS} rule sets are kept.
+ * </p>
+ */
+final class RuleSetRegistry {
+
+    /** The maximum number of compiled rule sets kept. */
+    static final int MAX_RULE_SETS = 64;
+
+    /** The compiled rule sets by their text, in least-recently-used order. Guarded by the class. */
+    private static final Map<String, GenericRuleReasoner> REASONERS = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, GenericRuleReasoner> eldest) {
+            return size() > MAX_RULE_SETS;
+        }
+    };
+
+    private RuleSetRegistry() {
+    }
+
+    /**
+     * Apply a rule set to a subset of a model, reusing the compiled rules if the rule set has been
+     * applied before. The rules have all been run when the action is called.
+     *
+     * @param <T>    The type of the result.
+     * @param subset Extracts the subset of the model to apply the rules to.
+     * @param rules  The rule set.
+     * @param action Produces the result from the {@link InfModel}.
+     * @param timing Told how long each phase took, or null.
+     * @return The result of the action.
+     */
+    static <T> T infer(final Supplier<Model> subset, final String rules, final Function<InfModel, T> action,
+            final Consumer<InferenceTiming> timing) {
+        final long start = System.nanoTime();
+        final boolean cached;
+        final GenericRuleReasoner reasoner;
+        synchronized (RuleSetRegistry.class) {
+            final GenericRuleReasoner existing = REASONERS.get(rules);
+            cached = existing != null;
+            reasoner = cached ? existing : new GenericRuleReasoner(Rule.parseRules(rules));
+            REASONERS.putIfAbsent(rules, reasoner);
+        }
+        final long parsed = System.nanoTime();
+
+        final Model model = subset.get();
+        final long extracted = System.nanoTime();
+
+        final InfModel infModel = ModelFactory.createInfModel(reasoner, model);
+        infModel.prepare();
+        final T result = action.apply(infModel);
+        final long inferred = System.nanoTime();
+
+        if (timing != null) {
+            timing.accept(new InferenceTiming(
+                    TimeUnit.NANOSECONDS.toMillis(parsed - start),
+                    TimeUnit.NANOSECONDS.toMillis(extracted - parsed),
+                    TimeUnit.NANOSECONDS.toMillis(inferred - extracted),
+                    cached));
+        }
+        return result;
+    }
+
+    /**
+     * Validate an {@link InfModel} and convert the result to be non-Jena-specific.
+     *
+     * @param model The {@link InfModel}.
+     * @return A {@link List} of {@link ValidationReportEntry} objects.
+     */
+    static List<ValidationReportEntry> validate(final InfModel model) {
+        final List<ValidationReportEntry> entries = new ArrayList<>();
+        final Iterator<Report> reports = model.validate().getReports();
+
+        while (reports.hasNext()) {
+            final Report report = reports.next();
+
+            entries.add(new ValidationReportEntry(
+                    report.getType(),
+                    report.getExtension(),
+                    report.getDescription()));
+        }
+
+        return entries;
+    }
+}
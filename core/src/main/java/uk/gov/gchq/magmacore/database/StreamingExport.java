@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+
+/**
+ * Writes triples to an {@link OutputStream} as they are produced, in an RDF language that can be
+ * written without first collecting the data, such as N-Triples, N-Quads or RDF Thrift.
+ */
+final class StreamingExport {
+
+    private StreamingExport() {
+    }
+
+    /**
+     * Write the triples produced by a source to an {@link OutputStream}.
+     *
+     * @param out      The {@link OutputStream} to write to. It is flushed but not closed.
+     * @param language The RDF language to write.
+     * @param gzip     true to gzip-compress the output.
+     * @param source   Sends its triples to the {@link StreamRDF} it is given.
+     * @throws IllegalArgumentException if the language cannot be written as a stream.
+     */
+    static void write(final OutputStream out, final Lang language, final boolean gzip,
+            final Consumer<StreamRDF> source) {
+        if (!StreamRDFWriter.canWriteStream(language)) {
+            throw new IllegalArgumentException("Cannot stream RDF as " + language.getName());
+        }
+        try {
+            final GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out) : null;
+            final StreamRDF writer = StreamRDFWriter.getWriterStream(gzip ? compressed : out, language);
+            writer.start();
+            source.accept(writer);
+            writer.finish();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            out.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.util.Pair;
+
+/**
+ * The triples to delete and to create to make the stored state of a subject match a {@link Thing}.
+ *
+ * <p>
+ * Stored values are compared with the values of the {@link Thing} in the form they take when a
+ * {@link Thing} is read from the database, so a stored literal whose value has not changed is kept as
+ * it is, including its datatype, rather than being rewritten as a string.
+ * </p>
+ *
+ * @param deletes The stored {@link Triple}s that the {@link Thing} no longer has.
+ * @param creates The {@link Triple}s of the {@link Thing} that are not stored.
+ */
+record ThingDelta(List<Triple> deletes, List<Triple> creates) {
+
+    /**
+     * A predicate and value in the form held by a {@link Thing}.
+     *
+     * @param predicate The predicate {@link IRI}.
+     * @param value     An {@link IRI} or a {@link String}.
+     */
+    private record Value(IRI predicate, Object value) {
+    }
+
+    /**
+     * Compare the stored triples of a subject with a {@link Thing}.
+     *
+     * @param model  A {@link Model} used to convert stored nodes to the form held by a {@link Thing}.
+     * @param thing  The {@link Thing} as it should be stored.
+     * @param stored The {@link Triple}s currently stored with the {@link Thing} as their subject.
+     * @return {@link ThingDelta}
+     */
+    static ThingDelta of(final Model model, final Thing thing, final Collection<Triple> stored) {
+        final Map<Value, List<Triple>> storedValues = new HashMap<>();
+        for (final Triple triple : stored) {
+            final Pair<IRI, Object> pair = ThingIterator.toPair(model.asRDFNode(triple.getPredicate()),
+                    model.asRDFNode(triple.getObject()));
+            storedValues.computeIfAbsent(new Value(pair.getLeft(), pair.getRight()), k -> new ArrayList<>())
+                    .add(triple);
+        }
+
+        final Node subject = NodeFactory.createURI(thing.getId().getIri());
+        final List<Triple> creates = new ArrayList<>();
+        thing.getPredicates().forEach((predicate, values) -> values.forEach(value -> {
+            final Value key = new Value(predicate, value instanceof IRI ? value : value.toString());
+            if (storedValues.remove(key) == null) {
+                creates.add(toTriple(subject, predicate, value));
+            }
+        }));
+
+        final List<Triple> deletes = new ArrayList<>();
+        storedValues.values().forEach(deletes::addAll);
+        return new ThingDelta(deletes, creates);
+    }
+
+    /**
+     * Create a {@link Triple} in the form written by the create methods of the databases, with an
+     * {@link IRI} object or a string literal object.
+     *
+     * @param subject   The subject {@link Node}.
+     * @param predicate The predicate {@link IRI}.
+     * @param value     The object, either an {@link IRI} or a value stored as a string.
+     * @return {@link Triple}
+     */
+    static Triple toTriple(final Node subject, final IRI predicate, final Object value) {
+        final Node object = value instanceof IRI
+                ? NodeFactory.createURI(value.toString())
+                : NodeFactory.createLiteralString(value.toString());
+        return Triple.create(subject, NodeFactory.createURI(predicate.getIri()), object);
+    }
+
+    /**
+     * Check whether the stored state already matches the {@link Thing}.
+     *
+     * @return true if there is nothing to delete or create.
+     */
+    boolean isEmpty() {
+        return deletes.isEmpty() && creates.isEmpty();
+    }
+}
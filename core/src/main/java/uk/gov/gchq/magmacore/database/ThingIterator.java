@@ -0,0 +1,239 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import uk.gov.gchq.magmacore.database.query.QueryResult;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.HqdmObjectFactory;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.util.Pair;
+
+/**
+ * An {@link Iterator} of {@link Thing} objects over a subject-ordered {@link ResultSet}.
+ *
+ * <p>
+ * The first three result variables are taken to be the subject, predicate and object. Consecutive rows
+ * with the same subject are grouped and converted to a {@link Thing} as soon as the next subject is seen,
+ * so only one entity is held in memory at a time.
+ * </p>
+ */
+final class ThingIterator implements Iterator<Thing> {
+
+    /** Query to read every triple of the default graph sorted by subject. */
+    static final String TRIPLES_BY_SUBJECT = "SELECT ?s ?p ?o WHERE { ?s ?p ?o } ORDER BY ?s";
+
+    private final ResultSet resultSet;
+    private final String subjectVarName;
+    private final String predicateVarName;
+    private final String objectVarName;
+
+    /** The first row of the next subject, already read from the {@link ResultSet}. */
+    private QuerySolution pending;
+
+    /**
+     * Constructs a ThingIterator over a {@link ResultSet}.
+     *
+     * @param resultSet A {@link ResultSet} ordered by its first variable.
+     */
+    ThingIterator(final ResultSet resultSet) {
+        this.resultSet = resultSet;
+        final List<String> varNames = resultSet.getResultVars();
+        this.subjectVarName = varNames.get(0);
+        this.predicateVarName = varNames.get(1);
+        this.objectVarName = varNames.get(2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return pending != null || resultSet.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Thing next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        QuerySolution row = pending != null ? pending : resultSet.next();
+        pending = null;
+
+        final RDFNode subject = row.get(subjectVarName);
+        final List<Pair<IRI, Object>> pairs = new ArrayList<>();
+        pairs.add(toPair(row.get(predicateVarName), row.get(objectVarName)));
+
+        while (resultSet.hasNext()) {
+            row = resultSet.next();
+            if (!subject.equals(row.get(subjectVarName))) {
+                pending = row;
+                break;
+            }
+            pairs.add(toPair(row.get(predicateVarName), row.get(objectVarName)));
+        }
+        return HqdmObjectFactory.create(new IRI(subject.toString()), pairs);
+    }
+
+    /**
+     * Convert a predicate and object into the form used to populate a {@link Thing}.
+     *
+     * @param predicateValue The predicate {@link RDFNode}.
+     * @param objectValue    The object {@link RDFNode}.
+     * @return A {@link Pair} of the predicate {@link IRI} and the object value.
+     */
+    static Pair<IRI, Object> toPair(final RDFNode predicateValue, final RDFNode objectValue) {
+        if (objectValue instanceof Literal) {
+            return new Pair<>(IRI.of(predicateValue.toString()), objectValue.toString());
+        } else if (objectValue instanceof Resource) {
+            return new Pair<>(IRI.of(predicateValue.toString()), IRI.of(objectValue.toString()));
+        } else {
+            throw new RuntimeException("objectValue is of unknown type: " + objectValue.getClass());
+        }
+    }
+
+    /**
+     * Make the first result variable of a SELECT query its first sort key, so that the rows for each
+     * subject are contiguous. Any existing ORDER BY conditions are kept after it, so they order the rows
+     * within each subject.
+     *
+     * @param query The SELECT {@link Query}.
+     * @return The same {@link Query}.
+     */
+    static Query orderBySubject(final Query query) {
+        final String subject = query.getResultVars().get(0);
+        if (!query.hasOrderBy()) {
+            query.addOrderBy(Var.alloc(subject), Query.ORDER_DEFAULT);
+            return query;
+        }
+        final List<SortCondition> conditions = query.getOrderBy();
+        if (!isVariable(conditions.get(0), subject)) {
+            conditions.removeIf(condition -> isVariable(condition, subject));
+            conditions.add(0, new SortCondition(Var.alloc(subject), Query.ORDER_DEFAULT));
+        }
+        return query;
+    }
+
+    /**
+     * Check whether a sort condition sorts on a variable.
+     *
+     * @param condition The {@link SortCondition}.
+     * @param varName   The name of the variable.
+     * @return true if the condition sorts on the variable alone.
+     */
+    private static boolean isVariable(final SortCondition condition, final String varName) {
+        return condition.getExpression().isVariable() && condition.getExpression().getVarName().equals(varName);
+    }
+
+    /**
+     * Create a {@link Stream} of {@link Thing} objects from a SELECT query execution. Closing the stream
+     * closes the {@link QueryExecution}.
+     *
+     * @param queryExec A {@link QueryExecution} for a subject-ordered SELECT query.
+     * @return A {@link Stream} of {@link Thing}.
+     */
+    static Stream<Thing> stream(final QueryExecution queryExec) {
+        try {
+            final Iterator<Thing> iterator = new ThingIterator(queryExec.execSelect());
+            return StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                            false)
+                    .onClose(queryExec::close);
+        } catch (final RuntimeException e) {
+            queryExec.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a {@link Stream} of the rows of a SELECT query execution, in the order they are read.
+     * Closing the stream closes the {@link QueryExecution}.
+     *
+     * @param queryExec A {@link QueryExecution} for a SELECT query.
+     * @return A {@link Stream} of {@link QueryResult}.
+     */
+    static Stream<QueryResult> rows(final QueryExecution queryExec) {
+        try {
+            final ResultSet resultSet = queryExec.execSelect();
+            final List<String> varNames = resultSet.getResultVars();
+            final Iterator<QueryResult> iterator = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return resultSet.hasNext();
+                }
+
+                @Override
+                public QueryResult next() {
+                    final QuerySolution row = resultSet.next();
+                    final QueryResult queryResult = new QueryResult();
+                    varNames.forEach(varName -> queryResult.set(varName, row.get(varName)));
+                    return queryResult;
+                }
+            };
+            return StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                            false)
+                    .onClose(queryExec::close);
+        } catch (final RuntimeException e) {
+            queryExec.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a {@link Stream} of triples read from a graph as rows binding {@code s}, {@code p} and
+     * {@code o}, in the order they are read. Closing the stream closes the iterator.
+     *
+     * @param model   The {@link Model} of the graph, to make the {@link RDFNode}s.
+     * @param triples An {@link ExtendedIterator} of the {@link Triple}s.
+     * @return A {@link Stream} of {@link QueryResult}.
+     */
+    static Stream<QueryResult> rows(final Model model, final ExtendedIterator<Triple> triples) {
+        final Iterator<QueryResult> iterator = triples.mapWith(triple -> {
+            final QueryResult queryResult = new QueryResult();
+            queryResult.set("s", model.asRDFNode(triple.getSubject()));
+            queryResult.set("p", model.asRDFNode(triple.getPredicate()));
+            queryResult.set("o", model.asRDFNode(triple.getObject()));
+            return queryResult;
+        });
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(triples::close);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.modify.request.QuadDataAcc;
+import org.apache.jena.sparql.modify.request.UpdateDataDelete;
+import org.apache.jena.sparql.modify.request.UpdateDataInsert;
+import org.apache.jena.update.Update;
+import org.apache.jena.update.UpdateFactory;
+import org.apache.jena.update.UpdateRequest;
+
+/**
+ * Collects the writes of a transaction and sends them as one SPARQL update request, so that a
+ * transaction that creates many objects does not need a round trip for each one.
+ *
+ * <p>
+ * The writes are kept in the order they were made. Consecutive inserts are combined into one INSERT
+ * DATA operation and consecutive deletes into one DELETE DATA operation, and all the operations are
+ * sent together when the buffer is flushed. The buffer flushes itself when it holds a given number of
+ * triples or when its oldest write reaches a given age, which is checked as each write is added.
+ * </p>
+ *
+ * <p>
+ * If a flush fails, the failure is kept and the writes that follow it are discarded. The failure is
+ * rethrown by the next call to {@link #flush()}, which the database makes before every read and when
+ * the transaction commits.
+ * </p>
+ */
+final class WriteBehindBuffer {
+
+    private final int maxTriples;
+    private final long maxDelayMillis;
+    private final Consumer<UpdateRequest> sender;
+    private final List<Update> operations = new ArrayList<>();
+
+    private QuadDataAcc data;
+    private boolean dataIsInsert;
+    private int triples;
+    private long oldest;
+    private RuntimeException failure;
+
+    /**
+     * Constructs a WriteBehindBuffer.
+     *
+     * @param maxTriples     The number of buffered triples that causes a flush.
+     * @param maxDelayMillis The age of the oldest buffered write that causes a flush, in milliseconds.
+     * @param sender         Sends an {@link UpdateRequest} to the database.
+     */
+    WriteBehindBuffer(final int maxTriples, final long maxDelayMillis, final Consumer<UpdateRequest> sender) {
+        this.maxTriples = maxTriples;
+        this.maxDelayMillis = maxDelayMillis;
+        this.sender = sender;
+    }
+
+    /**
+     * Buffer the insertion of some triples into the default graph.
+     *
+     * @param inserts The {@link Triple}s to insert.
+     */
+    void insert(final Collection<Triple> inserts) {
+        addData(inserts, true);
+    }
+
+    /**
+     * Buffer the deletion of some triples from the default graph.
+     *
+     * @param deletes The {@link Triple}s to delete.
+     */
+    void delete(final Collection<Triple> deletes) {
+        addData(deletes, false);
+    }
+
+    /**
+     * Buffer a SPARQL update.
+     *
+     * @param statement The SPARQL update {@link String}.
+     */
+    void update(final String statement) {
+        if (failure != null) {
+            return;
+        }
+        closeData();
+        final UpdateRequest request = UpdateFactory.create(statement);
+        if (operations.isEmpty()) {
+            oldest = System.currentTimeMillis();
+        }
+        operations.addAll(request.getOperations());
+        triples++;
+        flushIfFull();
+    }
+
+    /**
+     * Send all the buffered writes.
+     *
+     * @throws RuntimeException the failure of an earlier flush, or of this one.
+     */
+    void flush() {
+        if (failure != null) {
+            final RuntimeException e = failure;
+            clear();
+            throw e;
+        }
+        closeData();
+        if (operations.isEmpty()) {
+            return;
+        }
+        final UpdateRequest request = new UpdateRequest();
+        operations.forEach(request::add);
+        clear();
+        sender.accept(request);
+    }
+
+    /**
+     * Discard all the buffered writes and any failure.
+     */
+    void clear() {
+        operations.clear();
+        data = null;
+        triples = 0;
+        failure = null;
+    }
+
+    /**
+     * Add triples to the current INSERT DATA or DELETE DATA operation, starting a new one if the last
+     * operation was of a different kind.
+     *
+     * @param added  The {@link Triple}s.
+     * @param insert true to insert them, false to delete them.
+     */
+    private void addData(final Collection<Triple> added, final boolean insert) {
+        if (failure != null || added.isEmpty()) {
+            return;
+        }
+        if (data != null && dataIsInsert != insert) {
+            closeData();
+        }
+        if (data == null) {
+            if (operations.isEmpty()) {
+                oldest = System.currentTimeMillis();
+            }
+            data = new QuadDataAcc();
+            dataIsInsert = insert;
+        }
+        added.forEach(triple -> data.addQuad(new Quad(Quad.defaultGraphIRI, triple)));
+        triples += added.size();
+        flushIfFull();
+    }
+
+    /**
+     * Finish the current INSERT DATA or DELETE DATA operation.
+     */
+    private void closeData() {
+        if (data != null) {
+            operations.add(dataIsInsert ? new UpdateDataInsert(data) : new UpdateDataDelete(data));
+            data = null;
+        }
+    }
+
+    /**
+     * Flush if the size or age threshold has been reached, keeping any failure for later.
+     */
+    private void flushIfFull() {
+        if (triples >= maxTriples || System.currentTimeMillis() - oldest >= maxDelayMillis) {
+            try {
+                flush();
+            } catch (final RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+}
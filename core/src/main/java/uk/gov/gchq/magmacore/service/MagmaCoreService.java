@@ -15,20 +15,29 @@
 package uk.gov.gchq.magmacore.service;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.riot.Lang;
 
+import uk.gov.gchq.magmacore.database.CachingMagmaCoreDatabase;
 import uk.gov.gchq.magmacore.database.MagmaCoreDatabase;
+import uk.gov.gchq.magmacore.database.MagmaCoreJenaDatabase;
 import uk.gov.gchq.magmacore.database.query.QueryResult;
 import uk.gov.gchq.magmacore.database.query.QueryResultList;
 import uk.gov.gchq.magmacore.database.validation.ValidationReportEntry;
@@ -44,14 +53,25 @@ import uk.gov.gchq.magmacore.hqdm.model.Role;
 import uk.gov.gchq.magmacore.hqdm.model.Thing;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.service.dto.CacheStatistics;
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+import uk.gov.gchq.magmacore.service.dto.InferenceTiming;
+import uk.gov.gchq.magmacore.service.dto.IntegrityReport;
+import uk.gov.gchq.magmacore.service.dto.LoadProgress;
 import uk.gov.gchq.magmacore.service.dto.ParticipantDetails;
+import uk.gov.gchq.magmacore.service.dto.PartitionedValidationReport;
 import uk.gov.gchq.magmacore.service.dto.SignPatternDto;
+import uk.gov.gchq.magmacore.service.dto.ValidationPartitioning;
 import uk.gov.gchq.magmacore.service.sparql.MagmaCoreServiceQueries;
+import uk.gov.gchq.magmacore.service.sparql.PreparedQueries;
+import uk.gov.gchq.magmacore.service.transformation.DbChangeJournal;
 import uk.gov.gchq.magmacore.service.transformation.DbChangeSet;
 import uk.gov.gchq.magmacore.service.transformation.DbCreateOperation;
 import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
 import uk.gov.gchq.magmacore.service.transformation.DbTransformation;
 import uk.gov.gchq.magmacore.service.verify.DataIntegrityReport;
+import uk.gov.gchq.magmacore.service.verify.PartitionedValidator;
 
 /**
  * Service for interacting with a {@link MagmaCoreDatabase}.
@@ -77,6 +97,13 @@ public class MagmaCoreService {
 
     private final MagmaCoreDatabase database;
 
+    private final TemporalIndex temporalIndex = new TemporalIndex();
+
+    /** The change sets of the write transaction of the current thread, or null if it is not in one. */
+    private final ThreadLocal<List<DbChangeSet>> writeTransaction = new ThreadLocal<>();
+
+    private DbChangeJournal journal;
+
     /**
      * Constructs a MagmaCoreService for a {@link MagmaCoreDatabase}.
      *
@@ -103,16 +130,25 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTime.oneValue(HQDM.ENTITY_NAME));
 
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_PARTICIPANT_DETAILS_QUERY, individual1.getId(),
-                        individual2.getId(),
-                        kind.getId(), individual1.getId(), individual2.getId(), kind.getId()));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("ind1", PreparedQueries.iri(individual1.getId()));
+        bindings.add("ind2", PreparedQueries.iri(individual2.getId()));
+        bindings.add("kind", PreparedQueries.iri(kind.getId()));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_PARTICIPANT_DETAILS_QUERY, bindings);
 
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final List<Thing> participants = database.toTopObjects(queryResultList);
+
+        // Get the Roles of all of the Participants in one request.
+        final Map<IRI, Thing> roleThings = database.getAll(participants
+                .stream()
+                .flatMap(p -> p.values(HQDM.MEMBER_OF_KIND).stream())
+                .map(o -> (IRI) o)
+                .collect(Collectors.toSet()));
 
         // Process all of the participants.
-        return database.toTopObjects(queryResults)
+        return participants
                 .stream()
                 // Map them to ParticipantDetails objects.
                 .map(p -> {
@@ -120,7 +156,7 @@ public class MagmaCoreService {
                     final Set<Role> roles = p.values(HQDM.MEMBER_OF_KIND)
                             .stream()
                             .map(o -> (IRI) o)
-                            .map(roleIri -> database.get(roleIri))
+                            .map(roleThings::get)
                             .map(role -> (Role) role)
                             .collect(Collectors.toSet());
                     return new ParticipantDetails((Participant) p, roles);
@@ -129,30 +165,14 @@ public class MagmaCoreService {
     }
 
     /**
-     * Filter a {@link QueryResultList} by a {@link PointInTime}. The
-     * {@link QueryResultList} should
-     * have `start` and `finish` columns to allow filtering.
+     * Execute one of the {@link MagmaCoreServiceQueries}, parsing it only the first time it is used.
      *
-     * @param when            {@link Instant}.
-     * @param queryResultList {@link QueryResultList}.
+     * @param sparqlQueryString The SPARQL query {@link String}.
+     * @param bindings          The values of the variables that parameterise the query.
      * @return {@link QueryResultList}.
      */
-    private QueryResultList filterByPointInTime(final Instant when, final QueryResultList queryResultList) {
-        final List<QueryResult> queryResults = queryResultList.getQueryResults()
-                .stream()
-                .filter(qr -> {
-                    final RDFNode start = qr.get("start");
-                    final RDFNode finish = qr.get("finish");
-                    final Instant from = (start != null) ? Instant.parse(start.toString())
-                            : Instant.MIN;
-                    final Instant to = (finish != null) ? Instant.parse(finish.toString())
-                            : Instant.MAX;
-
-                    return (when.equals(from) || when.isAfter(from))
-                            && (when.equals(to) || when.isBefore(to));
-                })
-                .collect(Collectors.toList());
-        return new QueryResultList(queryResultList.getVarNames(), queryResults);
+    private QueryResultList executePrepared(final String sparqlQueryString, final QuerySolution bindings) {
+        return database.executeQuery(PreparedQueries.get(sparqlQueryString), bindings);
     }
 
     /**
@@ -187,16 +207,15 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_BY_SIGN_VALUE_QUERY,
-                        value,
-                        community.getId(),
-                        pattern.getId()));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("signvalue", PreparedQueries.literal(value));
+        bindings.add("rlc", PreparedQueries.iri(community.getId()));
+        bindings.add("pattern", PreparedQueries.iri(pattern.getId()));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_BY_SIGN_VALUE_QUERY, bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
     }
 
     /**
@@ -232,16 +251,15 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_BY_PARTIAL_SIGN_VALUE_CASE_INSENSITIVE_QUERY,
-                        value,
-                        community.getId(),
-                        pattern.getId()));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("text", PreparedQueries.literal(value));
+        bindings.add("rlc", PreparedQueries.iri(community.getId()));
+        bindings.add("pattern", PreparedQueries.iri(pattern.getId()));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_BY_PARTIAL_SIGN_VALUE_CASE_INSENSITIVE_QUERY, bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
     }
 
     /**
@@ -267,14 +285,15 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_OBJECTS_BY_TYPE_CLASS_AND_SIGN_PATTERN,
-                        type, clazz, pattern, type, clazz, pattern));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("type", PreparedQueries.iri(type));
+        bindings.add("kind", PreparedQueries.iri(clazz));
+        bindings.add("pattern", PreparedQueries.iri(pattern));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_OBJECTS_BY_TYPE_CLASS_AND_SIGN_PATTERN, bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
     }
 
     /**
@@ -300,14 +319,15 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_OBJECTS_BY_TYPE_AND_SIGN_PATTERN,
-                        type, kind, pattern, type, kind, pattern));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("type", PreparedQueries.iri(type));
+        bindings.add("kind", PreparedQueries.iri(kind));
+        bindings.add("pattern", PreparedQueries.iri(pattern));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_OBJECTS_BY_TYPE_AND_SIGN_PATTERN, bindings);
 
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
-
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
     }
 
     /**
@@ -326,16 +346,12 @@ public class MagmaCoreService {
             return List.of();
         }
 
-        final Instant when = Instant.parse(pointInTimeValue);
-
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_BY_KIND_OF_ASSOCIATION,
-                        kindOfAssociation, kindOfAssociation, kindOfAssociation));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("kind_of_association", PreparedQueries.iri(kindOfAssociation));
+        final QueryResultList queryResultList = executePrepared(MagmaCoreServiceQueries.FIND_BY_KIND_OF_ASSOCIATION,
+                bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -348,11 +364,10 @@ public class MagmaCoreService {
      */
     public List<? extends Thing> findAssociated(final IRI item, final IRI kindOfAssociation) {
 
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_ASSOCIATED,
-                        kindOfAssociation, item, item,
-                        kindOfAssociation, item, item,
-                        kindOfAssociation, item, item));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("kind_of_association", PreparedQueries.iri(kindOfAssociation));
+        bindings.add("item", PreparedQueries.iri(item));
+        final QueryResultList queryResultList = executePrepared(MagmaCoreServiceQueries.FIND_ASSOCIATED, bindings);
 
         return database.toTopObjects(queryResultList);
 
@@ -377,14 +392,13 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database
-                .executeQuery(String.format(MagmaCoreServiceQueries.FIND_ASSOCIATED,
-                        kindOfAssociation, item, item,
-                        kindOfAssociation, item, item,
-                        kindOfAssociation, item, item));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("kind_of_association", PreparedQueries.iri(kindOfAssociation));
+        bindings.add("item", PreparedQueries.iri(item));
+        final QueryResultList queryResultList = executePrepared(MagmaCoreServiceQueries.FIND_ASSOCIATED, bindings);
 
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -408,17 +422,14 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database
-                .executeQuery(
-                        String.format(MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_PARTIAL_SIGN_CASE_SENSITIVE,
-                                text, classIri,
-                                text, classIri,
-                                text, classIri));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("text", PreparedQueries.literal(text));
+        bindings.add("class", PreparedQueries.iri(classIri));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_PARTIAL_SIGN_CASE_SENSITIVE, bindings);
 
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
-
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -442,17 +453,14 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database
-                .executeQuery(
-                        String.format(MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_PARTIAL_SIGN_CASE_INSENSITIVE,
-                                text, classIri,
-                                text, classIri,
-                                text, classIri));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("text", PreparedQueries.literal(text));
+        bindings.add("class", PreparedQueries.iri(classIri));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_PARTIAL_SIGN_CASE_INSENSITIVE, bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -479,16 +487,15 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database.executeQuery(String.format(
-                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_INSENSITIVE,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("text", PreparedQueries.literal(text));
+        bindings.add("class", PreparedQueries.iri(classIri));
+        bindings.add("topicId", PreparedQueries.iri(wholeIri));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_INSENSITIVE, bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -515,16 +522,15 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database.executeQuery(String.format(
-                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_SENSITIVE,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("text", PreparedQueries.literal(text));
+        bindings.add("class", PreparedQueries.iri(classIri));
+        bindings.add("topicId", PreparedQueries.iri(wholeIri));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_SENSITIVE, bindings);
 
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
-
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -551,16 +557,15 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database.executeQuery(String.format(
-                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_COMPOSITION_AND_PARTIAL_SIGN_CASE_SENSITIVE,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("text", PreparedQueries.literal(text));
+        bindings.add("class", PreparedQueries.iri(classIri));
+        bindings.add("topicId", PreparedQueries.iri(wholeIri));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_COMPOSITION_AND_PARTIAL_SIGN_CASE_SENSITIVE, bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -587,16 +592,16 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database.executeQuery(String.format(
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("text", PreparedQueries.literal(text));
+        bindings.add("class", PreparedQueries.iri(classIri));
+        bindings.add("topicId", PreparedQueries.iri(wholeIri));
+        final QueryResultList queryResultList = executePrepared(
                 MagmaCoreServiceQueries.FIND_MEMBERS_OF_CLASS_BY_COMPOSITION_AND_PARTIAL_SIGN_CASE_INSENSITIVE,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri,
-                text, classIri, wholeIri));
-
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
+                bindings);
 
-        return database.toTopObjects(queryResults);
+        return database.toTopObjects(queryResultList);
 
     }
 
@@ -616,12 +621,13 @@ public class MagmaCoreService {
 
         final Instant when = Instant.parse(pointInTimeValue);
 
-        final QueryResultList queryResultList = database.executeQuery(String.format(
-                MagmaCoreServiceQueries.FIND_SIGNS_FOR_ENTITY, entityIri));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("when", PreparedQueries.dateTime(when));
+        bindings.add("s", PreparedQueries.iri(entityIri));
+        final QueryResultList queryResultList = executePrepared(MagmaCoreServiceQueries.FIND_SIGNS_FOR_ENTITY,
+                bindings);
 
-        // Filter by the pointInTime
-        final QueryResultList queryResults = filterByPointInTime(when, queryResultList);
-        return queryResults.getQueryResults()
+        return queryResultList.getQueryResults()
                 .stream()
                 .map(MagmaCoreService::toSignPatternDto)
                 .collect(Collectors.toList());
@@ -642,8 +648,11 @@ public class MagmaCoreService {
             final Object fieldValue,
             final IRI classIri) {
 
-        final QueryResultList queryResultList = database.executeQuery(String.format(
-                MagmaCoreServiceQueries.FIND_BY_FIELD_VALUE_AND_CLASS, fieldIri, fieldValue, classIri));
+        final QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("part", PreparedQueries.iri(fieldIri));
+        bindings.add("partThing", PreparedQueries.iri(fieldValue));
+        final QueryResultList queryResultList = executePrepared(
+                MagmaCoreServiceQueries.FIND_BY_FIELD_VALUE_AND_CLASS, bindings);
 
         return database.toTopObjects(queryResultList);
     }
@@ -714,6 +723,37 @@ public class MagmaCoreService {
         return database.findByPredicateIri(HQDM.MEMBER_OF, classIri);
     }
 
+    /**
+     * Stream the members of a given class one at a time, without holding the full result in memory.
+     * The {@link Stream} must be consumed inside a transaction and closed when finished with.
+     *
+     * @param classIri The class {@link IRI}.
+     * @return A {@link Stream} of {@link Thing}.
+     */
+    public Stream<Thing> streamByClass(final IRI classIri) {
+        return database.streamQuery("SELECT ?s ?p ?o WHERE {?s ?p ?o. ?s <" + HQDM.MEMBER_OF.getIri() + "> <"
+                + classIri.getIri() + ">.} ORDER BY ?s");
+    }
+
+    /**
+     * Find the entities whose beginning is not after, and whose ending is not before, an
+     * {@link Instant}. Entities with no beginning or no ending are treated as open on that side, and
+     * entities with neither are not returned.
+     *
+     * <p>
+     * This is answered from an in-memory index of the beginning and ending events, which is built the
+     * first time it is used and kept up to date with the writes made through this service. Changes made
+     * to the database by other means are only seen after {@link #importTtl(InputStream)} or
+     * {@link #loadTtl(InputStream)}.
+     * </p>
+     *
+     * @param when The {@link Instant} of interest.
+     * @return A {@link List} of the {@link Thing} objects that exist at that time.
+     */
+    public List<Thing> findActiveAt(final Instant when) {
+        return new ArrayList<>(database.getAll(temporalIndex.activeAt(database, when)).values());
+    }
+
     /**
      * Create a new {@link Thing} in the database.
      *
@@ -721,6 +761,7 @@ public class MagmaCoreService {
      */
     public void create(final Thing thing) {
         database.create(thing);
+        temporalIndex.written(List.of(thing.getId()));
     }
 
     /**
@@ -730,6 +771,7 @@ public class MagmaCoreService {
      */
     void delete(final Thing object) {
         database.delete(object);
+        temporalIndex.written(List.of(object.getId()));
     }
 
     /**
@@ -739,6 +781,8 @@ public class MagmaCoreService {
      */
     void delete(final List<DbDeleteOperation> deletes) {
         database.delete(deletes);
+        temporalIndex.written(deletes.stream().map(d -> d.subject).toList());
+        journalChanges(deletes, List.of());
     }
 
     /**
@@ -756,6 +800,75 @@ public class MagmaCoreService {
                 .toList());
     }
 
+    /**
+     * Create a {@link DbChangeSet} holding only the deletes and creates needed to store the current
+     * values of some {@link Thing} objects. The changes of a {@link Thing} that tracks its changes are
+     * taken from its record of added and removed values. Any other {@link Thing} is compared with its
+     * stored state, so this must then be called in a transaction.
+     *
+     * <p>
+     * The {@link DbChangeSet} can be inverted exactly with {@link DbChangeSet#invert(DbChangeSet)}.
+     * Call {@link Thing#trackChanges()} again once it has been applied to start a new record.
+     * </p>
+     *
+     * @param things a {@link Collection} of modified {@link Thing} objects.
+     * @return {@link DbChangeSet}
+     */
+    public DbChangeSet createDbChangeSet(final Collection<? extends Thing> things) {
+        final List<IRI> untracked = things.stream()
+                .filter(thing -> !thing.tracksChanges())
+                .map(Thing::getId)
+                .toList();
+        final Map<IRI, Thing> stored = untracked.isEmpty() ? Map.of() : database.getAll(untracked);
+
+        final List<DbDeleteOperation> deletes = new ArrayList<>();
+        final List<DbCreateOperation> creates = new ArrayList<>();
+        for (final Thing thing : things) {
+            final IRI iri = thing.getId();
+            final Map<IRI, Set<Object>> removed;
+            final Map<IRI, Set<Object>> added;
+            if (thing.tracksChanges()) {
+                removed = thing.removedValues();
+                added = thing.addedValues();
+            } else {
+                final Thing storedThing = stored.get(iri);
+                final Map<IRI, Set<Object>> storedValues = storedThing == null ? Map.of()
+                        : storedThing.getPredicates();
+                removed = difference(storedValues, thing.getPredicates());
+                added = difference(thing.getPredicates(), storedValues);
+            }
+            removed.forEach((predicate, values) -> values
+                    .forEach(value -> deletes.add(new DbDeleteOperation(iri, predicate, value))));
+            added.forEach((predicate, values) -> values
+                    .forEach(value -> creates.add(new DbCreateOperation(iri, predicate, value))));
+        }
+        return new DbChangeSet(deletes, creates);
+    }
+
+    /**
+     * Find the predicate values in one map that are not in another, comparing values that are not
+     * {@link IRI}s by their string form as that is how they are stored.
+     *
+     * @param values a {@link Map} of predicate values.
+     * @param others a {@link Map} of predicate values to leave out.
+     * @return a {@link Map} of the values in {@code values} that are not in {@code others}.
+     */
+    private static Map<IRI, Set<Object>> difference(final Map<IRI, Set<Object>> values,
+            final Map<IRI, Set<Object>> others) {
+        final Map<IRI, Set<Object>> result = new HashMap<>();
+        values.forEach((predicate, set) -> {
+            final Set<Object> otherValues = others.getOrDefault(predicate, Set.of()).stream()
+                    .map(value -> value instanceof IRI ? value : value.toString())
+                    .collect(Collectors.toSet());
+            set.forEach(value -> {
+                if (!otherValues.contains(value instanceof IRI ? value : value.toString())) {
+                    result.computeIfAbsent(predicate, k -> new HashSet<>()).add(value);
+                }
+            });
+        });
+        return result;
+    }
+
     /**
      * Convert a {@link Thing} to a {@link DbChangeSet} by creating a
      * {@link DbCreateOperation} for each
@@ -788,6 +901,7 @@ public class MagmaCoreService {
      */
     public void update(final Thing thing) {
         database.update(thing);
+        temporalIndex.written(List.of(thing.getId()));
     }
 
     /**
@@ -799,6 +913,81 @@ public class MagmaCoreService {
     public void update(final List<DbDeleteOperation> deletes, final List<DbCreateOperation> creates) {
         database.delete(deletes);
         database.create(creates);
+        temporalIndex.written(deletes.stream().map(d -> d.subject).toList());
+        temporalIndex.written(creates.stream().map(c -> c.subject).toList());
+        journalChanges(deletes, creates);
+    }
+
+    /**
+     * Subscribe to the net triples added and removed by each committed write transaction, so that
+     * indexes, caches and replicas can be kept up to date without rescanning the database. Events are
+     * delivered in commit order on a thread belonging to the subscription.
+     *
+     * @param listener     Receives the {@link ChangeEvent}s.
+     * @param capacity     The number of events that can be waiting for the listener.
+     * @param dropWhenFull true to drop events when the listener falls behind, in which case the next
+     *                     event it receives says how many it missed, or false to make commits wait.
+     * @return A {@link ChangeSubscription} to close when the events are no longer needed.
+     * @throws UnsupportedOperationException if the database cannot report its changes.
+     */
+    public ChangeSubscription subscribe(final Consumer<ChangeEvent> listener, final int capacity,
+            final boolean dropWhenFull) {
+        return database.subscribe(listener, capacity, dropWhenFull);
+    }
+
+    /**
+     * Record every {@link DbChangeSet} applied with {@link #update(List, List)} in a
+     * {@link DbChangeJournal} when its transaction commits. Changes made in other ways, such as by
+     * creating a {@link Thing} or importing a file, are not recorded.
+     *
+     * @param journal The {@link DbChangeJournal}, or null to stop recording.
+     */
+    public synchronized void setChangeJournal(final DbChangeJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Keep a change set until the write transaction of the current thread commits, if there is a
+     * journal.
+     *
+     * @param deletes A {@link List} of {@link DbDeleteOperation}.
+     * @param creates A {@link List} of {@link DbCreateOperation}.
+     */
+    private synchronized void journalChanges(final List<DbDeleteOperation> deletes,
+            final List<DbCreateOperation> creates) {
+        if (journal != null && !(deletes.isEmpty() && creates.isEmpty())) {
+            final List<DbChangeSet> changes = writeTransaction.get();
+            if (changes != null) {
+                changes.add(new DbChangeSet(List.copyOf(deletes), List.copyOf(creates)));
+            }
+        }
+    }
+
+    /**
+     * Append the change sets of the transaction the current thread has committed to the journal, if it
+     * was a write transaction.
+     */
+    private synchronized void committed() {
+        final List<DbChangeSet> changes = writeTransaction.get();
+        writeTransaction.remove();
+        if (changes != null) {
+            temporalIndex.committed();
+            if (journal != null) {
+                changes.forEach(journal::append);
+            }
+        }
+    }
+
+    /**
+     * Discard the change sets of the transaction the current thread has aborted, if it was a write
+     * transaction.
+     */
+    private synchronized void aborted() {
+        final List<DbChangeSet> changes = writeTransaction.get();
+        writeTransaction.remove();
+        if (changes != null) {
+            temporalIndex.aborted();
+        }
     }
 
     /**
@@ -811,6 +1000,28 @@ public class MagmaCoreService {
         return database.get(iri);
     }
 
+    /**
+     * Get many {@link Thing} objects by their IRIs using as few database requests as possible.
+     *
+     * @param iris IRIs of the things.
+     * @return A {@link Map} of the {@link Thing} objects found by IRI.
+     */
+    public Map<IRI, Thing> getAll(final Collection<IRI> iris) {
+        return database.getAll(iris);
+    }
+
+    /**
+     * Get the hit, miss and eviction counters of the object cache, if this service was created with one.
+     *
+     * @return {@link CacheStatistics}, or null if the database is not cached.
+     */
+    public CacheStatistics getCacheStatistics() {
+        if (database instanceof CachingMagmaCoreDatabase cachingDatabase) {
+            return cachingDatabase.getStatistics();
+        }
+        return null;
+    }
+
     /**
      * Get a {@link Thing} by its {@link IRI} in a transactional database.
      *
@@ -852,13 +1063,15 @@ public class MagmaCoreService {
      */
     public void runInWriteTransaction(final Function<MagmaCoreService, MagmaCoreService> func) {
         try {
-            database.beginWrite();
+            beginWrite();
             func.apply(this);
             database.commit();
         } catch (final Exception e) {
             database.abort();
+            aborted();
             throw e;
         }
+        committed();
     }
 
     /**
@@ -894,6 +1107,18 @@ public class MagmaCoreService {
         database.dump(out, Lang.TTL);
     }
 
+    /**
+     * Export the database as a stream of triples with bounded memory, for example as a nightly backup.
+     *
+     * @param out      An {@link OutputStream}. It is flushed but not closed.
+     * @param language An RDF language that can be written as a stream, such as {@link Lang#NTRIPLES},
+     *                 {@link Lang#NQUADS} or {@link Lang#RDFTHRIFT}.
+     * @param gzip     true to gzip-compress the output.
+     */
+    public void export(final OutputStream out, final Lang language, final boolean gzip) {
+        database.export(out, language, gzip);
+    }
+
     /**
      * Load TTL data from an {@link InputStream}.
      *
@@ -901,6 +1126,71 @@ public class MagmaCoreService {
      */
     public void importTtl(final InputStream in) {
         database.load(in, Lang.TTL);
+        temporalIndex.invalidate();
+    }
+
+    /**
+     * Load TTL data from an {@link InputStream} in chunks, each committed in its own transaction. If
+     * the load fails, running it again on the same input with the same checkpoint file resumes after
+     * the last chunk that was committed. This must not be called in a transaction.
+     *
+     * @param in         An {@link InputStream} of TTL data.
+     * @param chunkSize  The maximum number of triples committed in each transaction.
+     * @param checkpoint The checkpoint file {@link Path}, or null to load without one.
+     * @param progress   Told of the progress after each chunk, or null.
+     * @return The number of triples loaded, including any skipped when resuming.
+     */
+    public long importTtl(final InputStream in, final int chunkSize, final Path checkpoint,
+            final Consumer<LoadProgress> progress) {
+        try {
+            return database.load(in, Lang.TTL, chunkSize, checkpoint, progress);
+        } finally {
+            temporalIndex.invalidate();
+        }
+    }
+
+    /**
+     * Load TTL data from an {@link InputStream} into an empty TDB2 database using the TDB2 parallel
+     * loader. This is the fastest way to populate a new database but it cannot be resumed. This must not
+     * be called in a transaction.
+     *
+     * @param in An {@link InputStream} of TTL data.
+     * @return The number of triples loaded.
+     * @throws IllegalStateException if the service is not using an empty TDB2 database.
+     */
+    public long importTtlIntoEmptyDatabase(final InputStream in) {
+        if (database instanceof MagmaCoreJenaDatabase jenaDatabase) {
+            try {
+                return jenaDatabase.loadIntoEmptyDatabase(in, Lang.TTL);
+            } finally {
+                temporalIndex.invalidate();
+            }
+        }
+        throw new IllegalStateException("The parallel loader needs an empty TDB2 database");
+    }
+
+    /**
+     * Materialise the triples that a set of forward rules infer from the model into a named graph, and
+     * keep them up to date as later write transactions commit, so that rules used constantly do not
+     * have to be applied again on every query. The inferred triples are queried with
+     * {@code GRAPH <graphIri> { ... }}. This must not be called in a transaction.
+     *
+     * @param graphIri The IRI of the named graph to hold the inferred triples.
+     * @param rules    Forward rules whose premises and conclusions are all triple patterns, in Jena rule
+     *                 syntax.
+     * @throws IllegalArgumentException if a rule cannot be materialised.
+     * @throws IllegalStateException    if the service is not using a Jena database, cached or not.
+     */
+    public void materialiseInferences(final String graphIri, final String rules) {
+        if (database instanceof MagmaCoreJenaDatabase jenaDatabase) {
+            jenaDatabase.materialise(graphIri, rules);
+            return;
+        }
+        if (database instanceof CachingMagmaCoreDatabase cachingDatabase) {
+            cachingDatabase.materialise(graphIri, rules);
+            return;
+        }
+        throw new IllegalStateException("Materialised inferences need a Jena database");
     }
 
     /**
@@ -912,6 +1202,30 @@ public class MagmaCoreService {
         return DataIntegrityReport.verify(database);
     }
 
+    /**
+     * Verify that the model in the database matches how we want to use HQDM, running the checks in
+     * parallel, each in its own read transaction. This must not be called in a transaction.
+     *
+     * @param threads The number of checks to run at once.
+     * @return An {@link IntegrityReport} of the model integrity errors and the time each check took.
+     */
+    public IntegrityReport verifyModel(final int threads) {
+        return DataIntegrityReport.verify(database, threads);
+    }
+
+    /**
+     * Verify the model around some entities that have changed, for example after applying a
+     * {@link DbTransformation}, rather than the whole model. The checks are run for the entities and
+     * their immediate neighbours only. This must not be called in a transaction.
+     *
+     * @param subjects The {@link IRI}s of the changed entities, such as
+     *                 {@link DbTransformation#subjects()}.
+     * @return A {@link List} of {@link Thing} that represent model integrity errors.
+     */
+    public List<Thing> verifyModel(final Collection<IRI> subjects) {
+        return DataIntegrityReport.verify(database, subjects);
+    }
+
     /**
      * Start a transaction in READ mode.
      */
@@ -924,6 +1238,7 @@ public class MagmaCoreService {
      */
     public void beginWrite() {
         database.beginWrite();
+        writeTransaction.set(new ArrayList<>());
     }
 
     /**
@@ -933,6 +1248,7 @@ public class MagmaCoreService {
      */
     public void commit() {
         database.commit();
+        committed();
     }
 
     /**
@@ -941,6 +1257,7 @@ public class MagmaCoreService {
      */
     public void abort() {
         database.abort();
+        aborted();
     }
 
     /**
@@ -976,6 +1293,19 @@ public class MagmaCoreService {
         return result;
     }
 
+    /**
+     * Stream the results of a SPARQL query as {@link Thing} objects, with the same column restrictions as
+     * {@link #executeQueryForThings(String)}. Each {@link Thing} is emitted once all of the rows for its
+     * subject have been read. The {@link Stream} must be consumed inside a transaction and closed when
+     * finished with.
+     *
+     * @param query a SELECT query {@link String}
+     * @return a {@link Stream} of {@link Thing}
+     */
+    public Stream<Thing> streamQueryForThings(final String query) {
+        return database.streamQuery(query);
+    }
+
     /**
      * Apply a set of inference rules to a subset of the model and return a
      * MagmaCoreService attached to
@@ -998,6 +1328,24 @@ public class MagmaCoreService {
         return new MagmaCoreService(db);
     }
 
+    /**
+     * Apply a set of inference rules to a subset of the model, as
+     * {@link #applyInferenceRules(String, String, boolean)} does, reporting how long parsing the rules,
+     * extracting the subset and running the rules took. Each rule set is parsed once and reused by
+     * later calls.
+     *
+     * @param query            a SPARQL query String to extract a subset of the model for inferencing.
+     * @param rules            a set of inference rules to be applied to the model subset.
+     * @param includeRdfsRules boolean true if inferencing should include the standard RDFS entailments.
+     * @param timing           Told how long each phase took, or null.
+     * @return an in-memory MagmaCoreService attached to the inferencing results which is independent of
+     *         the source dataset.
+     */
+    public MagmaCoreService applyInferenceRules(final String query, final String rules,
+            final boolean includeRdfsRules, final Consumer<InferenceTiming> timing) {
+        return new MagmaCoreService(database.applyInferenceRules(query, rules, includeRdfsRules, timing));
+    }
+
     /**
      * Apply a set of inference rules to a subset of the model and return a List of
      * ValidationReportEntry objects.
@@ -1017,6 +1365,41 @@ public class MagmaCoreService {
         return database.validate(query, rules, includeRdfsRules);
     }
 
+    /**
+     * Apply a set of inference rules to a subset of the model and validate the result, as
+     * {@link #validate(String, String, boolean)} does, reporting how long parsing the rules, extracting
+     * the subset and running the rules took. Each rule set is parsed once and reused by later calls.
+     *
+     * @param query            a SPARQL query String to extract a subset of the model for inferencing.
+     * @param rules            a set of inference rules to be applied to the model subset.
+     * @param includeRdfsRules boolean true if inferencing should include the standard RDFS entailments.
+     * @param timing           Told how long each phase took, or null.
+     * @return A {@link List} of {@link ValidationReportEntry} objects.
+     */
+    public List<ValidationReportEntry> validate(final String query, final String rules,
+            final boolean includeRdfsRules, final Consumer<InferenceTiming> timing) {
+        return database.validate(query, rules, includeRdfsRules, timing);
+    }
+
+    /**
+     * Apply a set of inference rules to the model and validate the result in partitions, so that the
+     * whole subset never has to be held in memory at once. The query is run for each partition with its
+     * {@code ?s} variable bound to the subjects in the partition, the partitions are validated in
+     * parallel and their entries merged. This must not be called in a transaction.
+     *
+     * @param query            a SPARQL CONSTRUCT query String that selects the subset by a subject
+     *                         {@code ?s}.
+     * @param rules            a set of inference rules to be applied to each partition.
+     * @param includeRdfsRules boolean true if inferencing should include the standard RDFS entailments.
+     * @param partitioning     How to partition the model, the memory budget and when to stop early.
+     * @return A {@link PartitionedValidationReport}.
+     * @see PartitionedValidator
+     */
+    public PartitionedValidationReport validate(final String query, final String rules,
+            final boolean includeRdfsRules, final ValidationPartitioning partitioning) {
+        return PartitionedValidator.validate(database, query, rules, includeRdfsRules, partitioning);
+    }
+
     /**
      * Load some TTL from an InputStream.
      *
@@ -1024,5 +1407,6 @@ public class MagmaCoreService {
      */
     public void loadTtl(final InputStream stream) {
         database.load(stream, Lang.TTL);
+        temporalIndex.invalidate();
     }
 }
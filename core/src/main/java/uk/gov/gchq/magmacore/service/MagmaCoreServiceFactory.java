@@ -14,6 +14,7 @@
 
 package uk.gov.gchq.magmacore.service;
 
+import uk.gov.gchq.magmacore.database.CachingMagmaCoreDatabase;
 import uk.gov.gchq.magmacore.database.MagmaCoreJenaDatabase;
 import uk.gov.gchq.magmacore.database.MagmaCoreRemoteSparqlDatabase;
 
@@ -43,6 +44,47 @@ public class MagmaCoreServiceFactory {
         return new MagmaCoreService(new MagmaCoreJenaDatabase(location));
     }
 
+    /**
+     * Create a {@link MagmaCoreService} for a new {@link MagmaCoreJenaDatabase} with a cache of recently
+     * used objects.
+     *
+     * @param maxEntries The maximum number of objects to cache.
+     * @return {@link MagmaCoreService}.
+     */
+    public static MagmaCoreService createWithCachingJenaDatabase(final int maxEntries) {
+        return new MagmaCoreService(new CachingMagmaCoreDatabase(new MagmaCoreJenaDatabase(), maxEntries));
+    }
+
+    /**
+     * Create a {@link MagmaCoreService} for a new {@link MagmaCoreRemoteSparqlDatabase} with a SPARQL
+     * server connection and a cache of recently used objects.
+     *
+     * @param serviceUrl URL of the SPARQL server.
+     * @param maxEntries The maximum number of objects to cache.
+     * @return {@link MagmaCoreService}.
+     */
+    public static MagmaCoreService attachRemoteSparqlEndpointWithCache(final String serviceUrl,
+            final int maxEntries) {
+        return new MagmaCoreService(
+                new CachingMagmaCoreDatabase(new MagmaCoreRemoteSparqlDatabase(serviceUrl), maxEntries));
+    }
+
+    /**
+     * Create a {@link MagmaCoreService} for a new {@link MagmaCoreRemoteSparqlDatabase} with a SPARQL
+     * server connection that buffers the writes of each write transaction and sends them in batches.
+     *
+     * @param serviceUrl     URL of the SPARQL server.
+     * @param maxTriples     The number of buffered triples that causes a batch to be sent.
+     * @param maxDelayMillis The age of the oldest buffered write that causes a batch to be sent.
+     * @return {@link MagmaCoreService}.
+     */
+    public static MagmaCoreService attachRemoteSparqlEndpointWithWriteBehind(final String serviceUrl,
+            final int maxTriples, final long maxDelayMillis) {
+        final MagmaCoreRemoteSparqlDatabase database = new MagmaCoreRemoteSparqlDatabase(serviceUrl);
+        database.setWriteBehind(maxTriples, maxDelayMillis);
+        return new MagmaCoreService(database);
+    }
+
     /**
      * Create a {@link MagmaCoreService} for a new {@link MagmaCoreRemoteSparqlDatabase} with a SPARQL
      * server connection.
@@ -0,0 +1,560 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.jena.rdf.model.RDFNode;
+
+import uk.gov.gchq.magmacore.database.MagmaCoreDatabase;
+import uk.gov.gchq.magmacore.database.query.QueryResult;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+
+/**
+ * An in-memory index of the periods during which entities exist, taken from the
+ * {@code hqdm:data_EntityName} of their {@code hqdm:beginning} and {@code hqdm:ending} events.
+ *
+ * <p>
+ * The index is built from the database the first time it is used. After that the service tells it
+ * which subjects have been written, and they are read again from the database the next time the index
+ * is used, within the transaction of the caller. An entity whose beginning or ending event changes is
+ * found through a reverse map from events to entities, so it is updated as well.
+ * </p>
+ *
+ * <p>
+ * Periods include their beginning and ending. A missing beginning or ending, or one whose name is not
+ * an ISO-8601 instant, leaves the period open on that side. Entities with neither a beginning nor an
+ * ending are not indexed.
+ * </p>
+ *
+ * <p>
+ * The periods are held in a centred interval tree, so finding the entities that exist at an instant
+ * only visits the periods that include it and one path down the tree. The tree is not changed in
+ * place: entities whose periods change are checked one by one until there are enough of them to make
+ * it worth building the tree again.
+ * </p>
+ */
+final class TemporalIndex {
+
+    /** The number of changed entities that are always checked one by one rather than rebuilding the tree. */
+    private static final int MIN_CHANGED = 64;
+
+    /** Query to find all beginning and ending events and their times. */
+    private static final String BUILD_QUERY = """
+            PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
+
+            SELECT ?s ?p ?event ?time
+            WHERE {
+                VALUES ?p { hqdm:beginning hqdm:ending }
+                ?s ?p ?event.
+                OPTIONAL { ?event hqdm:data_EntityName ?time. }
+            }
+            """;
+
+    /**
+     * The period of an entity.
+     *
+     * @param from The beginning, or null if there is none.
+     * @param to   The ending, or null if there is none.
+     */
+    private record Period(Instant from, Instant to) {
+
+        /**
+         * The beginning, treating a missing one as the earliest instant.
+         *
+         * @return {@link Instant}.
+         */
+        Instant fromKey() {
+            return from == null ? Instant.MIN : from;
+        }
+
+        /**
+         * The ending, treating a missing one as the latest instant.
+         *
+         * @return {@link Instant}.
+         */
+        Instant toKey() {
+            return to == null ? Instant.MAX : to;
+        }
+
+        /**
+         * Check whether the period includes an {@link Instant}.
+         *
+         * @param when {@link Instant}.
+         * @return true if the period includes the {@link Instant}.
+         */
+        boolean includes(final Instant when) {
+            return (from == null || !when.isBefore(from)) && (to == null || !when.isAfter(to));
+        }
+    }
+
+    /** The periods of the indexed entities. */
+    private final Map<IRI, Period> periods = new HashMap<>();
+
+    /** The periods as they were when the tree was last built, or null if there were none. */
+    private IntervalTree tree;
+
+    /** The entities whose periods may have changed since the tree was last built. */
+    private final Set<IRI> changed = new HashSet<>();
+
+    /** The beginning events of each entity. */
+    private final Map<IRI, Set<IRI>> beginnings = new HashMap<>();
+
+    /** The ending events of each entity. */
+    private final Map<IRI, Set<IRI>> endings = new HashMap<>();
+
+    /** The entities that refer to each event. */
+    private final Map<IRI, Set<IRI>> entitiesByEvent = new HashMap<>();
+
+    /** The time of each event referred to by an entity, or null if it has none. */
+    private final Map<IRI, Instant> eventTimes = new HashMap<>();
+
+    /** Subjects that have been written since they were last read. */
+    private final Set<IRI> stale = new HashSet<>();
+
+    /** Subjects written in the current write transaction. */
+    private final Set<IRI> uncommitted = new HashSet<>();
+
+    private boolean built;
+
+    /**
+     * Record that subjects have been written.
+     *
+     * @param subjects The {@link IRI}s of the subjects.
+     */
+    synchronized void written(final Collection<IRI> subjects) {
+        uncommitted.addAll(subjects);
+        if (built) {
+            stale.addAll(subjects);
+        }
+    }
+
+    /**
+     * Record that the current write transaction has been committed, so that anything read by a
+     * transaction that began before the commit is read again.
+     */
+    synchronized void committed() {
+        if (built) {
+            stale.addAll(uncommitted);
+        }
+        uncommitted.clear();
+    }
+
+    /**
+     * Record that the current write transaction has been aborted, so that anything read from it is read
+     * again.
+     */
+    synchronized void aborted() {
+        if (built) {
+            stale.addAll(uncommitted);
+        }
+        uncommitted.clear();
+    }
+
+    /**
+     * Discard the index so that it is built again the next time it is used.
+     */
+    synchronized void invalidate() {
+        periods.clear();
+        tree = null;
+        changed.clear();
+        beginnings.clear();
+        endings.clear();
+        entitiesByEvent.clear();
+        eventTimes.clear();
+        stale.clear();
+        uncommitted.clear();
+        built = false;
+    }
+
+    /**
+     * Find the entities that exist at an {@link Instant}. This must be called in a transaction.
+     *
+     * @param database The {@link MagmaCoreDatabase} to bring the index up to date from.
+     * @param when     The {@link Instant}.
+     * @return The {@link IRI}s of the entities.
+     */
+    synchronized Set<IRI> activeAt(final MagmaCoreDatabase database, final Instant when) {
+        refresh(database);
+        if (changed.size() > Math.max(MIN_CHANGED, periods.size() / 8)) {
+            rebuildTree();
+        }
+        final Set<IRI> result = new HashSet<>();
+        if (tree != null) {
+            tree.stab(when, entity -> {
+                if (!changed.contains(entity)) {
+                    result.add(entity);
+                }
+            });
+        }
+        changed.forEach(entity -> {
+            final Period period = periods.get(entity);
+            if (period != null && period.includes(when)) {
+                result.add(entity);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Build the index or read the stale subjects again.
+     *
+     * @param database The {@link MagmaCoreDatabase}.
+     */
+    private void refresh(final MagmaCoreDatabase database) {
+        if (!built) {
+            build(database);
+        } else if (!stale.isEmpty()) {
+            update(database);
+        }
+    }
+
+    /**
+     * Build the index from the database.
+     *
+     * @param database The {@link MagmaCoreDatabase}.
+     */
+    private void build(final MagmaCoreDatabase database) {
+        for (final QueryResult row : database.executeQuery(BUILD_QUERY).getQueryResults()) {
+            final IRI entity = new IRI(row.get("s").toString());
+            final IRI event = new IRI(row.get("event").toString());
+            final boolean beginning = HQDM.BEGINNING.getIri().equals(row.get("p").toString());
+            addEvent(entity, event, beginning);
+
+            final RDFNode time = row.get("time");
+            final Instant parsed = time == null ? null : parse(time.asLiteral().getLexicalForm());
+            if (parsed != null) {
+                eventTimes.merge(event, parsed, TemporalIndex::earliest);
+            } else {
+                eventTimes.putIfAbsent(event, null);
+            }
+        }
+        beginnings.keySet().forEach(this::reindex);
+        endings.keySet().forEach(this::reindex);
+        rebuildTree();
+        built = true;
+    }
+
+    /**
+     * Read the stale subjects from the database and update the entities that depend on them.
+     *
+     * @param database The {@link MagmaCoreDatabase}.
+     */
+    private void update(final MagmaCoreDatabase database) {
+        final Set<IRI> subjects = new HashSet<>(stale);
+        stale.clear();
+        final Map<IRI, Thing> things = database.getAll(subjects);
+        final Set<IRI> affected = new HashSet<>();
+
+        for (final IRI subject : subjects) {
+            final Thing thing = things.get(subject);
+
+            // The subject as an entity with a beginning or ending.
+            removeEvents(subject);
+            if (thing != null) {
+                valuesOf(thing, HQDM.BEGINNING).forEach(event -> addEvent(subject, new IRI(event.toString()), true));
+                valuesOf(thing, HQDM.ENDING).forEach(event -> addEvent(subject, new IRI(event.toString()), false));
+            }
+            affected.add(subject);
+
+            // The subject as the beginning or ending of other entities.
+            final Set<IRI> entities = entitiesByEvent.get(subject);
+            if (entities != null) {
+                eventTimes.put(subject, timeOf(thing));
+                affected.addAll(entities);
+            }
+        }
+
+        final Set<IRI> unknownEvents = new HashSet<>();
+        entitiesByEvent.keySet().forEach(event -> {
+            if (!eventTimes.containsKey(event)) {
+                unknownEvents.add(event);
+            }
+        });
+        if (!unknownEvents.isEmpty()) {
+            final Map<IRI, Thing> events = database.getAll(unknownEvents);
+            unknownEvents.forEach(event -> eventTimes.put(event, timeOf(events.get(event))));
+        }
+
+        affected.forEach(this::reindex);
+    }
+
+    /**
+     * Record that an entity refers to an event.
+     *
+     * @param entity    The entity {@link IRI}.
+     * @param event     The event {@link IRI}.
+     * @param beginning true for a beginning, false for an ending.
+     */
+    private void addEvent(final IRI entity, final IRI event, final boolean beginning) {
+        (beginning ? beginnings : endings).computeIfAbsent(entity, k -> new HashSet<>()).add(event);
+        entitiesByEvent.computeIfAbsent(event, k -> new HashSet<>()).add(entity);
+    }
+
+    /**
+     * Forget the events that an entity refers to, and the times of any events no longer referred to.
+     *
+     * @param entity The entity {@link IRI}.
+     */
+    private void removeEvents(final IRI entity) {
+        for (final Map<IRI, Set<IRI>> events : List.of(beginnings, endings)) {
+            final Set<IRI> removed = events.remove(entity);
+            if (removed != null) {
+                removed.forEach(event -> {
+                    final Set<IRI> entities = entitiesByEvent.get(event);
+                    entities.remove(entity);
+                    if (entities.isEmpty()) {
+                        entitiesByEvent.remove(event);
+                        eventTimes.remove(event);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Recalculate the period of an entity from its events.
+     *
+     * @param entity The entity {@link IRI}.
+     */
+    private void reindex(final IRI entity) {
+        periods.remove(entity);
+        changed.add(entity);
+
+        final Set<IRI> entityBeginnings = beginnings.getOrDefault(entity, Set.of());
+        final Set<IRI> entityEndings = endings.getOrDefault(entity, Set.of());
+        if (entityBeginnings.isEmpty() && entityEndings.isEmpty()) {
+            return;
+        }
+
+        Instant from = null;
+        for (final IRI event : entityBeginnings) {
+            from = earliest(from, eventTimes.get(event));
+        }
+        Instant to = null;
+        for (final IRI event : entityEndings) {
+            to = latest(to, eventTimes.get(event));
+        }
+
+        periods.put(entity, new Period(from, to));
+    }
+
+    /**
+     * Build the tree from the current periods.
+     */
+    private void rebuildTree() {
+        tree = IntervalTree.of(periods);
+        changed.clear();
+    }
+
+    /**
+     * Get the time of an event from its {@code hqdm:data_EntityName}.
+     *
+     * @param event The event {@link Thing}, or null if it does not exist.
+     * @return The {@link Instant}, or null if it has none.
+     */
+    private static Instant timeOf(final Thing event) {
+        if (event == null) {
+            return null;
+        }
+        Instant result = null;
+        for (final Object name : valuesOf(event, HQDM.ENTITY_NAME)) {
+            result = earliest(result, parse(name.toString()));
+        }
+        return result;
+    }
+
+    /**
+     * Get the values of a predicate of a {@link Thing}.
+     *
+     * @param thing     The {@link Thing}.
+     * @param predicate The predicate {@link IRI}.
+     * @return The values, which are empty if the {@link Thing} has none.
+     */
+    private static Set<Object> valuesOf(final Thing thing, final IRI predicate) {
+        final Set<Object> values = thing.values(predicate);
+        return values == null ? Set.of() : values;
+    }
+
+    /**
+     * Parse an ISO-8601 instant, ignoring any datatype suffix left on a literal.
+     *
+     * @param value The {@link String} to parse.
+     * @return The {@link Instant}, or null if the value is not an instant.
+     */
+    private static Instant parse(final String value) {
+        final int datatype = value.indexOf("^^");
+        try {
+            return Instant.parse(datatype < 0 ? value : value.substring(0, datatype));
+        } catch (final DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The earlier of two instants, ignoring nulls.
+     *
+     * @param a An {@link Instant} or null.
+     * @param b An {@link Instant} or null.
+     * @return The earlier {@link Instant}, or null if both are null.
+     */
+    private static Instant earliest(final Instant a, final Instant b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * The later of two instants, ignoring nulls.
+     *
+     * @param a An {@link Instant} or null.
+     * @param b An {@link Instant} or null.
+     * @return The later {@link Instant}, or null if both are null.
+     */
+    private static Instant latest(final Instant a, final Instant b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * A centred interval tree of periods. Each node holds the periods that include its centre, sorted by
+     * beginning and by ending, and the periods wholly before or after the centre are in its children.
+     */
+    private static final class IntervalTree {
+
+        /**
+         * A period in the tree.
+         *
+         * @param entity The entity {@link IRI}.
+         * @param from   The beginning, or {@link Instant#MIN} if there is none.
+         * @param to     The ending, or {@link Instant#MAX} if there is none.
+         */
+        private record Entry(IRI entity, Instant from, Instant to) {
+        }
+
+        private final Instant centre;
+        private final Entry[] byFrom;
+        private final Entry[] byTo;
+        private final IntervalTree before;
+        private final IntervalTree after;
+
+        /**
+         * Constructs an IntervalTree node.
+         *
+         * @param centre The centre {@link Instant}.
+         * @param byFrom The periods that include the centre, earliest beginning first.
+         * @param byTo   The periods that include the centre, latest ending first.
+         * @param before The periods that end before the centre, or null if there are none.
+         * @param after  The periods that begin after the centre, or null if there are none.
+         */
+        private IntervalTree(final Instant centre, final Entry[] byFrom, final Entry[] byTo,
+                final IntervalTree before, final IntervalTree after) {
+            this.centre = centre;
+            this.byFrom = byFrom;
+            this.byTo = byTo;
+            this.before = before;
+            this.after = after;
+        }
+
+        /**
+         * Build a tree of periods.
+         *
+         * @param periods The periods of the entities.
+         * @return The {@link IntervalTree}, or null if there are no periods.
+         */
+        static IntervalTree of(final Map<IRI, Period> periods) {
+            final List<Entry> entries = new ArrayList<>(periods.size());
+            periods.forEach((entity, period) -> entries.add(new Entry(entity, period.fromKey(), period.toKey())));
+            entries.sort(Comparator.comparing(Entry::from));
+            return build(entries);
+        }
+
+        /**
+         * Build a node, centred on the median beginning so that neither child has more than half of the
+         * periods.
+         *
+         * @param entries The periods, earliest beginning first.
+         * @return The {@link IntervalTree}, or null if there are no periods.
+         */
+        private static IntervalTree build(final List<Entry> entries) {
+            if (entries.isEmpty()) {
+                return null;
+            }
+            final Instant centre = entries.get(entries.size() / 2).from();
+            final List<Entry> before = new ArrayList<>();
+            final List<Entry> after = new ArrayList<>();
+            final List<Entry> including = new ArrayList<>();
+            for (final Entry entry : entries) {
+                if (entry.to().isBefore(centre)) {
+                    before.add(entry);
+                } else if (entry.from().isAfter(centre)) {
+                    after.add(entry);
+                } else {
+                    including.add(entry);
+                }
+            }
+            final Entry[] byFrom = including.toArray(new Entry[0]);
+            final Entry[] byTo = byFrom.clone();
+            Arrays.sort(byTo, Comparator.comparing(Entry::to).reversed());
+            return new IntervalTree(centre, byFrom, byTo, build(before), build(after));
+        }
+
+        /**
+         * Find the entities whose periods include an {@link Instant}.
+         *
+         * @param when   The {@link Instant}.
+         * @param action Given each entity {@link IRI} found.
+         */
+        void stab(final Instant when, final Consumer<IRI> action) {
+            if (when.isBefore(centre)) {
+                for (final Entry entry : byFrom) {
+                    if (entry.from().isAfter(when)) {
+                        break;
+                    }
+                    action.accept(entry.entity());
+                }
+                if (before != null) {
+                    before.stab(when, action);
+                }
+            } else {
+                for (final Entry entry : byTo) {
+                    if (entry.to().isBefore(when)) {
+                        break;
+                    }
+                    action.accept(entry.entity());
+                }
+                if (after != null) {
+                    after.stab(when, action);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+/**
+ * The progress of applying change sets in batches, reported after each batch is committed.
+ *
+ * @param operations    The number of operations committed, including any skipped when resuming.
+ * @param skipped       The number of operations skipped because an earlier run had committed them.
+ * @param batches       The number of batches committed by this run.
+ * @param elapsedMillis The time since this run started, in milliseconds.
+ */
+public record ApplyProgress(long operations, long skipped, long batches, long elapsedMillis) {
+
+    /**
+     * The average rate at which this run has committed operations.
+     *
+     * @return The number of operations committed per second.
+     */
+    public double operationsPerSecond() {
+        return elapsedMillis == 0 ? 0 : (operations - skipped) * 1000.0 / elapsedMillis;
+    }
+}
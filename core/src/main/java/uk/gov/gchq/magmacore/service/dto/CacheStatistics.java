@@ -0,0 +1,12 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+/**
+ * A snapshot of the counters of an entity cache.
+ *
+ * @param hits      The number of lookups answered from the cache.
+ * @param misses    The number of lookups that had to go to the database.
+ * @param evictions The number of entries removed to keep the cache within its size limit.
+ * @param size      The number of entries currently in the cache.
+ */
+public record CacheStatistics(long hits, long misses, long evictions, int size) {
+}
@@ -0,0 +1,21 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+import java.util.List;
+
+import org.apache.jena.graph.Triple;
+
+/**
+ * The net changes made to the default graph by one committed write transaction.
+ *
+ * <p>
+ * A triple that was added and then removed again in the same transaction, or the other way round, is
+ * in neither list, and a triple is only listed if the transaction really added or removed it.
+ * </p>
+ *
+ * @param added   The {@link Triple}s the transaction added.
+ * @param removed The {@link Triple}s the transaction removed.
+ * @param missed  The number of earlier events that were dropped because the subscriber's buffer was
+ *                full, or 0 if none were.
+ */
+public record ChangeEvent(List<Triple> added, List<Triple> removed, long missed) {
+}
@@ -0,0 +1,21 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+/**
+ * A subscription to the {@link ChangeEvent}s of a database. Closing it stops new events being queued,
+ * and the events already queued are still delivered.
+ */
+public interface ChangeSubscription extends AutoCloseable {
+
+    /**
+     * Get the total number of events dropped because the buffer of this subscription was full.
+     *
+     * @return The number of dropped events.
+     */
+    long dropped();
+
+    /**
+     * Cancel the subscription.
+     */
+    @Override
+    void close();
+}
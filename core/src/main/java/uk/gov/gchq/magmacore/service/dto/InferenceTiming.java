@@ -0,0 +1,12 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+/**
+ * How long each phase of applying a set of inference rules took.
+ *
+ * @param parseMillis     The time taken to find or parse and compile the rule set, in milliseconds.
+ * @param subsetMillis    The time taken to extract the subset of the model, in milliseconds.
+ * @param inferenceMillis The time taken to run the rules and any validation, in milliseconds.
+ * @param cached          true if the compiled rule set was reused from an earlier call.
+ */
+public record InferenceTiming(long parseMillis, long subsetMillis, long inferenceMillis, boolean cached) {
+}
@@ -0,0 +1,11 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+/**
+ * How long one data integrity check took and how many errors it found.
+ *
+ * @param check         The name of the check.
+ * @param errors        The number of objects the check reported.
+ * @param elapsedMillis The wall-clock time the check took, in milliseconds.
+ */
+public record IntegrityCheckTiming(String check, int errors, long elapsedMillis) {
+}
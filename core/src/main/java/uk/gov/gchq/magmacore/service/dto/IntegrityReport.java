@@ -0,0 +1,14 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+import java.util.List;
+
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+
+/**
+ * The combined results of a set of data integrity checks.
+ *
+ * @param errors The {@link Thing}s that represent the errors found by all the checks.
+ * @param checks The {@link IntegrityCheckTiming} of each check, in the order the checks are defined.
+ */
+public record IntegrityReport(List<Thing> errors, List<IntegrityCheckTiming> checks) {
+}
@@ -0,0 +1,21 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+/**
+ * The progress of a chunked load, reported after each chunk is written.
+ *
+ * @param triples       The number of triples written, including any skipped when resuming.
+ * @param skipped       The number of triples skipped because an earlier load had written them.
+ * @param chunks        The number of chunks written by this load.
+ * @param elapsedMillis The time since this load started, in milliseconds.
+ */
+public record LoadProgress(long triples, long skipped, long chunks, long elapsedMillis) {
+
+    /**
+     * The average rate at which this load has written triples.
+     *
+     * @return The number of triples written per second.
+     */
+    public double triplesPerSecond() {
+        return elapsedMillis == 0 ? 0 : (triples - skipped) * 1000.0 / elapsedMillis;
+    }
+}
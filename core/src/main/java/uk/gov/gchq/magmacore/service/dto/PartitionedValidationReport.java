@@ -0,0 +1,18 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+import java.util.List;
+
+import uk.gov.gchq.magmacore.database.validation.ValidationReportEntry;
+
+/**
+ * The merged results of validating a model in partitions.
+ *
+ * @param entries    The {@link ValidationReportEntry} objects from every partition, in partition order.
+ * @param partitions The number of partitions the model was split into.
+ * @param timedOut   The number of partitions that were abandoned because they took too long.
+ * @param truncated  true if the maximum number of errors was reached, so there may be others that were
+ *                   not reported.
+ */
+public record PartitionedValidationReport(List<ValidationReportEntry> entries, int partitions, int timedOut,
+        boolean truncated) {
+}
@@ -0,0 +1,19 @@
+package uk.gov.gchq.magmacore.service.dto;
+
+import java.time.Duration;
+
+/**
+ * How to split a validation into partitions that are validated separately.
+ *
+ * @param byPossibleWorld  true to keep the things that are part of the same possible world in the same
+ *                         partition where they fit, false to partition by subject alone.
+ * @param parallelism      The number of partitions to validate at once.
+ * @param tripleBudget     The approximate number of triples to hold in memory across the partitions
+ *                         being validated at once, which sets the size of each partition.
+ * @param maxErrors        Stop once this many report entries have been found, or 0 for no limit.
+ * @param partitionTimeout The longest to spend validating one partition, or null for no limit. A
+ *                         partition that times out may still be running when the report is returned.
+ */
+public record ValidationPartitioning(boolean byPossibleWorld, int parallelism, long tripleBudget, int maxErrors,
+        Duration partitionTimeout) {
+}
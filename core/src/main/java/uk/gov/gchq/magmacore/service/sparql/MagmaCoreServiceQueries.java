@@ -16,6 +16,18 @@ package uk.gov.gchq.magmacore.service.sparql;
 
 /**
  * SPARQL queries for {@link uk.gov.gchq.magmacore.service.MagmaCoreService}.
+ *
+ * <p>
+ * The queries take their parameters as variable bindings rather than by formatting values into the text,
+ * so each one can be parsed once by {@link PreparedQueries} and reused.
+ * </p>
+ *
+ * <p>
+ * Queries that depend on a point in time select the matching subjects in an inner group that compares
+ * the beginning and ending of each representation or association with ?when, inclusively, treating a
+ * missing beginning or ending as unbounded. Only the subjects that pass are then expanded into their
+ * triples.
+ * </p>
  */
 public class MagmaCoreServiceQueries {
 
@@ -24,9 +36,10 @@ public class MagmaCoreServiceQueries {
      * {@link uk.gov.gchq.magmacore.hqdm.model.RecognizingLanguageCommunity} and
      * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern}.
      * <p>
-     * It needs three parameters provided using String.format() - the sign value {@link String}, the
-     * {@link uk.gov.gchq.magmacore.hqdm.model.RecognizingLanguageCommunity} IRI {@link String}, and the
-     * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern} IRI String.
+     * It needs three variables to be bound - ?signvalue, the sign value {@link String}, ?rlc, the
+     * {@link uk.gov.gchq.magmacore.hqdm.model.RecognizingLanguageCommunity} IRI, and ?pattern, the
+     * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern} IRI.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
      * </p>
      * <p>
      * The Things are likely to be states of some individual.
@@ -35,30 +48,30 @@ public class MagmaCoreServiceQueries {
     public static final String FIND_BY_SIGN_VALUE_QUERY = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
             PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
 
             SELECT ?s ?p ?o ?start ?finish
             WHERE {
-                BIND("%s" as ?signvalue)
-                BIND(<%s> as ?rlc)
-                BIND(<%s> as ?pattern)
-
-                ?sign hqdm:value_ ?signvalue;
-                    hqdm:member_of_ ?pattern.
-                ?sos hqdm:temporal_part_of ?sign;
-                    hqdm:participant_in ?repBySign.
-                ?rlc hqdm:participant_in ?repBySign.
-                ?repBySign hqdm:represents ?s.
-                ?s ?p ?o.
-                OPTIONAL {
-                    ?repBySign hqdm:beginning ?begin.
-                    ?begin hqdm:data_EntityName ?start.
-                }
-                OPTIONAL {
-                    ?repBySign hqdm:ending ?end.
-                    ?end hqdm:data_EntityName ?finish.
+                {
+                    ?sign hqdm:value_ ?signvalue;
+                        hqdm:member_of_ ?pattern.
+                    ?sos hqdm:temporal_part_of ?sign;
+                        hqdm:participant_in ?repBySign.
+                    ?rlc hqdm:participant_in ?repBySign.
+                    ?repBySign hqdm:represents ?s.
+                    OPTIONAL {
+                        ?repBySign hqdm:beginning ?begin.
+                        ?begin hqdm:data_EntityName ?start.
+                    }
+                    OPTIONAL {
+                        ?repBySign hqdm:ending ?end.
+                        ?end hqdm:data_EntityName ?finish.
+                    }
+                    FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                    FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                 }
-
+                ?s ?p ?o.
             }
             """;
 
@@ -67,9 +80,10 @@ public class MagmaCoreServiceQueries {
      * {@link uk.gov.gchq.magmacore.hqdm.model.RecognizingLanguageCommunity} and
      * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern}.
      * <p>
-     * It needs three parameters provided using String.format() - the partial sign value {@link String}, the
-     * {@link uk.gov.gchq.magmacore.hqdm.model.RecognizingLanguageCommunity} IRI {@link String}, and the
-     * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern} IRI String.
+     * It needs three variables to be bound - ?text, the partial sign value {@link String}, ?rlc, the
+     * {@link uk.gov.gchq.magmacore.hqdm.model.RecognizingLanguageCommunity} IRI, and ?pattern, the
+     * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern} IRI.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
      * </p>
      * <p>
      * The Things are likely to be states of some individual.
@@ -78,40 +92,40 @@ public class MagmaCoreServiceQueries {
     public static final String FIND_BY_PARTIAL_SIGN_VALUE_CASE_INSENSITIVE_QUERY = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
             PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
 
             SELECT ?s ?p ?o ?start ?finish
             WHERE {
-                BIND("%s" as ?text)
-                BIND(<%s> as ?rlc)
-                BIND(<%s> as ?pattern)
-
-                ?sign hqdm:value_ ?signvalue;
-                    hqdm:member_of_ ?pattern.
-                FILTER(CONTAINS(lcase(str(?signvalue)), lcase(?text)))
-                ?sos hqdm:temporal_part_of ?sign;
-                    hqdm:participant_in ?repBySign.
-                ?rlc hqdm:participant_in ?repBySign.
-                ?repBySign hqdm:represents ?s.
-                ?s ?p ?o.
-                OPTIONAL {
-                    ?repBySign hqdm:beginning ?begin.
-                    ?begin hqdm:data_EntityName ?start.
-                }
-                OPTIONAL {
-                    ?repBySign hqdm:ending ?end.
-                    ?end hqdm:data_EntityName ?finish.
+                {
+                    ?sign hqdm:value_ ?signvalue;
+                        hqdm:member_of_ ?pattern.
+                    FILTER(CONTAINS(lcase(str(?signvalue)), lcase(?text)))
+                    ?sos hqdm:temporal_part_of ?sign;
+                        hqdm:participant_in ?repBySign.
+                    ?rlc hqdm:participant_in ?repBySign.
+                    ?repBySign hqdm:represents ?s.
+                    OPTIONAL {
+                        ?repBySign hqdm:beginning ?begin.
+                        ?begin hqdm:data_EntityName ?start.
+                    }
+                    OPTIONAL {
+                        ?repBySign hqdm:ending ?end.
+                        ?end hqdm:data_EntityName ?finish.
+                    }
+                    FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                    FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                 }
-
+                ?s ?p ?o.
             }
             """;
 
     /**
      * This query finds PARTICIPANTS in associations of a specified kind between two individuals.
      * <p>
-     * It needs three parameters repeated twice (three then the same three) which are the IRI String of
-     * the first individual, the IRI String of the second individual, and the IRI String of the
-     * {@link uk.gov.gchq.magmacore.hqdm.model.KindOfAssociation}.
+     * It needs three variables to be bound - ?ind1, the IRI of the first individual, ?ind2, the IRI of the
+     * second individual, and ?kind, the IRI of the {@link uk.gov.gchq.magmacore.hqdm.model.KindOfAssociation}.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
      * </p>
      */
     public static final String FIND_PARTICIPANT_DETAILS_QUERY = """
@@ -124,50 +138,50 @@ public class MagmaCoreServiceQueries {
                 {
                     SELECT ?s ?p ?o ?start ?finish
                     WHERE {
-                        BIND( <%s> as ?ind1)
-                        BIND( <%s> as ?ind2)
-                        BIND( <%s> as ?kind)
-
-                        ?s hqdm:temporal_part_of ?ind1;
-                            hqdm:participant_in ?assoc1;
-                            ?p ?o.
-                        ?i2stat hqdm:temporal_part_of ?ind2;
-                            hqdm:participant_in ?assoc1;
-                            ?i2statp ?i2stato.
-                        ?assoc1 hqdm:member_of_kind ?kind.
-                        OPTIONAL {
-                            ?assoc1 hqdm:beginning ?begin.
-                            ?begin hqdm:data_EntityName ?start
-                        }
-                        OPTIONAL {
-                            ?assoc1 hqdm:ending ?end.
-                            ?end hqdm:data_EntityName ?finish
+                        {
+                            ?s hqdm:temporal_part_of ?ind1;
+                                hqdm:participant_in ?assoc1.
+                            ?i2stat hqdm:temporal_part_of ?ind2;
+                                hqdm:participant_in ?assoc1;
+                                ?i2statp ?i2stato.
+                            ?assoc1 hqdm:member_of_kind ?kind.
+                            OPTIONAL {
+                                ?assoc1 hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start
+                            }
+                            OPTIONAL {
+                                ?assoc1 hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                         }
+                        ?s ?p ?o.
                     }
                 }
                 UNION
                 {
                     SELECT  ?s ?p ?o ?start ?finish
                     WHERE {
-                        BIND( <%s> as ?ind1)
-                        BIND( <%s> as ?ind2)
-                        BIND( <%s> as ?kind)
-
-                        ?i2stat hqdm:temporal_part_of ?ind1;
-                            hqdm:participant_in ?assoc1;
-                            ?i2statp ?i2stato.
-                        ?s hqdm:temporal_part_of ?ind2;
-                            hqdm:participant_in ?assoc1;
-                            ?p ?o.
-                        ?assoc1 hqdm:member_of_kind ?kind.
-                        OPTIONAL {
-                            ?assoc1 hqdm:beginning ?begin.
-                            ?begin hqdm:data_EntityName ?start
-                        }
-                        OPTIONAL {
-                            ?assoc1 hqdm:ending ?end.
-                            ?end hqdm:data_EntityName ?finish.
+                        {
+                            ?i2stat hqdm:temporal_part_of ?ind1;
+                                hqdm:participant_in ?assoc1;
+                                ?i2statp ?i2stato.
+                            ?s hqdm:temporal_part_of ?ind2;
+                                hqdm:participant_in ?assoc1.
+                            ?assoc1 hqdm:member_of_kind ?kind.
+                            OPTIONAL {
+                                ?assoc1 hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start
+                            }
+                            OPTIONAL {
+                                ?assoc1 hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                         }
+                        ?s ?p ?o.
                     }
                 }
             }
@@ -178,12 +192,13 @@ public class MagmaCoreServiceQueries {
      * This query finds objects of a specified type and kind, along with the signs of a specified
      * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern} that represent them.
      * <p>
-     * It needs two groups of three parameters:
+     * It needs three variables to be bound:
      * <ol>
-     * <li>the rdf:type IRI String</li>
-     * <li>the kind IRI String</li>
-     * <li>the sign pattern IRI String</li>
+     * <li>?type - the rdf:type IRI</li>
+     * <li>?kind - the kind IRI</li>
+     * <li>?pattern - the sign pattern IRI</li>
      * </ol>
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
      * </p>
      * <p>
      * The result includes `hqdm:value_` predicates for the signValues.
@@ -192,67 +207,64 @@ public class MagmaCoreServiceQueries {
     public static final String FIND_OBJECTS_BY_TYPE_CLASS_AND_SIGN_PATTERN = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
             PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
             select distinct *
             where {
                 {
                     SELECT ?s ?p ?o ?start ?finish
                     WHERE {
-                    BIND(<%s> as ?type)
-                    BIND(<%s> as ?kind)
-                    BIND(<%s> as ?pattern)
-
-                    ?s a ?type;
-                        hqdm:member_of ?kind;
-                    ?p ?o.
-                    ?st hqdm:temporal_part_of ?s.
-                    ?repBySign hqdm:represents ?st.
-                    ?signst hqdm:participant_in ?repBySign;
-                        a hqdm:state_of_sign;
-                        hqdm:temporal_part_of ?sign.
-                    ?sign hqdm:value_ ?signvalue;
-                        hqdm:member_of_ ?pattern.
-
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start
-                        }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish
+                        {
+                            ?s a ?type;
+                                hqdm:member_of ?kind.
+                            ?st hqdm:temporal_part_of ?s.
+                            ?repBySign hqdm:represents ?st.
+                            ?signst hqdm:participant_in ?repBySign;
+                                a hqdm:state_of_sign;
+                                hqdm:temporal_part_of ?sign.
+                            ?sign hqdm:value_ ?signvalue;
+                                hqdm:member_of_ ?pattern.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                         }
-
+                        ?s ?p ?o.
                     }
                 }
                 UNION
                 {
                     SELECT ?s ?p ?o ?start ?finish
                     WHERE {
-                        BIND(<%s> as ?type)
-                        BIND(<%s> as ?kind)
-                        BIND(<%s> as ?pattern)
-
-                        ?s a ?type;
-                            hqdm:member_of ?kind;
-                            ?pr ?ob.
-                        ?st hqdm:temporal_part_of ?s.
-                        ?repBySign hqdm:represents ?st.
-                        ?signst hqdm:participant_in ?repBySign;
-                            a hqdm:state_of_sign;
-                            hqdm:temporal_part_of ?sign.
-                        ?sign hqdm:value_ ?o;
-                            ?p ?o;
-                            hqdm:member_of_ ?pattern.
-
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start
-                        }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish
+                        {
+                            ?s a ?type;
+                                hqdm:member_of ?kind;
+                                ?pr ?ob.
+                            ?st hqdm:temporal_part_of ?s.
+                            ?repBySign hqdm:represents ?st.
+                            ?signst hqdm:participant_in ?repBySign;
+                                a hqdm:state_of_sign;
+                                hqdm:temporal_part_of ?sign.
+                            ?sign hqdm:value_ ?o;
+                                ?p ?o;
+                                hqdm:member_of_ ?pattern.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                         }
-
                     }
                 }
             }
@@ -263,12 +275,13 @@ public class MagmaCoreServiceQueries {
      * This query finds objects of a specified type and kind, along with the signs of a specified
      * {@link uk.gov.gchq.magmacore.hqdm.model.Pattern} that represent them.
      * <p>
-     * It needs two groups of three parameters:
+     * It needs three variables to be bound:
      * <ol>
-     * <li>the rdf:type IRI String</li>
-     * <li>the kind IRI String</li>
-     * <li>the sign pattern IRI String</li>
+     * <li>?type - the rdf:type IRI</li>
+     * <li>?kind - the kind IRI</li>
+     * <li>?pattern - the sign pattern IRI</li>
      * </ol>
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
      * </p>
      * <p>
      * The result includes `hqdm:value_` predicates for the signValues.
@@ -277,67 +290,64 @@ public class MagmaCoreServiceQueries {
     public static final String FIND_OBJECTS_BY_TYPE_AND_SIGN_PATTERN = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
             PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
             select distinct *
             where {
                 {
                     SELECT ?s ?p ?o ?start ?finish
                     WHERE {
-                    BIND(<%s> as ?type)
-                    BIND(<%s> as ?kind)
-                    BIND(<%s> as ?pattern)
-
-                    ?s a ?type;
-                        hqdm:member_of_kind ?kind;
-                    ?p ?o.
-                    ?st hqdm:temporal_part_of ?s.
-                    ?repBySign hqdm:represents ?st.
-                    ?signst hqdm:participant_in ?repBySign;
-                        a hqdm:state_of_sign;
-                        hqdm:temporal_part_of ?sign.
-                    ?sign hqdm:value_ ?signvalue;
-                        hqdm:member_of_ ?pattern.
-
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start
-                        }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish
+                        {
+                            ?s a ?type;
+                                hqdm:member_of_kind ?kind.
+                            ?st hqdm:temporal_part_of ?s.
+                            ?repBySign hqdm:represents ?st.
+                            ?signst hqdm:participant_in ?repBySign;
+                                a hqdm:state_of_sign;
+                                hqdm:temporal_part_of ?sign.
+                            ?sign hqdm:value_ ?signvalue;
+                                hqdm:member_of_ ?pattern.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                         }
-
+                        ?s ?p ?o.
                     }
                 }
                 UNION
                 {
                     SELECT ?s ?p ?o ?start ?finish
                     WHERE {
-                        BIND(<%s> as ?type)
-                        BIND(<%s> as ?kind)
-                        BIND(<%s> as ?pattern)
-
-                        ?s a ?type;
-                            hqdm:member_of_kind ?kind;
-                            ?pr ?ob.
-                        ?st hqdm:temporal_part_of ?s.
-                        ?repBySign hqdm:represents ?st.
-                        ?signst hqdm:participant_in ?repBySign;
-                            a hqdm:state_of_sign;
-                            hqdm:temporal_part_of ?sign.
-                        ?sign hqdm:value_ ?o;
-                            ?p ?o;
-                            hqdm:member_of_ ?pattern.
-
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start
+                        {
+                            ?s a ?type;
+                                hqdm:member_of_kind ?kind;
+                                ?pr ?ob.
+                            ?st hqdm:temporal_part_of ?s.
+                            ?repBySign hqdm:represents ?st.
+                            ?signst hqdm:participant_in ?repBySign;
+                                a hqdm:state_of_sign;
+                                hqdm:temporal_part_of ?sign.
+                            ?sign hqdm:value_ ?o;
+                                ?p ?o;
+                                hqdm:member_of_ ?pattern.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                         }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish
-                        }
-
                     }
                 }
             }
@@ -348,7 +358,7 @@ public class MagmaCoreServiceQueries {
      * Find Individuals with states participating in associations of a specified kind, their roles and
      * signs.
      * <p>
-     * The Kind IRI is needed in 3 places, e.g. {@code String.format(FIND_BY_KIND_OF_ASSOCIATION, iri, iri, iri)}.
+     * The Kind IRI is bound to ?kind_of_association.
      * </p>
      */
     public static final String FIND_BY_KIND_OF_ASSOCIATION = """
@@ -360,7 +370,6 @@ public class MagmaCoreServiceQueries {
                 {
                     select distinct ?s ?p ?o
                     WHERE {
-                        BIND(<%s> as ?kind_of_association)
                         ?association hqdm:member_of_kind ?kind_of_association.
                         ?participant hqdm:participant_in ?association;
                             hqdm:member_of_kind ?role;
@@ -372,7 +381,6 @@ public class MagmaCoreServiceQueries {
                 {
                     select distinct ?s ?p ?o
                     WHERE {
-                        BIND(<%s> as ?kind_of_association)
                         ?association hqdm:member_of_kind ?kind_of_association.
                         ?participant hqdm:participant_in ?association;
                             hqdm:member_of_kind ?role;
@@ -385,7 +393,6 @@ public class MagmaCoreServiceQueries {
                 {
                     select distinct ?s ?p ?o
                     WHERE {
-                        BIND(<%s> as ?kind_of_association)
                         ?association hqdm:member_of_kind ?kind_of_association.
                         ?participant hqdm:participant_in ?association;
                             hqdm:temporal_part_of ?s.
@@ -406,9 +413,15 @@ public class MagmaCoreServiceQueries {
 
     /**
      * Find things associated to a given thing by an association of a given kind.
+     * <p>
+     * The thing IRI is bound to ?item and the Kind IRI to ?kind_of_association.
+     * The point in time of interest is bound to ?when as an xsd:dateTime, or left unbound to find the
+     * associations at any time.
+     * </p>
      */
     public static final String FIND_ASSOCIATED = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
 
             select ?s ?p ?o ?start ?finish
@@ -417,72 +430,81 @@ public class MagmaCoreServiceQueries {
                 {
                 select distinct ?s ?p ?o ?start ?finish
                 WHERE {
-                    BIND(<%s> as ?kind_of_association)
-                    ?from hqdm:temporal_part_of <%s>;
-                        hqdm:participant_in ?association.
-                    ?association hqdm:member_of_kind ?kind_of_association.
-                    ?participant hqdm:participant_in ?association;
-                        hqdm:temporal_part_of ?s.
-                    ?s ?p ?o.
-                    FILTER(?s != <%s>)
-                    OPTIONAL {
-                        ?association hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?association hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?from hqdm:temporal_part_of ?item;
+                            hqdm:participant_in ?association.
+                        ?association hqdm:member_of_kind ?kind_of_association.
+                        ?participant hqdm:participant_in ?association;
+                            hqdm:temporal_part_of ?s.
+                        FILTER(?s != ?item)
+                        OPTIONAL {
+                            ?association hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?association hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?when) || !BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?when) || !BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
+                    ?s ?p ?o.
                 }
             }
             UNION
             {
                 select distinct ?s ?p ?o ?start ?finish
                 WHERE {
-                    BIND(<%s> as ?kind_of_association)
-                    ?from hqdm:temporal_part_of <%s>;
-                        hqdm:participant_in ?association.
-                    ?association hqdm:member_of_kind ?kind_of_association.
-                    ?participant hqdm:participant_in ?association;
-                        hqdm:temporal_part_of ?s;
-                    hqdm:member_of_kind ?role.
-                    FILTER(?s != <%s>)
-                    OPTIONAL {
-                        ?association hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?association hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?from hqdm:temporal_part_of ?item;
+                            hqdm:participant_in ?association.
+                        ?association hqdm:member_of_kind ?kind_of_association.
+                        ?participant hqdm:participant_in ?association;
+                            hqdm:temporal_part_of ?s;
+                        hqdm:member_of_kind ?role.
+                        FILTER(?s != ?item)
+                        OPTIONAL {
+                            ?association hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?association hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?when) || !BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?when) || !BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
                     ?role hqdm:data_EntityName ?o;
-                    ?p ?o.
+                        ?p ?o.
                 }
             }
             UNION
             {
                 select distinct ?s ?p ?o ?start ?finish
                 WHERE {
-                    BIND(<%s> as ?kind_of_association)
-                    ?from hqdm:temporal_part_of <%s>;
-                        hqdm:participant_in ?association.
-                    ?association hqdm:member_of_kind ?kind_of_association.
-                    ?participant hqdm:participant_in ?association;
-                        hqdm:temporal_part_of ?s.
-                    FILTER(?s != <%s>)
-                    ?state_of_individual hqdm:temporal_part_of ?s.
-                    ?repBySign hqdm:represents ?state_of_individual.
-                    ?repBySign a hqdm:representation_by_sign.
-                    ?state_of_sign hqdm:participant_in ?repBySign;
-                        a hqdm:state_of_sign;
-                    hqdm:temporal_part_of ?sign.
-                    OPTIONAL {
-                        ?association hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?association hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?from hqdm:temporal_part_of ?item;
+                            hqdm:participant_in ?association.
+                        ?association hqdm:member_of_kind ?kind_of_association.
+                        ?participant hqdm:participant_in ?association;
+                            hqdm:temporal_part_of ?s.
+                        FILTER(?s != ?item)
+                        ?state_of_individual hqdm:temporal_part_of ?s.
+                        ?repBySign hqdm:represents ?state_of_individual.
+                        ?repBySign a hqdm:representation_by_sign.
+                        ?state_of_sign hqdm:participant_in ?repBySign;
+                            a hqdm:state_of_sign;
+                        hqdm:temporal_part_of ?sign.
+                        OPTIONAL {
+                            ?association hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?association hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?when) || !BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?when) || !BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
                     ?sign hqdm:value_ ?o;
                         ?p ?o.
@@ -495,19 +517,226 @@ public class MagmaCoreServiceQueries {
 
     /**
      * Search for items whose sign contains some text and are members of a specific class.
+     * <p>
+     * The text is bound to ?text and the class IRI to ?class.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
+     * </p>
      */
     public static final String FIND_MEMBERS_OF_CLASS_BY_PARTIAL_SIGN_CASE_SENSITIVE = """
                 PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
                 PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+                PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
+
+                SELECT distinct ?s ?p ?o ?start ?finish
+                WHERE {
+                {
+                    SELECT ?s ?p ?o ?start ?finish
+                    WHERE {
+                        {
+                            ?sign hqdm:value_ ?signvalue;
+                                hqdm:member_of_ ?pattern.
+                            FILTER(CONTAINS(str(?signvalue), ?text))
+                            ?sos hqdm:temporal_part_of ?sign;
+                                hqdm:participant_in ?repBySign.
+                            ?rlc hqdm:participant_in ?repBySign.
+                            ?repBySign hqdm:represents ?state.
+                            ?state hqdm:temporal_part_of ?s.
+                            ?s hqdm:member_of ?class.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start.
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                        }
+                        ?s ?p ?o.
+                    }
+                }
+                UNION
+                {
+                    SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
+                    WHERE {
+                        {
+                            ?sign hqdm:value_ ?o;
+                                hqdm:member_of_ ?pattern.
+                            FILTER(CONTAINS(str(?o), ?text))
+                            ?sos hqdm:temporal_part_of ?sign;
+                                hqdm:participant_in ?repBySign.
+                            ?rlc hqdm:participant_in ?repBySign.
+                            ?repBySign hqdm:represents ?state.
+                            ?state hqdm:temporal_part_of ?s.
+                            ?s hqdm:member_of ?class.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start.
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                        }
+                    }
+                }
+                UNION
+                {
+                    SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
+                    WHERE {
+                        {
+                            ?sign hqdm:value_ ?signValue;
+                                hqdm:member_of_ ?pattern.
+                            FILTER(CONTAINS(str(?signValue), ?text))
+                            ?sos hqdm:temporal_part_of ?sign;
+                                hqdm:participant_in ?repBySign.
+                            ?rlc hqdm:participant_in ?repBySign.
+                            ?repBySign hqdm:represents ?state.
+                            ?state hqdm:temporal_part_of ?s.
+                            ?s hqdm:member_of ?class.
+                            ?s hqdm:member_of_kind ?kind.
+                            ?kind hqdm:data_EntityName ?o.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start.
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                        }
+                    }
+                }
+
+            }
+            order by ?s ?p ?o
+            """;
+
+    /**
+     * Search for items whose sign contains some text and are members of a specific class.
+     * <p>
+     * The text is bound to ?text and the class IRI to ?class.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
+     * </p>
+     */
+    public static final String FIND_MEMBERS_OF_CLASS_BY_PARTIAL_SIGN_CASE_INSENSITIVE = """
+                PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
+                PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+                PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
                 SELECT distinct ?s ?p ?o ?start ?finish
                 WHERE {
                 {
                     SELECT ?s ?p ?o ?start ?finish
                     WHERE {
-                        BIND("%s" as ?text)
-                        BIND(<%s> as ?class) # IRI of the class
+                        {
+                            ?sign hqdm:value_ ?signvalue;
+                                hqdm:member_of_ ?pattern.
+                            FILTER(CONTAINS(lcase(str(?signvalue)), lcase(?text)))
+                            ?sos hqdm:temporal_part_of ?sign;
+                                hqdm:participant_in ?repBySign.
+                            ?rlc hqdm:participant_in ?repBySign.
+                            ?repBySign hqdm:represents ?state.
+                            ?state hqdm:temporal_part_of ?s.
+                            ?s hqdm:member_of ?class.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start.
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                        }
+                        ?s ?p ?o.
+                    }
+                }
+                UNION
+                {
+                    SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
+                    WHERE {
+                        {
+                            ?sign hqdm:value_ ?o;
+                                hqdm:member_of_ ?pattern.
+                            FILTER(CONTAINS(lcase(str(?o)), lcase(?text)))
+                            ?sos hqdm:temporal_part_of ?sign;
+                                hqdm:participant_in ?repBySign.
+                            ?rlc hqdm:participant_in ?repBySign.
+                            ?repBySign hqdm:represents ?state.
+                            ?state hqdm:temporal_part_of ?s.
+                            ?s hqdm:member_of ?class.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start.
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                        }
+                    }
+                }
+                UNION
+                {
+                    SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
+                    WHERE {
+                        {
+                            ?sign hqdm:value_ ?signValue;
+                                hqdm:member_of_ ?pattern.
+                            FILTER(CONTAINS(lcase(str(?signValue)), lcase(?text)))
+                            ?sos hqdm:temporal_part_of ?sign;
+                                hqdm:participant_in ?repBySign.
+                            ?rlc hqdm:participant_in ?repBySign.
+                            ?repBySign hqdm:represents ?state.
+                            ?state hqdm:temporal_part_of ?s.
+                            ?s hqdm:member_of ?class.
+                            ?s hqdm:member_of_kind ?kind.
+                            ?kind hqdm:data_EntityName ?o.
+                            OPTIONAL {
+                                ?repBySign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start.
+                            }
+                            OPTIONAL {
+                                ?repBySign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                        }
+                    }
+                }
+
+            }
+            order by ?s ?p ?o
+            """;
+
+    /**
+     * A partial search by sign for entities referenced by an Activity.
+     * <p>
+     * The text is bound to ?text, the class IRI to ?class and the Activity IRI to ?topicId.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
+     * </p>
+     */
+    public static final String FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_SENSITIVE = """
+            PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
+            PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
+            SELECT distinct ?s ?p ?o ?start ?finish
+            WHERE {
+            {
+                SELECT ?s ?p ?o ?start ?finish
+                WHERE {
+                    {
                         ?sign hqdm:value_ ?signvalue;
                             hqdm:member_of_ ?pattern.
                         FILTER(CONTAINS(str(?signvalue), ?text))
@@ -517,7 +746,7 @@ public class MagmaCoreServiceQueries {
                         ?repBySign hqdm:represents ?state.
                         ?state hqdm:temporal_part_of ?s.
                         ?s hqdm:member_of ?class.
-                        ?s ?p ?o.
+                        ?topicId hqdm:references ?s.
                         OPTIONAL {
                             ?repBySign hqdm:beginning ?begin.
                             ?begin hqdm:data_EntityName ?start.
@@ -526,15 +755,17 @@ public class MagmaCoreServiceQueries {
                             ?repBySign hqdm:ending ?end.
                             ?end hqdm:data_EntityName ?finish.
                         }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                    }
+                    ?s ?p ?o.
                     }
                 }
                 UNION
                 {
-                    SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
-                    WHERE {
-                        BIND("%s" as ?text)
-                        BIND(<%s> as ?class) # IRI of the class
-
+                SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
+                WHERE {
+                    {
                         ?sign hqdm:value_ ?o;
                             hqdm:member_of_ ?pattern.
                         FILTER(CONTAINS(str(?o), ?text))
@@ -544,6 +775,7 @@ public class MagmaCoreServiceQueries {
                         ?repBySign hqdm:represents ?state.
                         ?state hqdm:temporal_part_of ?s.
                         ?s hqdm:member_of ?class.
+                        ?topicId hqdm:references ?s.
                         OPTIONAL {
                             ?repBySign hqdm:beginning ?begin.
                             ?begin hqdm:data_EntityName ?start.
@@ -552,15 +784,16 @@ public class MagmaCoreServiceQueries {
                             ?repBySign hqdm:ending ?end.
                             ?end hqdm:data_EntityName ?finish.
                         }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                    }
                     }
                 }
                 UNION
                 {
-                    SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
-                    WHERE {
-                        BIND("%s" as ?text)
-                        BIND(<%s> as ?class)
-
+                SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
+                WHERE {
+                    {
                         ?sign hqdm:value_ ?signValue;
                             hqdm:member_of_ ?pattern.
                         FILTER(CONTAINS(str(?signValue), ?text))
@@ -570,6 +803,7 @@ public class MagmaCoreServiceQueries {
                         ?repBySign hqdm:represents ?state.
                         ?state hqdm:temporal_part_of ?s.
                         ?s hqdm:member_of ?class.
+                        ?topicId hqdm:references ?s.
                         ?s hqdm:member_of_kind ?kind.
                         ?kind hqdm:data_EntityName ?o.
                         OPTIONAL {
@@ -580,28 +814,33 @@ public class MagmaCoreServiceQueries {
                             ?repBySign hqdm:ending ?end.
                             ?end hqdm:data_EntityName ?finish.
                         }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                    }
                     }
                 }
-
             }
             order by ?s ?p ?o
             """;
 
     /**
-     * Search for items whose sign contains some text and are members of a specific class.
-     */
-    public static final String FIND_MEMBERS_OF_CLASS_BY_PARTIAL_SIGN_CASE_INSENSITIVE = """
-                PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
-                PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+     * A partial search by sign for entities referenced by an Activity.
+     * <p>
+     * The text is bound to ?text, the class IRI to ?class and the Activity IRI to ?topicId.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
+     * </p>
+     */
+    public static final String FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_INSENSITIVE = """
+            PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
+            PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
-                SELECT distinct ?s ?p ?o ?start ?finish
+            SELECT distinct ?s ?p ?o ?start ?finish
+            WHERE {
+            {
+                SELECT ?s ?p ?o ?start ?finish
                 WHERE {
-                {
-                    SELECT ?s ?p ?o ?start ?finish
-                    WHERE {
-                        BIND("%s" as ?text)
-                        BIND(<%s> as ?class) # IRI of the class
-
+                    {
                         ?sign hqdm:value_ ?signvalue;
                             hqdm:member_of_ ?pattern.
                         FILTER(CONTAINS(lcase(str(?signvalue)), lcase(?text)))
@@ -611,7 +850,7 @@ public class MagmaCoreServiceQueries {
                         ?repBySign hqdm:represents ?state.
                         ?state hqdm:temporal_part_of ?s.
                         ?s hqdm:member_of ?class.
-                        ?s ?p ?o.
+                        ?topicId hqdm:references ?s.
                         OPTIONAL {
                             ?repBySign hqdm:beginning ?begin.
                             ?begin hqdm:data_EntityName ?start.
@@ -620,15 +859,17 @@ public class MagmaCoreServiceQueries {
                             ?repBySign hqdm:ending ?end.
                             ?end hqdm:data_EntityName ?finish.
                         }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                    }
+                    ?s ?p ?o.
                     }
                 }
                 UNION
                 {
-                    SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
-                    WHERE {
-                        BIND("%s" as ?text)
-                        BIND(<%s> as ?class) # IRI of the class
-
+                SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
+                WHERE {
+                    {
                         ?sign hqdm:value_ ?o;
                             hqdm:member_of_ ?pattern.
                         FILTER(CONTAINS(lcase(str(?o)), lcase(?text)))
@@ -638,6 +879,7 @@ public class MagmaCoreServiceQueries {
                         ?repBySign hqdm:represents ?state.
                         ?state hqdm:temporal_part_of ?s.
                         ?s hqdm:member_of ?class.
+                        ?topicId hqdm:references ?s.
                         OPTIONAL {
                             ?repBySign hqdm:beginning ?begin.
                             ?begin hqdm:data_EntityName ?start.
@@ -646,15 +888,16 @@ public class MagmaCoreServiceQueries {
                             ?repBySign hqdm:ending ?end.
                             ?end hqdm:data_EntityName ?finish.
                         }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
+                    }
                     }
                 }
                 UNION
                 {
-                    SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
-                    WHERE {
-                        BIND("%s" as ?text)
-                        BIND(<%s> as ?class)
-
+                SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
+                WHERE {
+                    {
                         ?sign hqdm:value_ ?signValue;
                             hqdm:member_of_ ?pattern.
                         FILTER(CONTAINS(lcase(str(?signValue)), lcase(?text)))
@@ -664,6 +907,7 @@ public class MagmaCoreServiceQueries {
                         ?repBySign hqdm:represents ?state.
                         ?state hqdm:temporal_part_of ?s.
                         ?s hqdm:member_of ?class.
+                        ?topicId hqdm:references ?s.
                         ?s hqdm:member_of_kind ?kind.
                         ?kind hqdm:data_EntityName ?o.
                         OPTIONAL {
@@ -674,204 +918,8 @@ public class MagmaCoreServiceQueries {
                             ?repBySign hqdm:ending ?end.
                             ?end hqdm:data_EntityName ?finish.
                         }
-                    }
-                }
-
-            }
-            order by ?s ?p ?o
-            """;
-
-    /**
-     * A partial search by sign for entities referenced by an Activity.
-     */
-    public static final String FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_SENSITIVE = """
-            PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
-            PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
-
-            SELECT distinct ?s ?p ?o ?start ?finish
-            WHERE {
-            {
-                SELECT ?s ?p ?o ?start ?finish
-                WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signvalue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(str(?signvalue), ?text))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?topicId hqdm:references ?s.
-                    ?s ?p ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
-                    }
-                    }
-                }
-                UNION
-                {
-                SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
-                WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?o;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(str(?o), ?text))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?topicId hqdm:references ?s.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
-                    }
-                    }
-                }
-                UNION
-                {
-                SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
-                WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signValue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(str(?signValue), ?text))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?topicId hqdm:references ?s.
-                    ?s hqdm:member_of_kind ?kind.
-                    ?kind hqdm:data_EntityName ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
-                    }
-                    }
-                }
-            }
-            order by ?s ?p ?o
-            """;
-
-    /**
-     * A partial search by sign for entities referenced by an Activity.
-     */
-    public static final String FIND_MEMBERS_OF_CLASS_BY_ACTIVITY_AND_PARTIAL_SIGN_CASE_INSENSITIVE = """
-            PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
-            PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
-
-            SELECT distinct ?s ?p ?o ?start ?finish
-            WHERE {
-            {
-                SELECT ?s ?p ?o ?start ?finish
-                WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signvalue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(lcase(str(?signvalue)), lcase(?text)))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?topicId hqdm:references ?s.
-                    ?s ?p ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
-                    }
-                    }
-                }
-                UNION
-                {
-                SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
-                WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?o;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(lcase(str(?o)), lcase(?text)))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?topicId hqdm:references ?s.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
-                    }
-                    }
-                }
-                UNION
-                {
-                SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
-                WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signValue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(lcase(str(?signValue)), lcase(?text)))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?topicId hqdm:references ?s.
-                    ?s hqdm:member_of_kind ?kind.
-                    ?kind hqdm:data_EntityName ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
                     }
                 }
@@ -881,68 +929,73 @@ public class MagmaCoreServiceQueries {
 
     /**
      * A partial search by sign for entities composed into a whole entity.
+     * <p>
+     * The text is bound to ?text, the class IRI to ?class and the whole IRI to ?topicId.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
+     * </p>
      */
     public static final String FIND_MEMBERS_OF_CLASS_BY_COMPOSITION_AND_PARTIAL_SIGN_CASE_SENSITIVE = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
             PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
             SELECT distinct ?s ?p ?o ?start ?finish
             WHERE {
             {
                 SELECT ?s ?p ?o ?start ?finish
                 WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signvalue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(str(?signvalue), ?text))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?comp hqdm:part ?s;
-                        hqdm:whole ?topicId.
-                    ?s ?p ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?sign hqdm:value_ ?signvalue;
+                            hqdm:member_of_ ?pattern.
+                        FILTER(CONTAINS(str(?signvalue), ?text))
+                        ?sos hqdm:temporal_part_of ?sign;
+                            hqdm:participant_in ?repBySign.
+                        ?rlc hqdm:participant_in ?repBySign.
+                        ?repBySign hqdm:represents ?state.
+                        ?state hqdm:temporal_part_of ?s.
+                        ?s hqdm:member_of ?class.
+                        ?comp hqdm:part ?s;
+                            hqdm:whole ?topicId.
+                        OPTIONAL {
+                            ?repBySign hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?repBySign hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
+                    ?s ?p ?o.
                     }
                 }
                 UNION
                 {
                 SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
                 WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?o;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(str(?o), ?text))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?comp hqdm:part ?s;
-                        hqdm:whole ?topicId.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?sign hqdm:value_ ?o;
+                            hqdm:member_of_ ?pattern.
+                        FILTER(CONTAINS(str(?o), ?text))
+                        ?sos hqdm:temporal_part_of ?sign;
+                            hqdm:participant_in ?repBySign.
+                        ?rlc hqdm:participant_in ?repBySign.
+                        ?repBySign hqdm:represents ?state.
+                        ?state hqdm:temporal_part_of ?s.
+                        ?s hqdm:member_of ?class.
+                        ?comp hqdm:part ?s;
+                            hqdm:whole ?topicId.
+                        OPTIONAL {
+                            ?repBySign hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?repBySign hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
                     }
                 }
@@ -950,30 +1003,30 @@ public class MagmaCoreServiceQueries {
                 {
                 SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
                 WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signValue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(str(?signValue), ?text))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?comp hqdm:part ?s;
-                        hqdm:whole ?topicId.
-                    ?s hqdm:member_of_kind ?kind.
-                    ?kind hqdm:data_EntityName ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?sign hqdm:value_ ?signValue;
+                            hqdm:member_of_ ?pattern.
+                        FILTER(CONTAINS(str(?signValue), ?text))
+                        ?sos hqdm:temporal_part_of ?sign;
+                            hqdm:participant_in ?repBySign.
+                        ?rlc hqdm:participant_in ?repBySign.
+                        ?repBySign hqdm:represents ?state.
+                        ?state hqdm:temporal_part_of ?s.
+                        ?s hqdm:member_of ?class.
+                        ?comp hqdm:part ?s;
+                            hqdm:whole ?topicId.
+                        ?s hqdm:member_of_kind ?kind.
+                        ?kind hqdm:data_EntityName ?o.
+                        OPTIONAL {
+                            ?repBySign hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?repBySign hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
                     }
                 }
@@ -983,68 +1036,73 @@ public class MagmaCoreServiceQueries {
 
     /**
      * A partial search by sign for entities composed into a whole entity.
+     * <p>
+     * The text is bound to ?text, the class IRI to ?class and the whole IRI to ?topicId.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
+     * </p>
      */
     public static final String FIND_MEMBERS_OF_CLASS_BY_COMPOSITION_AND_PARTIAL_SIGN_CASE_INSENSITIVE = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
             PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
             SELECT distinct ?s ?p ?o ?start ?finish
             WHERE {
             {
                 SELECT ?s ?p ?o ?start ?finish
                 WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signvalue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(lcase(str(?signvalue)), lcase(?text)))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?comp hqdm:part ?s;
-                        hqdm:whole ?topicId.
-                    ?s ?p ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?sign hqdm:value_ ?signvalue;
+                            hqdm:member_of_ ?pattern.
+                        FILTER(CONTAINS(lcase(str(?signvalue)), lcase(?text)))
+                        ?sos hqdm:temporal_part_of ?sign;
+                            hqdm:participant_in ?repBySign.
+                        ?rlc hqdm:participant_in ?repBySign.
+                        ?repBySign hqdm:represents ?state.
+                        ?state hqdm:temporal_part_of ?s.
+                        ?s hqdm:member_of ?class.
+                        ?comp hqdm:part ?s;
+                            hqdm:whole ?topicId.
+                        OPTIONAL {
+                            ?repBySign hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?repBySign hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
+                    ?s ?p ?o.
                     }
                 }
                 UNION
                 {
                 SELECT ?s (hqdm:value_ as ?p) ?o ?start ?finish
                 WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?o;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(lcase(str(?o)), lcase(?text)))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?comp hqdm:part ?s;
-                        hqdm:whole ?topicId.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?sign hqdm:value_ ?o;
+                            hqdm:member_of_ ?pattern.
+                        FILTER(CONTAINS(lcase(str(?o)), lcase(?text)))
+                        ?sos hqdm:temporal_part_of ?sign;
+                            hqdm:participant_in ?repBySign.
+                        ?rlc hqdm:participant_in ?repBySign.
+                        ?repBySign hqdm:represents ?state.
+                        ?state hqdm:temporal_part_of ?s.
+                        ?s hqdm:member_of ?class.
+                        ?comp hqdm:part ?s;
+                            hqdm:whole ?topicId.
+                        OPTIONAL {
+                            ?repBySign hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?repBySign hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
                     }
                 }
@@ -1052,30 +1110,30 @@ public class MagmaCoreServiceQueries {
                 {
                 SELECT ?s (hqdm:data_EntityName as ?p) ?o ?start ?finish
                 WHERE {
-                    BIND("%s" as ?text)
-                    BIND(<%s> as ?class)
-                    BIND(<%s> as ?topicId)
-
-                    ?sign hqdm:value_ ?signValue;
-                        hqdm:member_of_ ?pattern.
-                    FILTER(CONTAINS(lcase(str(?signValue)), lcase(?text)))
-                    ?sos hqdm:temporal_part_of ?sign;
-                        hqdm:participant_in ?repBySign.
-                    ?rlc hqdm:participant_in ?repBySign.
-                    ?repBySign hqdm:represents ?state.
-                    ?state hqdm:temporal_part_of ?s.
-                    ?s hqdm:member_of ?class.
-                    ?comp hqdm:part ?s;
-                        hqdm:whole ?topicId.
-                    ?s hqdm:member_of_kind ?kind.
-                    ?kind hqdm:data_EntityName ?o.
-                    OPTIONAL {
-                        ?repBySign hqdm:beginning ?begin.
-                        ?begin hqdm:data_EntityName ?start.
-                    }
-                    OPTIONAL {
-                        ?repBySign hqdm:ending ?end.
-                        ?end hqdm:data_EntityName ?finish.
+                    {
+                        ?sign hqdm:value_ ?signValue;
+                            hqdm:member_of_ ?pattern.
+                        FILTER(CONTAINS(lcase(str(?signValue)), lcase(?text)))
+                        ?sos hqdm:temporal_part_of ?sign;
+                            hqdm:participant_in ?repBySign.
+                        ?rlc hqdm:participant_in ?repBySign.
+                        ?repBySign hqdm:represents ?state.
+                        ?state hqdm:temporal_part_of ?s.
+                        ?s hqdm:member_of ?class.
+                        ?comp hqdm:part ?s;
+                            hqdm:whole ?topicId.
+                        ?s hqdm:member_of_kind ?kind.
+                        ?kind hqdm:data_EntityName ?o.
+                        OPTIONAL {
+                            ?repBySign hqdm:beginning ?begin.
+                            ?begin hqdm:data_EntityName ?start.
+                        }
+                        OPTIONAL {
+                            ?repBySign hqdm:ending ?end.
+                            ?end hqdm:data_EntityName ?finish.
+                        }
+                        FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                        FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                     }
                     }
                 }
@@ -1085,10 +1143,15 @@ public class MagmaCoreServiceQueries {
 
     /**
      * Find the signs for an entity and the pattern and representation by pattern ENTITY_NAMES.
+     * <p>
+     * The entity IRI is bound to ?s.
+     * The point in time of interest is bound to ?when as an xsd:dateTime.
+     * </p>
      */
     public static final String FIND_SIGNS_FOR_ENTITY = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
             PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
 
             SELECT distinct ?sign_value ?pattern_name ?rep_by_pattern_name ?start ?finish
             WHERE
@@ -1096,26 +1159,28 @@ public class MagmaCoreServiceQueries {
                 {
                     SELECT *
                     WHERE {
-                        BIND(<%s> as ?s)
-                        ?state_of_s hqdm:temporal_part_of ?s.
-                        ?rep_by_sign hqdm:represents ?state_of_s;
-                            hqdm:member_of_ ?rep_by_pattern.
-                        ?rep_by_pattern hqdm:data_EntityName ?rep_by_pattern_name.
-                        ?state_of_sign hqdm:participant_in ?rep_by_sign;
-                            a hqdm:state_of_sign;
-                            hqdm:temporal_part_of ?sign.
-                        ?sign hqdm:value_ ?sign_value;
-                            hqdm:member_of_ ?pattern.
-                        ?pattern hqdm:data_EntityName ?pattern_name.
-                        OPTIONAL {
-                            ?rep_by_sign hqdm:beginning ?begin.
-                            ?begin hqdm:data_EntityName ?start.
-                        }
-                        OPTIONAL {
-                            ?rep_by_sign hqdm:ending ?end.
-                            ?end hqdm:data_EntityName ?finish.
+                        {
+                            ?state_of_s hqdm:temporal_part_of ?s.
+                            ?rep_by_sign hqdm:represents ?state_of_s;
+                                hqdm:member_of_ ?rep_by_pattern.
+                            ?rep_by_pattern hqdm:data_EntityName ?rep_by_pattern_name.
+                            ?state_of_sign hqdm:participant_in ?rep_by_sign;
+                                a hqdm:state_of_sign;
+                                hqdm:temporal_part_of ?sign.
+                            ?sign hqdm:value_ ?sign_value;
+                                hqdm:member_of_ ?pattern.
+                            ?pattern hqdm:data_EntityName ?pattern_name.
+                            OPTIONAL {
+                                ?rep_by_sign hqdm:beginning ?begin.
+                                ?begin hqdm:data_EntityName ?start.
+                            }
+                            OPTIONAL {
+                                ?rep_by_sign hqdm:ending ?end.
+                                ?end hqdm:data_EntityName ?finish.
+                            }
+                            FILTER(!BOUND(?start) || xsd:dateTime(?start) <= ?when)
+                            FILTER(!BOUND(?finish) || xsd:dateTime(?finish) >= ?when)
                         }
-
                     }
                 }
             }
@@ -1123,6 +1188,9 @@ public class MagmaCoreServiceQueries {
 
     /**
      * Find by field value and class query.
+     * <p>
+     * The predicate IRI is bound to ?part and the value to ?partThing.
+     * </p>
      */
     public static final String FIND_BY_FIELD_VALUE_AND_CLASS = """
             PREFIX hqdm: <https://hqdmtop.github.io/hqdm#>
@@ -1130,10 +1198,6 @@ public class MagmaCoreServiceQueries {
 
             SELECT ?s ?p ?o
             WHERE {
-                BIND(<%s> as ?part)
-                BIND(<%s> as ?partThing)
-                BIND(<%s> as ?class)
-
                 ?s ?part ?partThing;
                     ?p ?o.
             }
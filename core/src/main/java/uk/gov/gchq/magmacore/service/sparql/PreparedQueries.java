@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.sparql;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+
+/**
+ * A cache of parsed SPARQL queries so that each query template is only parsed once.
+ *
+ * <p>
+ * The cached {@link Query} objects are shared, so values must be supplied as variable bindings when the
+ * query is executed and the {@link Query} itself must not be modified.
+ * </p>
+ */
+public final class PreparedQueries {
+
+    private static final Map<String, Query> QUERIES = new ConcurrentHashMap<>();
+
+    private PreparedQueries() {
+    }
+
+    /**
+     * Get the parsed form of a SPARQL query, parsing it the first time it is requested.
+     *
+     * @param sparqlQueryString A SPARQL query {@link String}.
+     * @return The parsed {@link Query}.
+     */
+    public static Query get(final String sparqlQueryString) {
+        return QUERIES.computeIfAbsent(sparqlQueryString, PreparedQueries::parse);
+    }
+
+    /**
+     * Create the value to bind to a variable for an IRI.
+     *
+     * @param iri The {@link IRI}, or any Object whose String form is an IRI.
+     * @return An {@link RDFNode}.
+     */
+    public static RDFNode iri(final Object iri) {
+        return ResourceFactory.createResource(iri.toString());
+    }
+
+    /**
+     * Create the value to bind to a variable for a String literal. The value is escaped by Jena, so it
+     * cannot change the structure of the query.
+     *
+     * @param value The {@link String} value.
+     * @return An {@link RDFNode}.
+     */
+    public static RDFNode literal(final String value) {
+        return ResourceFactory.createStringLiteral(String.valueOf(value));
+    }
+
+    /**
+     * Create the value to bind to a variable for a point in time, typed as an xsd:dateTime so that the
+     * query can compare it with other dates.
+     *
+     * @param when The {@link Instant}.
+     * @return An {@link RDFNode}.
+     */
+    public static RDFNode dateTime(final Instant when) {
+        return ResourceFactory.createTypedLiteral(when.toString(), XSDDatatype.XSDdateTime);
+    }
+
+    /**
+     * Parse a query and fix its result variables so that executions never need to modify it.
+     *
+     * @param sparqlQueryString A SPARQL query {@link String}.
+     * @return The parsed {@link Query}.
+     */
+    private static Query parse(final String sparqlQueryString) {
+        final Query query = QueryFactory.create(sparqlQueryString);
+        query.setResultVars();
+        return query;
+    }
+}
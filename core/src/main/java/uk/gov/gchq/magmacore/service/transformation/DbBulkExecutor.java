@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.transformation;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import uk.gov.gchq.magmacore.exception.DbTransformationException;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.services.SpatioTemporalExtentServices;
+import uk.gov.gchq.magmacore.service.MagmaCoreService;
+
+/**
+ * Applies a sequence of {@link DbCreateOperation} and {@link DbDeleteOperation} functions with one
+ * read and one write, rather than a read and a write for every triple.
+ *
+ * <p>
+ * All the subjects of the operations are read in one request. The operations are then applied in order
+ * to those objects in memory, checking the same conditions as applying each operation on its own: a
+ * {@link DbTransformationException} is thrown if a triple to create already exists or a triple to
+ * delete does not. Finally the net change to each subject is written as one set of deletes and creates.
+ * </p>
+ *
+ * <p>
+ * If an operation fails, nothing has been written by this executor. Any other function in the sequence
+ * is applied as it is, after writing the changes of the operations before it.
+ * </p>
+ *
+ * <p>
+ * This must be called in a write transaction.
+ * </p>
+ */
+public final class DbBulkExecutor {
+
+    private DbBulkExecutor() {
+    }
+
+    /**
+     * Apply a sequence of operations to a {@link MagmaCoreService}.
+     *
+     * @param mcService  The {@link MagmaCoreService} to apply the operations to.
+     * @param operations A {@link List} of operations to apply in order.
+     * @return The {@link MagmaCoreService}.
+     * @throws DbTransformationException if a triple to create already exists or a triple to delete
+     *                                   does not exist.
+     */
+    public static MagmaCoreService apply(final MagmaCoreService mcService,
+            final List<? extends Function<MagmaCoreService, MagmaCoreService>> operations) {
+        int start = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            final Function<MagmaCoreService, MagmaCoreService> operation = operations.get(i);
+            if (!(operation instanceof DbCreateOperation) && !(operation instanceof DbDeleteOperation)) {
+                applyOperations(mcService, operations.subList(start, i));
+                operation.apply(mcService);
+                start = i + 1;
+            }
+        }
+        applyOperations(mcService, operations.subList(start, operations.size()));
+        return mcService;
+    }
+
+    /**
+     * Apply a sequence of {@link DbCreateOperation} and {@link DbDeleteOperation} functions in memory
+     * and write their net changes.
+     *
+     * @param mcService  The {@link MagmaCoreService} to apply the operations to.
+     * @param operations A {@link List} of {@link DbCreateOperation} and {@link DbDeleteOperation}.
+     */
+    private static void applyOperations(final MagmaCoreService mcService,
+            final List<? extends Function<MagmaCoreService, MagmaCoreService>> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        final Set<IRI> subjects = new LinkedHashSet<>();
+        operations.forEach(operation -> subjects.add(operation instanceof DbCreateOperation create
+                ? create.subject
+                : ((DbDeleteOperation) operation).subject));
+
+        final Map<IRI, Thing> things = new HashMap<>(mcService.getAll(subjects));
+        things.values().forEach(Thing::trackChanges);
+
+        for (final Function<MagmaCoreService, MagmaCoreService> operation : operations) {
+            if (operation instanceof DbCreateOperation create) {
+                final Thing thing = things.computeIfAbsent(create.subject, subject -> {
+                    final Thing newThing = SpatioTemporalExtentServices.createThing(subject);
+                    newThing.trackChanges();
+                    return newThing;
+                });
+                if (thing.hasThisValue(create.predicate, create.object)) {
+                    throw create.alreadyExists();
+                }
+                DbCreateOperation.addValue(thing, create.predicate, create.object);
+            } else {
+                final DbDeleteOperation delete = (DbDeleteOperation) operation;
+                final Thing thing = things.get(delete.subject);
+                if (thing == null || !thing.hasThisValue(delete.predicate, delete.object)) {
+                    throw delete.notFound();
+                }
+                thing.removeValue(delete.predicate, delete.object);
+            }
+        }
+
+        mcService.createDbChangeSet(things.values()).apply(mcService);
+    }
+}
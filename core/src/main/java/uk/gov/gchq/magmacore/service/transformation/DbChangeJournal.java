@@ -0,0 +1,508 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.transformation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+
+/**
+ * An append-only record of applied {@link DbChangeSet}s, kept on disk in a compact binary form.
+ *
+ * <p>
+ * The journal is a directory of segment files, each written through a memory-mapped buffer. IRIs are
+ * written once, the first time they are used, and referred to by number after that, so the entries
+ * stay small and only the IRIs are held in memory. Each entry records its length at both ends, so the
+ * journal can be read from newest to oldest as easily as from oldest to newest.
+ * </p>
+ *
+ * <p>
+ * {@link #forward()} replays the change sets in the order they were appended and {@link #inverse()}
+ * gives the change sets that undo them, newest first. Both read the entries one at a time, so either
+ * can be passed to {@link DbStreamingApplier} to rebuild or roll back a database of any size.
+ * </p>
+ *
+ * <p>
+ * An entry only becomes part of the journal once it has been completely written, so an entry that was
+ * being written when the process stopped is ignored when the journal is opened again. Call
+ * {@link #force()} to make the appended entries durable.
+ * </p>
+ */
+public final class DbChangeJournal implements Closeable {
+
+    /** The default maximum size of a segment file. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAGIC = 0x4d434a31;
+    private static final int VERSION = 1;
+    private static final int END_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_OVERHEAD = 9;
+
+    private static final byte IRI_RECORD = 1;
+    private static final byte CHANGE_SET_RECORD = 2;
+
+    private static final byte IRI_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte DOUBLE_VALUE = 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Path> segments = new ArrayList<>();
+    private final List<IRI> iris = new ArrayList<>();
+    private final Map<String, Integer> iriNumbers = new HashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long changeSets;
+
+    /**
+     * Opens the journal in a directory, creating it if it does not exist.
+     *
+     * @param directory The directory {@link Path}.
+     */
+    public DbChangeJournal(final Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal in a directory, creating it if it does not exist.
+     *
+     * @param directory   The directory {@link Path}.
+     * @param segmentSize The size at which a new segment file is started.
+     */
+    public DbChangeJournal(final Path directory, final int segmentSize) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(".journal"))
+                        .sorted()
+                        .forEach(segments::add);
+            }
+            for (final Path segment : segments) {
+                final ByteBuffer data = map(segment);
+                while (data.hasRemaining()) {
+                    final int length = data.getInt();
+                    final byte type = data.get();
+                    if (type == IRI_RECORD) {
+                        final IRI iri = new IRI(readString(data));
+                        iriNumbers.put(iri.getIri(), iris.size());
+                        iris.add(iri);
+                    } else {
+                        data.position(data.position() + length);
+                        changeSets++;
+                    }
+                    data.getInt();
+                }
+            }
+            if (!segments.isEmpty()) {
+                openForAppend(segments.get(segments.size() - 1), 0);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Append a {@link DbChangeSet} to the journal.
+     *
+     * @param changeSet The {@link DbChangeSet}.
+     */
+    public synchronized void append(final DbChangeSet changeSet) {
+        final List<String> newIris = new ArrayList<>();
+        final Map<String, Integer> newNumbers = new HashMap<>();
+        final ByteBuffer entry = ByteBuffer.allocate(8
+                + (changeSet.deletes.size() + changeSet.creates.size()) * 32);
+        final Encoder encoder = new Encoder(entry, newIris, newNumbers);
+        encoder.buffer.putInt(changeSet.deletes.size()).putInt(changeSet.creates.size());
+        changeSet.deletes.forEach(delete -> encoder.put(delete.subject, delete.predicate, delete.object));
+        changeSet.creates.forEach(create -> encoder.put(create.subject, create.predicate, create.object));
+        final ByteBuffer payload = encoder.buffer.flip();
+
+        final List<byte[]> iriBytes = newIris.stream().map(iri -> iri.getBytes(StandardCharsets.UTF_8)).toList();
+        final int size = iriBytes.stream().mapToInt(bytes -> RECORD_OVERHEAD + 4 + bytes.length).sum()
+                + RECORD_OVERHEAD + payload.remaining();
+        ensureCapacity(size);
+
+        iriBytes.forEach(bytes -> {
+            buffer.putInt(4 + bytes.length).put(IRI_RECORD).putInt(bytes.length).put(bytes);
+            buffer.putInt(4 + bytes.length);
+        });
+        final int length = payload.remaining();
+        buffer.putInt(length).put(CHANGE_SET_RECORD).put(payload).putInt(length);
+        buffer.putLong(END_OFFSET, buffer.position());
+
+        newIris.forEach(iri -> {
+            iriNumbers.put(iri, iris.size());
+            iris.add(new IRI(iri));
+        });
+        changeSets++;
+    }
+
+    /**
+     * Get the number of change sets in the journal.
+     *
+     * @return The number of change sets.
+     */
+    public synchronized long size() {
+        return changeSets;
+    }
+
+    /**
+     * Read the change sets in the order they were appended. Change sets appended after this is called
+     * are not included.
+     *
+     * @return An {@link Iterator} of {@link DbChangeSet}.
+     */
+    public synchronized Iterator<DbChangeSet> forward() {
+        final List<Path> snapshot = List.copyOf(segments);
+        final int end = buffer == null ? -1 : buffer.position();
+        return new Iterator<>() {
+            private int segment = -1;
+            private ByteBuffer data;
+            private DbChangeSet next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (data == null || !data.hasRemaining()) {
+                        if (++segment >= snapshot.size()) {
+                            return false;
+                        }
+                        data = mapOrThrow(snapshot, segment, end);
+                        continue;
+                    }
+                    final int length = data.getInt();
+                    final byte type = data.get();
+                    final int start = data.position();
+                    if (type == CHANGE_SET_RECORD) {
+                        next = decode(data.slice(start, length));
+                    }
+                    data.position(start + length + 4);
+                }
+                return true;
+            }
+
+            @Override
+            public DbChangeSet next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final DbChangeSet result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Read the change sets that undo the journal, starting with the inverse of the newest change set.
+     * Change sets appended after this is called are not included.
+     *
+     * @return An {@link Iterator} of inverted {@link DbChangeSet}s.
+     */
+    public synchronized Iterator<DbChangeSet> inverse() {
+        final List<Path> snapshot = List.copyOf(segments);
+        final int end = buffer == null ? -1 : buffer.position();
+        return new Iterator<>() {
+            private int segment = snapshot.size();
+            private ByteBuffer data;
+            private int position;
+            private DbChangeSet next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (data == null || position == HEADER_SIZE) {
+                        if (--segment < 0) {
+                            return false;
+                        }
+                        data = mapOrThrow(snapshot, segment, end);
+                        position = data.limit();
+                        continue;
+                    }
+                    final int length = data.getInt(position - 4);
+                    position -= RECORD_OVERHEAD + length;
+                    if (data.get(position + 4) == CHANGE_SET_RECORD) {
+                        next = DbChangeSet.invert(decode(data.slice(position + 5, length)));
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public DbChangeSet next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final DbChangeSet result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Write any appended change sets that are still only in memory to the storage device.
+     */
+    public synchronized void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Force and close the journal.
+     */
+    @Override
+    public synchronized void close() {
+        force();
+        buffer = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Make sure the current segment has room for some bytes, starting a new segment if it does not.
+     *
+     * @param size The number of bytes needed.
+     */
+    private void ensureCapacity(final int size) {
+        if (buffer != null && buffer.remaining() >= size) {
+            return;
+        }
+        final boolean empty = buffer != null && buffer.position() == HEADER_SIZE;
+        close();
+        if (!empty) {
+            segments.add(directory.resolve(String.format("%012d.journal", segments.size())));
+        }
+        try {
+            openForAppend(segments.get(segments.size() - 1), Math.max(segmentSize, HEADER_SIZE + size));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Map a segment for appending, creating it if it does not exist.
+     *
+     * @param segment  The segment {@link Path}.
+     * @param capacity The minimum size of the segment, or 0 to keep its current size.
+     * @throws IOException if the segment cannot be mapped.
+     */
+    private void openForAppend(final Path segment, final long capacity) throws IOException {
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        final boolean created = channel.size() == 0;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+        if (created) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(END_OFFSET, HEADER_SIZE);
+        }
+        buffer.position((int) buffer.getLong(END_OFFSET));
+    }
+
+    /**
+     * Map the written part of a segment for reading.
+     *
+     * @param segment The segment {@link Path}.
+     * @return A {@link ByteBuffer} positioned at the first entry, with its limit at the end of the last.
+     * @throws IOException if the segment cannot be read or is not a journal segment.
+     */
+    private static ByteBuffer map(final Path segment) throws IOException {
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+            final MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (in.size() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Not a change journal segment: " + segment);
+            }
+            return data.limit((int) data.getLong(END_OFFSET)).position(HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Map a segment of a snapshot of the journal for reading.
+     *
+     * @param snapshot The segment {@link Path}s when the snapshot was taken.
+     * @param segment  The index of the segment to map.
+     * @param end      The end of the last entry in the last segment when the snapshot was taken, or -1.
+     * @return A {@link ByteBuffer} positioned at the first entry, with its limit at the end of the last.
+     */
+    private static ByteBuffer mapOrThrow(final List<Path> snapshot, final int segment, final int end) {
+        try {
+            final ByteBuffer data = map(snapshot.get(segment));
+            return segment == snapshot.size() - 1 && end >= 0 ? data.limit(end) : data;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decode the payload of a change set entry.
+     *
+     * @param data A {@link ByteBuffer} holding the payload.
+     * @return {@link DbChangeSet}
+     */
+    private DbChangeSet decode(final ByteBuffer data) {
+        final int deleteCount = data.getInt();
+        final int createCount = data.getInt();
+        final List<DbDeleteOperation> deletes = new ArrayList<>(deleteCount);
+        for (int i = 0; i < deleteCount; i++) {
+            deletes.add(new DbDeleteOperation(readIri(data), readIri(data), readValue(data)));
+        }
+        final List<DbCreateOperation> creates = new ArrayList<>(createCount);
+        for (int i = 0; i < createCount; i++) {
+            creates.add(new DbCreateOperation(readIri(data), readIri(data), readValue(data)));
+        }
+        return new DbChangeSet(deletes, creates);
+    }
+
+    /**
+     * Read an {@link IRI} by its number.
+     *
+     * @param data The {@link ByteBuffer} to read from.
+     * @return {@link IRI}
+     */
+    private IRI readIri(final ByteBuffer data) {
+        synchronized (this) {
+            return iris.get(data.getInt());
+        }
+    }
+
+    /**
+     * Read an object value.
+     *
+     * @param data The {@link ByteBuffer} to read from.
+     * @return An {@link IRI}, {@link String} or {@link Double}.
+     */
+    private Object readValue(final ByteBuffer data) {
+        return switch (data.get()) {
+            case IRI_VALUE -> readIri(data);
+            case DOUBLE_VALUE -> data.getDouble();
+            default -> readString(data);
+        };
+    }
+
+    /**
+     * Read a length-prefixed UTF-8 string.
+     *
+     * @param data The {@link ByteBuffer} to read from.
+     * @return {@link String}
+     */
+    private static String readString(final ByteBuffer data) {
+        final byte[] bytes = new byte[data.getInt()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the operations of a change set, numbering the IRIs that are not yet in the journal.
+     */
+    private final class Encoder {
+        private ByteBuffer buffer;
+        private final List<String> newIris;
+        private final Map<String, Integer> newNumbers;
+
+        /**
+         * Constructs an Encoder.
+         *
+         * @param buffer     The initial {@link ByteBuffer}, which is replaced if it fills up.
+         * @param newIris    Collects the IRIs that need to be written before the entry.
+         * @param newNumbers The numbers given to those IRIs.
+         */
+        Encoder(final ByteBuffer buffer, final List<String> newIris, final Map<String, Integer> newNumbers) {
+            this.buffer = buffer;
+            this.newIris = newIris;
+            this.newNumbers = newNumbers;
+        }
+
+        /**
+         * Encode one operation.
+         *
+         * @param subject   Subject {@link IRI}.
+         * @param predicate Predicate {@link IRI}.
+         * @param object    The value.
+         */
+        void put(final IRI subject, final IRI predicate, final Object object) {
+            putIri(subject);
+            putIri(predicate);
+            if (object instanceof IRI iri) {
+                ensure(1).put(IRI_VALUE);
+                putIri(iri);
+            } else if (object instanceof Double d) {
+                ensure(9).put(DOUBLE_VALUE).putDouble(d);
+            } else {
+                final byte[] bytes = object.toString().getBytes(StandardCharsets.UTF_8);
+                ensure(5 + bytes.length).put(STRING_VALUE).putInt(bytes.length).put(bytes);
+            }
+        }
+
+        /**
+         * Encode the number of an {@link IRI}.
+         *
+         * @param iri The {@link IRI}.
+         */
+        private void putIri(final IRI iri) {
+            Integer number = iriNumbers.get(iri.getIri());
+            if (number == null) {
+                number = newNumbers.computeIfAbsent(iri.getIri(), key -> {
+                    newIris.add(key);
+                    return iris.size() + newIris.size() - 1;
+                });
+            }
+            ensure(4).putInt(number);
+        }
+
+        /**
+         * Make sure the buffer has room for some bytes, replacing it with a larger one if it does not.
+         *
+         * @param size The number of bytes needed.
+         * @return The {@link ByteBuffer}.
+         */
+        private ByteBuffer ensure(final int size) {
+            if (buffer.remaining() < size) {
+                final ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+                        buffer.position() + size));
+                buffer = larger.put(buffer.flip());
+            }
+            return buffer;
+        }
+    }
+}
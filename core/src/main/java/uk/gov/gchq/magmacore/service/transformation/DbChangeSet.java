@@ -15,10 +15,14 @@
 package uk.gov.gchq.magmacore.service.transformation;
 
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.RDFS;
 import uk.gov.gchq.magmacore.service.MagmaCoreService;
 
 /**
@@ -69,4 +73,34 @@ public class DbChangeSet implements Function<MagmaCoreService, MagmaCoreService>
         Collections.reverse(newCreates);
         return new DbChangeSet(newDeletes, newCreates);
     }
+
+    /**
+     * Get the entities touched by this change set: the subject of every operation and every object
+     * that is an {@link IRI}. The objects of {@code rdf:type} triples are left out, because adding an
+     * instance does not change anything about its class.
+     *
+     * @return A {@link Set} of {@link IRI}s in the order they first appear.
+     */
+    public Set<IRI> subjects() {
+        final Set<IRI> subjects = new LinkedHashSet<>();
+        deletes.forEach(d -> addSubjects(subjects, d.subject, d.predicate, d.object));
+        creates.forEach(c -> addSubjects(subjects, c.subject, c.predicate, c.object));
+        return subjects;
+    }
+
+    /**
+     * Add the entities touched by one operation to a {@link Set}.
+     *
+     * @param subjects  The {@link Set} to add to.
+     * @param subject   Subject {@link IRI}.
+     * @param predicate Predicate {@link IRI}.
+     * @param object    The object of the operation.
+     */
+    private static void addSubjects(final Set<IRI> subjects, final IRI subject, final IRI predicate,
+            final Object object) {
+        subjects.add(subject);
+        if (object instanceof IRI iri && !RDFS.RDF_TYPE.equals(predicate)) {
+            subjects.add(iri);
+        }
+    }
 }
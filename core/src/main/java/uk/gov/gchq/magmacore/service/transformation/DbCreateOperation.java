@@ -58,37 +58,50 @@ public class DbCreateOperation implements Function<MagmaCoreService, MagmaCoreSe
 
         if (thing == null) {
             final Thing newThing = SpatioTemporalExtentServices.createThing(subject);
-            if (object instanceof IRI iri) {
-                newThing.addValue(predicate, iri);
-            } else if (object instanceof String s) {
-                newThing.addStringValue(predicate, s);
-            } else if (object instanceof Double d) {
-                newThing.addRealValue(predicate, d);
-            } else {
-                throw new ClassCastException("Unknown object type: " + object.getClass().getName());
-            }
+            addValue(newThing, predicate, object);
             mcService.create(newThing);
         } else {
             if (!thing.hasThisValue(predicate, object)) {
-                if (object instanceof IRI iri) {
-                    thing.addValue(predicate, iri);
-                } else if (object instanceof String s) {
-                    thing.addStringValue(predicate, s);
-                } else if (object instanceof Double d) {
-                    thing.addRealValue(predicate, d);
-                } else {
-                    throw new ClassCastException("Unknown object type: " + object.getClass().getName());
-                }
+                addValue(thing, predicate, object);
                 mcService.update(thing);
             } else {
-                throw new DbTransformationException(
-                        String.format("Triple already exists: %s, %s, %s", subject, predicate, object));
+                throw alreadyExists();
             }
         }
 
         return mcService;
     }
 
+    /**
+     * Create the exception thrown when the triple to create already exists.
+     *
+     * @return {@link DbTransformationException}
+     */
+    DbTransformationException alreadyExists() {
+        return new DbTransformationException(
+                String.format("Triple already exists: %s, %s, %s", subject, predicate, object));
+    }
+
+    /**
+     * Add a value to a {@link Thing} using the method for its type.
+     *
+     * @param thing     The {@link Thing} to add the value to.
+     * @param predicate Predicate {@link IRI}.
+     * @param object    An {@link IRI}, {@link String} or {@link Double} value.
+     * @throws ClassCastException if the value is of any other type.
+     */
+    static void addValue(final Thing thing, final IRI predicate, final Object object) {
+        if (object instanceof IRI iri) {
+            thing.addValue(predicate, iri);
+        } else if (object instanceof String s) {
+            thing.addStringValue(predicate, s);
+        } else if (object instanceof Double d) {
+            thing.addRealValue(predicate, d);
+        } else {
+            throw new ClassCastException("Unknown object type: " + object.getClass().getName());
+        }
+    }
+
     /**
      * Invert an operation.
      *
@@ -60,7 +60,16 @@ public class DbDeleteOperation implements Function<MagmaCoreService, MagmaCoreSe
             return mcService;
         }
 
-        throw new DbTransformationException(
+        throw notFound();
+    }
+
+    /**
+     * Create the exception thrown when the triple to delete does not exist.
+     *
+     * @return {@link DbTransformationException}
+     */
+    DbTransformationException notFound() {
+        return new DbTransformationException(
                 String.format("Triple not found for delete: %s, %s, %s", subject, predicate, object));
     }
 
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.transformation;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import uk.gov.gchq.magmacore.database.Checkpoint;
+import uk.gov.gchq.magmacore.service.MagmaCoreService;
+import uk.gov.gchq.magmacore.service.dto.ApplyProgress;
+
+/**
+ * Applies a sequence of {@link DbChangeSet}s that is too large to hold in memory or to apply in one
+ * transaction, committing after every batch of operations.
+ *
+ * <p>
+ * The change sets are taken from an {@link Iterator} one at a time and applied in order, each one as
+ * {@link DbChangeSet#apply(MagmaCoreService)} would apply it. A change set can be split between two
+ * batches, in which case its deletes and creates are applied in the same order across the two
+ * transactions.
+ * </p>
+ *
+ * <p>
+ * If a checkpoint file is given, the number of operations committed so far is saved in it after each
+ * batch. Applying the same sequence again with the same checkpoint skips those operations, so a
+ * migration that fails part way through can be resumed, and the file is deleted when the sequence has
+ * been applied. Progress is reported as an {@link ApplyProgress} after each batch.
+ * </p>
+ */
+public final class DbStreamingApplier {
+
+    private final MagmaCoreService mcService;
+    private final int batchSize;
+    private final Path checkpoint;
+    private final Consumer<ApplyProgress> progress;
+    private final long skip;
+    private final long start = System.currentTimeMillis();
+    private final List<DbChangeSet> batch = new ArrayList<>();
+
+    private int pending;
+    private long seen;
+    private long committed;
+    private long batches;
+
+    /**
+     * Constructs a DbStreamingApplier.
+     *
+     * @param mcService  The {@link MagmaCoreService} to apply the change sets to.
+     * @param batchSize  The maximum number of operations in each transaction.
+     * @param checkpoint The checkpoint {@link Path}, or null to apply without one.
+     * @param progress   Told of the progress after each batch, or null.
+     */
+    private DbStreamingApplier(final MagmaCoreService mcService, final int batchSize, final Path checkpoint,
+            final Consumer<ApplyProgress> progress) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.mcService = mcService;
+        this.batchSize = batchSize;
+        this.checkpoint = checkpoint;
+        this.progress = progress;
+        this.skip = Checkpoint.read(checkpoint);
+        this.committed = skip;
+    }
+
+    /**
+     * Apply a sequence of {@link DbChangeSet}s in batches, each in its own write transaction. This must
+     * not be called in a transaction.
+     *
+     * @param mcService  The {@link MagmaCoreService} to apply the change sets to.
+     * @param changeSets An {@link Iterator} of {@link DbChangeSet}s, read once.
+     * @param batchSize  The maximum number of operations in each transaction.
+     * @param checkpoint The checkpoint {@link Path}, or null to apply without one.
+     * @param progress   Told of the progress after each batch, or null.
+     * @return The total number of operations applied, including any skipped when resuming.
+     */
+    public static long apply(final MagmaCoreService mcService, final Iterator<DbChangeSet> changeSets,
+            final int batchSize, final Path checkpoint, final Consumer<ApplyProgress> progress) {
+        final DbStreamingApplier applier = new DbStreamingApplier(mcService, batchSize, checkpoint, progress);
+        changeSets.forEachRemaining(applier::add);
+        applier.commit();
+        Checkpoint.delete(checkpoint);
+        return applier.committed;
+    }
+
+    /**
+     * Add the operations of a {@link DbChangeSet} that have not already been committed to the batch,
+     * committing each time the batch is full.
+     *
+     * @param changeSet The next {@link DbChangeSet}.
+     */
+    private void add(final DbChangeSet changeSet) {
+        final List<DbDeleteOperation> deletes = changeSet.deletes;
+        final List<DbCreateOperation> creates = changeSet.creates;
+        final int size = deletes.size() + creates.size();
+        int from = (int) Math.min(size, Math.max(0, skip - seen));
+        seen += size;
+
+        while (from < size) {
+            final int to = Math.min(size, from + batchSize - pending);
+            batch.add(new DbChangeSet(
+                    deletes.subList(Math.min(from, deletes.size()), Math.min(to, deletes.size())),
+                    creates.subList(Math.max(from - deletes.size(), 0), Math.max(to - deletes.size(), 0))));
+            pending += to - from;
+            from = to;
+            if (pending >= batchSize) {
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Apply and commit the current batch, if it has any operations, and record the progress.
+     */
+    private void commit() {
+        if (pending == 0) {
+            return;
+        }
+        mcService.runInWriteTransaction(mc -> {
+            batch.forEach(changeSet -> changeSet.apply(mc));
+            return mc;
+        });
+        committed += pending;
+        batches++;
+        batch.clear();
+        pending = 0;
+        Checkpoint.write(checkpoint, committed);
+        if (progress != null) {
+            progress.accept(new ApplyProgress(committed, skip, batches, System.currentTimeMillis() - start));
+        }
+    }
+}
@@ -14,14 +14,20 @@
 
 package uk.gov.gchq.magmacore.service.transformation;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
 import uk.gov.gchq.magmacore.service.MagmaCoreService;
+import uk.gov.gchq.magmacore.service.dto.ApplyProgress;
 
 /**
  * An invertible ordered sequence of change sets.
@@ -62,6 +68,22 @@ public class DbTransformation implements Function<MagmaCoreService, MagmaCoreSer
         return mcService;
     }
 
+    /**
+     * Apply the transformation to a {@link MagmaCoreService} in batches, committing each batch in its
+     * own write transaction. This must not be called in a transaction.
+     *
+     * @param mcService  The {@link MagmaCoreService} to apply the transformation to.
+     * @param batchSize  The maximum number of operations in each transaction.
+     * @param checkpoint A checkpoint {@link Path} used to resume after a failure, or null.
+     * @param progress   Told of the progress after each batch, or null.
+     * @return The total number of operations applied.
+     * @see DbStreamingApplier
+     */
+    public long applyInBatches(final MagmaCoreService mcService, final int batchSize, final Path checkpoint,
+            final Consumer<ApplyProgress> progress) {
+        return DbStreamingApplier.apply(mcService, transformations.iterator(), batchSize, checkpoint, progress);
+    }
+
     /**
      * Invert this {@link DbTransformation}.
      *
@@ -78,6 +100,18 @@ public class DbTransformation implements Function<MagmaCoreService, MagmaCoreSer
         return new DbTransformation(list);
     }
 
+    /**
+     * Get the entities touched by any of the change sets in this transformation.
+     *
+     * @return A {@link Set} of {@link IRI}s in the order they first appear.
+     * @see DbChangeSet#subjects()
+     */
+    public Set<IRI> subjects() {
+        final Set<IRI> subjects = new LinkedHashSet<>();
+        transformations.forEach(changeSet -> subjects.addAll(changeSet.subjects()));
+        return subjects;
+    }
+
     /**
      * Add a DbChangeSet to this transformation.
      *
@@ -1,10 +1,21 @@
 package uk.gov.gchq.magmacore.service.verify;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import uk.gov.gchq.magmacore.database.MagmaCoreDatabase;
 import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.service.dto.IntegrityCheckTiming;
+import uk.gov.gchq.magmacore.service.dto.IntegrityReport;
 
 /**
  * Check an HQDM model for missing predicates.
@@ -579,37 +590,193 @@ public class DataIntegrityReport {
             }
             """;
 
+    private static final String FIND_NEIGHBOURS = """
+            PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+
+            select distinct ?n
+            where {
+              VALUES ?t { %s }
+              {
+                ?t ?p ?n.
+                FILTER(isIRI(?n))
+              }
+              UNION
+              {
+                ?n ?p ?t.
+              }
+              FILTER(?p != rdf:type)
+            }
+            """;
+
+    /** The maximum number of entities in the VALUES block of a scoped query. */
+    private static final int SCOPE_BATCH_SIZE = 500;
+
     /**
-     * Verify a HQDM Data Model.
+     * A named integrity check.
+     *
+     * @param name  The name of the check.
+     * @param query The CONSTRUCT query that finds the errors.
+     */
+    record Check(String name, String query) {
+    }
+
+    /** The checks, in the order they are run and reported. */
+    static final List<Check> CHECKS = List.of(
+            new Check("CHECK_POSSIBLE_WORLD_MEMBERSHIP", CHECK_POSSIBLE_WORLD_MEMBERSHIP),
+            new Check("CHECK_MISSING_PARTICIPANT_ROLES", CHECK_MISSING_PARTICIPANT_ROLES),
+            new Check("CHECK_MISSING_DATA_ENTITY_NAME", CHECK_MISSING_DATA_ENTITY_NAME),
+            new Check("CHECK_STATE_TEMPORAL_PART_OF", CHECK_STATE_TEMPORAL_PART_OF),
+            new Check("CHECK_SIGN_MEMBER_OF_PATTERN", CHECK_SIGN_MEMBER_OF_PATTERN),
+            new Check("CHECK_REP_BY_PATTERN_CONSISTS_OF_BY_CLASS", CHECK_REP_BY_PATTERN_CONSISTS_OF_BY_CLASS),
+            new Check("CHECK_REP_BY_SIGN_CONSISTS_OF_COMMUNITY", CHECK_REP_BY_SIGN_CONSISTS_OF_COMMUNITY),
+            new Check("CHECK_REP_BY_SIGN_CONSISTS_OF_SIGN", CHECK_REP_BY_SIGN_CONSISTS_OF_SIGN),
+            new Check("CHECK_REP_BY_SIGN_REPRESENTS", CHECK_REP_BY_SIGN_REPRESENTS),
+            new Check("CHECK_STATE_OF_SIGN_PARTICIPANT_IN", CHECK_STATE_OF_SIGN_PARTICIPANT_IN),
+            new Check("CHECK_REP_BY_SIGN_MEMBER_OF", CHECK_REP_BY_SIGN_MEMBER_OF),
+            new Check("CHECK_REP_BY_SIGN_HAS_SIGN_PARTICIPANT", CHECK_REP_BY_SIGN_HAS_SIGN_PARTICIPANT),
+            new Check("CHECK_REP_BY_SIGN_HAS_COMMUNITY_PARTICIPANT", CHECK_REP_BY_SIGN_HAS_COMMUNITY_PARTICIPANT),
+            new Check("CHECK_ROLE_PART_OF_BY_CLASS_", CHECK_ROLE_PART_OF_BY_CLASS_),
+            new Check("CHECK_ASSOCIATION_MEMBER_OF_KIND", CHECK_ASSOCIATION_MEMBER_OF_KIND),
+            new Check("CHECK_REP_BY_PATTERN_CONSISTS_OF_IN_MEMBERS", CHECK_REP_BY_PATTERN_CONSISTS_OF_IN_MEMBERS),
+            new Check("CHECK_SIGN_VALUE_", CHECK_SIGN_VALUE_));
+
+    /**
+     * Verify a HQDM Data Model. The checks are run together in a single pass over the triples rather
+     * than one query each.
      *
      * @param db {@link MagmaCoreDatabase}.
      * @return A {@link List} of {@link Thing} that represent data integrity errors.
+     * @see IntegrityRuleEngine
      */
     public static List<Thing> verify(final MagmaCoreDatabase db) {
-        db.beginRead();
+        return IntegrityRuleEngine.verify(db);
+    }
+
+    /**
+     * Verify a HQDM Data Model, running the checks in parallel on a fixed pool of threads. This must
+     * not be called in a transaction.
+     *
+     * @param db      {@link MagmaCoreDatabase}.
+     * @param threads The number of checks to run at once.
+     * @return An {@link IntegrityReport} of the errors found and the time each check took.
+     */
+    public static IntegrityReport verify(final MagmaCoreDatabase db, final int threads) {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return verify(db, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verify a HQDM Data Model, running each check as a separate task. Each check runs in a read
+     * transaction of its own on the thread that runs it, so the checks only see the same data if no
+     * write transaction commits while they run. This must not be called in a transaction.
+     *
+     * @param db       {@link MagmaCoreDatabase}.
+     * @param executor The {@link ExecutorService} to run the checks, which is not shut down.
+     * @return An {@link IntegrityReport} of the errors found and the time each check took.
+     * @throws IllegalStateException if a check fails or the thread is interrupted while waiting.
+     */
+    public static IntegrityReport verify(final MagmaCoreDatabase db, final ExecutorService executor) {
+        final List<Future<List<Thing>>> results = new ArrayList<>();
+        final long[] elapsed = new long[CHECKS.size()];
+        for (int i = 0; i < CHECKS.size(); i++) {
+            final int index = i;
+            results.add(executor.submit(() -> {
+                final long start = System.nanoTime();
+                db.beginRead();
+                try {
+                    return db.executeConstruct(CHECKS.get(index).query());
+                } finally {
+                    db.abort();
+                    elapsed[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+            }));
+        }
 
         final List<Thing> errors = new ArrayList<>();
+        final List<IntegrityCheckTiming> timings = new ArrayList<>();
+        try {
+            for (int i = 0; i < CHECKS.size(); i++) {
+                final List<Thing> checkErrors = results.get(i).get();
+                errors.addAll(checkErrors);
+                timings.add(new IntegrityCheckTiming(CHECKS.get(i).name(), checkErrors.size(), elapsed[i]));
+            }
+        } catch (final ExecutionException e) {
+            results.forEach(result -> result.cancel(true));
+            throw new IllegalStateException("Data integrity check failed", e.getCause());
+        } catch (final InterruptedException e) {
+            results.forEach(result -> result.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for data integrity checks", e);
+        }
+        return new IntegrityReport(errors, timings);
+    }
 
-        errors.addAll(db.executeConstruct(CHECK_POSSIBLE_WORLD_MEMBERSHIP));
-        errors.addAll(db.executeConstruct(CHECK_MISSING_PARTICIPANT_ROLES));
-        errors.addAll(db.executeConstruct(CHECK_MISSING_DATA_ENTITY_NAME));
-        errors.addAll(db.executeConstruct(CHECK_STATE_TEMPORAL_PART_OF));
-        errors.addAll(db.executeConstruct(CHECK_SIGN_MEMBER_OF_PATTERN));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_PATTERN_CONSISTS_OF_BY_CLASS));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_SIGN_CONSISTS_OF_COMMUNITY));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_SIGN_CONSISTS_OF_SIGN));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_SIGN_REPRESENTS));
-        errors.addAll(db.executeConstruct(CHECK_STATE_OF_SIGN_PARTICIPANT_IN));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_SIGN_MEMBER_OF));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_SIGN_HAS_SIGN_PARTICIPANT));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_SIGN_HAS_COMMUNITY_PARTICIPANT));
-        errors.addAll(db.executeConstruct(CHECK_ROLE_PART_OF_BY_CLASS_));
-        errors.addAll(db.executeConstruct(CHECK_ASSOCIATION_MEMBER_OF_KIND));
-        errors.addAll(db.executeConstruct(CHECK_REP_BY_PATTERN_CONSISTS_OF_IN_MEMBERS));
-        errors.addAll(db.executeConstruct(CHECK_SIGN_VALUE_));
-
-        db.abort();
+    /**
+     * Verify the part of a HQDM Data Model around some entities, such as those touched by a
+     * {@code DbChangeSet}. The checks are only run for the entities themselves and the entities
+     * linked to or from them by a predicate other than {@code rdf:type}, which is as far as any check
+     * looks, so the errors found are those that a full verification would report for that frontier.
+     * This must not be called in a transaction.
+     *
+     * @param db       {@link MagmaCoreDatabase}.
+     * @param subjects The {@link IRI}s of the entities that have changed.
+     * @return A {@link List} of {@link Thing} that represent data integrity errors.
+     */
+    public static List<Thing> verify(final MagmaCoreDatabase db, final Collection<IRI> subjects) {
+        final List<Thing> errors = new ArrayList<>();
+        if (subjects.isEmpty()) {
+            return errors;
+        }
 
+        db.beginRead();
+        try {
+            final Set<String> frontier = new LinkedHashSet<>();
+            subjects.forEach(subject -> frontier.add(subject.getIri()));
+            for (final String values : valuesBlocks(List.copyOf(frontier))) {
+                db.executeQuery(String.format(FIND_NEIGHBOURS, values)).getQueryResults()
+                        .forEach(result -> frontier.add(result.get("n").asResource().getURI()));
+            }
+
+            final List<String> blocks = valuesBlocks(List.copyOf(frontier));
+            CHECKS.forEach(check -> blocks
+                    .forEach(values -> errors.addAll(db.executeConstruct(scope(check.query(), values)))));
+        } finally {
+            db.abort();
+        }
         return errors;
     }
+
+    /**
+     * Split some IRIs into the contents of VALUES blocks of at most {@link #SCOPE_BATCH_SIZE} each.
+     *
+     * @param iris The IRI {@link String}s.
+     * @return A {@link List} of VALUES block contents.
+     */
+    private static List<String> valuesBlocks(final List<String> iris) {
+        final List<String> blocks = new ArrayList<>();
+        for (int i = 0; i < iris.size(); i += SCOPE_BATCH_SIZE) {
+            final StringBuilder block = new StringBuilder();
+            iris.subList(i, Math.min(iris.size(), i + SCOPE_BATCH_SIZE))
+                    .forEach(iri -> block.append('<').append(iri).append("> "));
+            blocks.add(block.toString());
+        }
+        return blocks;
+    }
+
+    /**
+     * Restrict a check to some entities by binding its {@code ?s} variable at the start of its WHERE
+     * clause, so the rest of the pattern is only matched for those entities.
+     *
+     * @param query  The CONSTRUCT query of the check.
+     * @param values The contents of a VALUES block.
+     * @return The scoped query.
+     */
+    private static String scope(final String query, final String values) {
+        final int where = query.indexOf("where {") + "where {".length();
+        return query.substring(0, where) + "\nVALUES ?s { " + values + "}\n" + query.substring(where);
+    }
 }
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.verify;
+
+import static uk.gov.gchq.magmacore.hqdm.rdf.iri.RDFS.RDF_TYPE;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.jena.rdf.model.RDFNode;
+
+import uk.gov.gchq.magmacore.database.MagmaCoreDatabase;
+import uk.gov.gchq.magmacore.database.query.QueryResult;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.HqdmObjectFactory;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.util.Pair;
+import uk.gov.gchq.magmacore.service.verify.DataIntegrityReport.Check;
+
+/**
+ * Runs the {@link DataIntegrityReport} checks in a single pass over the dataset, with the triples of
+ * each subject read together, rather than one SPARQL query for each check.
+ *
+ * <p>
+ * Each check is compiled into a rule: the types it applies to, taken from its query, and a condition
+ * on the predicates of the entity. A lookup table from each type to the rules that apply to it means
+ * an entity is only tested against its own rules. Rules that only look at the entity itself report
+ * their errors as soon as its triples have been read. Rules that look at the types of the entities it
+ * refers to, or at what refers to it, keep the few values they need and are decided once the pass
+ * has seen every entity.
+ * </p>
+ *
+ * <p>
+ * The errors are reported as the same {@link Thing}s as the SPARQL checks, in the same check order.
+ * </p>
+ */
+final class IntegrityRuleEngine {
+
+    private static final Pattern ERROR = Pattern.compile("\\?s (hqdm:\\w+)\\s+\"([^\"]*)\"");
+    private static final Pattern TYPE_LIST = Pattern.compile("\\?type in \\(([^)]*)\\)");
+    private static final Pattern SINGLE_TYPE = Pattern.compile("\\?s a (hqdm:\\w+)");
+    private static final Pattern HQDM_NAME = Pattern.compile("hqdm:(\\w+)");
+
+    /**
+     * A link from an entity through a predicate to an entity of a type.
+     *
+     * @param predicate The predicate {@link IRI}.
+     * @param type      The type {@link IRI} of the entity at the other end, or null for any value.
+     */
+    private record Link(IRI predicate, IRI type) {
+    }
+
+    /**
+     * The condition that makes an entity an error.
+     *
+     * @param incoming true if the link must point to the entity, false if it must come from it.
+     * @param link     The {@link Link} that is missing.
+     * @param requires A {@link Link} from the entity that must be present for the rule to apply, or
+     *                 null.
+     */
+    private record Condition(boolean incoming, Link link, Link requires) {
+    }
+
+    /**
+     * A compiled check.
+     *
+     * @param error     The error predicate {@link IRI}.
+     * @param message   The error message.
+     * @param types     The types the rule applies to, or null for any type.
+     * @param condition The {@link Condition}.
+     */
+    private record Rule(IRI error, String message, Set<IRI> types, Condition condition) {
+
+        /**
+         * Check whether the rule can be decided from the entity alone.
+         *
+         * @return true if the rule only looks at the entity's own predicates.
+         */
+        boolean local() {
+            return !condition.incoming() && condition.link().type() == null && condition.requires() == null;
+        }
+    }
+
+    /**
+     * An entity waiting for a rule to be decided at the end of the pass.
+     *
+     * @param rule     The index of the rule.
+     * @param subject  The {@link IRI} of the entity.
+     * @param types    The types to report if it is an error.
+     * @param linked   The values of the predicate of the missing link.
+     * @param required The values of the predicate of the required link.
+     */
+    private record Candidate(int rule, IRI subject, List<IRI> types, List<Object> linked, List<Object> required) {
+    }
+
+    private static final Map<String, Condition> CONDITIONS = Map.ofEntries(
+            Map.entry("CHECK_POSSIBLE_WORLD_MEMBERSHIP", missing(HQDM.PART_OF_POSSIBLE_WORLD)),
+            Map.entry("CHECK_MISSING_PARTICIPANT_ROLES", new Condition(false, new Link(HQDM.MEMBER_OF_KIND, HQDM.ROLE),
+                    new Link(HQDM.PARTICIPANT_IN, HQDM.ASSOCIATION))),
+            Map.entry("CHECK_MISSING_DATA_ENTITY_NAME", missing(HQDM.ENTITY_NAME)),
+            Map.entry("CHECK_STATE_TEMPORAL_PART_OF", missing(HQDM.TEMPORAL_PART_OF)),
+            Map.entry("CHECK_SIGN_MEMBER_OF_PATTERN", missing(HQDM.MEMBER_OF_)),
+            Map.entry("CHECK_REP_BY_PATTERN_CONSISTS_OF_BY_CLASS",
+                    new Condition(true, new Link(HQDM.CONSISTS_OF_BY_CLASS, null), null)),
+            Map.entry("CHECK_REP_BY_SIGN_CONSISTS_OF_COMMUNITY", missing(HQDM.CONSISTS_OF_)),
+            Map.entry("CHECK_REP_BY_SIGN_CONSISTS_OF_SIGN", missing(HQDM.CONSISTS_OF)),
+            Map.entry("CHECK_REP_BY_SIGN_REPRESENTS", missing(HQDM.REPRESENTS)),
+            Map.entry("CHECK_STATE_OF_SIGN_PARTICIPANT_IN", missing(HQDM.PARTICIPANT_IN)),
+            Map.entry("CHECK_REP_BY_SIGN_MEMBER_OF", missing(HQDM.MEMBER_OF_)),
+            Map.entry("CHECK_REP_BY_SIGN_HAS_SIGN_PARTICIPANT",
+                    new Condition(true, new Link(HQDM.PARTICIPANT_IN, HQDM.STATE_OF_SIGN), null)),
+            Map.entry("CHECK_REP_BY_SIGN_HAS_COMMUNITY_PARTICIPANT",
+                    new Condition(true, new Link(HQDM.PARTICIPANT_IN, HQDM.RECOGNIZING_LANGUAGE_COMMUNITY), null)),
+            Map.entry("CHECK_ROLE_PART_OF_BY_CLASS_",
+                    new Condition(false, new Link(HQDM.PART_OF_BY_CLASS_, HQDM.KIND_OF_ASSOCIATION), null)),
+            Map.entry("CHECK_ASSOCIATION_MEMBER_OF_KIND",
+                    new Condition(false, new Link(HQDM.MEMBER_OF_KIND, HQDM.KIND_OF_ASSOCIATION), null)),
+            Map.entry("CHECK_REP_BY_PATTERN_CONSISTS_OF_IN_MEMBERS", missing(HQDM.CONSISTS_OF_IN_MEMBERS)),
+            Map.entry("CHECK_SIGN_VALUE_", missing(HQDM.VALUE_)));
+
+    /** The rules, in the order of {@link DataIntegrityReport#CHECKS}. */
+    private static final List<Rule> RULES = new ArrayList<>();
+
+    /** A bit mask of the rules that apply to each type. */
+    private static final Map<IRI, Integer> RULES_BY_TYPE = new HashMap<>();
+
+    /** A bit mask of the rules that apply to entities of any type. */
+    private static final int ANY_TYPE_RULES;
+
+    /** A bit for each type that rules look for at the far end of a link from an entity. */
+    private static final Map<IRI, Integer> LINKED_TYPES = new HashMap<>();
+
+    static {
+        if (DataIntegrityReport.CHECKS.size() > Integer.SIZE) {
+            throw new IllegalStateException("Too many integrity checks for a rule mask");
+        }
+        int anyTypeRules = 0;
+        for (final Check check : DataIntegrityReport.CHECKS) {
+            final Rule rule = compile(check);
+            final int bit = 1 << RULES.size();
+            RULES.add(rule);
+            if (rule.types() == null) {
+                anyTypeRules |= bit;
+            } else {
+                rule.types().forEach(type -> RULES_BY_TYPE.merge(type, bit, (a, b) -> a | b));
+            }
+            final Condition condition = rule.condition();
+            if (!condition.incoming()) {
+                addLinkedType(condition.link());
+            }
+            addLinkedType(condition.requires());
+        }
+        ANY_TYPE_RULES = anyTypeRules;
+    }
+
+    private final List<List<Thing>> errors = new ArrayList<>();
+    private final List<Set<String>> targets = new ArrayList<>();
+    private final Map<String, Integer> linkedTypes = new HashMap<>();
+    private final List<Candidate> candidates = new ArrayList<>();
+
+    /**
+     * Constructs an IntegrityRuleEngine with no entities seen.
+     */
+    IntegrityRuleEngine() {
+        RULES.forEach(rule -> {
+            errors.add(new ArrayList<>());
+            targets.add(rule.condition().incoming() ? new HashSet<>() : null);
+        });
+    }
+
+    /**
+     * Verify a HQDM Data Model in one pass over its triples.
+     *
+     * @param db {@link MagmaCoreDatabase}.
+     * @return A {@link List} of {@link Thing} that represent data integrity errors.
+     */
+    static List<Thing> verify(final MagmaCoreDatabase db) {
+        final IntegrityRuleEngine engine = new IntegrityRuleEngine();
+        db.beginRead();
+        try (Stream<QueryResult> rows = db.streamTriplesBySubject()) {
+            final Iterator<QueryResult> iterator = rows.iterator();
+            String subject = null;
+            Map<IRI, List<Object>> values = new HashMap<>();
+            while (iterator.hasNext()) {
+                final QueryResult row = iterator.next();
+                final String rowSubject = row.get("s").toString();
+                if (!rowSubject.equals(subject)) {
+                    if (subject != null) {
+                        engine.accept(new IRI(subject), values);
+                    }
+                    subject = rowSubject;
+                    values = new HashMap<>();
+                }
+                final RDFNode object = row.get("o");
+                values.computeIfAbsent(IRI.of(row.get("p").toString()), predicate -> new ArrayList<>())
+                        .add(object.isLiteral() ? object.toString() : IRI.of(object.toString()));
+            }
+            if (subject != null) {
+                engine.accept(new IRI(subject), values);
+            }
+        } finally {
+            db.abort();
+        }
+        return engine.errors();
+    }
+
+    /**
+     * Test an entity against the rules for its types.
+     *
+     * @param subject The {@link IRI} of the entity.
+     * @param values  All of the values of the entity, by predicate.
+     */
+    void accept(final IRI subject, final Map<IRI, List<Object>> values) {
+        final List<IRI> types = new ArrayList<>();
+        values.getOrDefault(RDF_TYPE, List.of()).forEach(value -> {
+            if (value instanceof IRI type) {
+                types.add(type);
+            }
+        });
+        if (types.isEmpty()) {
+            recordTargets(subject, types, values);
+            return;
+        }
+
+        int ruleMask = ANY_TYPE_RULES;
+        int typeFlags = 0;
+        for (final IRI type : types) {
+            ruleMask |= RULES_BY_TYPE.getOrDefault(type, 0);
+            typeFlags |= LINKED_TYPES.getOrDefault(type, 0);
+        }
+        if (typeFlags != 0) {
+            linkedTypes.put(subject.getIri(), typeFlags);
+        }
+        recordTargets(subject, types, values);
+
+        for (int index = 0; ruleMask != 0; index++, ruleMask >>>= 1) {
+            if ((ruleMask & 1) == 0) {
+                continue;
+            }
+            final Rule rule = RULES.get(index);
+            final Condition condition = rule.condition();
+            final List<IRI> reported = rule.types() == null ? types
+                    : types.stream().filter(rule.types()::contains).toList();
+            if (rule.local()) {
+                if (!values.containsKey(condition.link().predicate())) {
+                    errors.get(index).add(error(rule, subject, reported));
+                }
+            } else if (condition.requires() == null || values.containsKey(condition.requires().predicate())) {
+                candidates.add(new Candidate(index, subject, reported,
+                        condition.incoming() ? List.of()
+                                : values.getOrDefault(condition.link().predicate(), List.of()),
+                        condition.requires() == null ? List.of()
+                                : values.getOrDefault(condition.requires().predicate(), List.of())));
+            }
+        }
+    }
+
+    /**
+     * Decide the rules that were waiting for the whole dataset to be seen.
+     *
+     * @return A {@link List} of {@link Thing} that represent data integrity errors, in check order.
+     */
+    List<Thing> errors() {
+        for (final Candidate candidate : candidates) {
+            final Rule rule = RULES.get(candidate.rule());
+            final Condition condition = rule.condition();
+            if (condition.requires() != null && !isLinked(candidate.required(), condition.requires().type())) {
+                continue;
+            }
+            final boolean missing = condition.incoming()
+                    ? !targets.get(candidate.rule()).contains(candidate.subject().getIri())
+                    : !isLinked(candidate.linked(), condition.link().type());
+            if (missing) {
+                errors.get(candidate.rule()).add(error(rule, candidate.subject(), candidate.types()));
+            }
+        }
+        candidates.clear();
+
+        final List<Thing> result = new ArrayList<>();
+        errors.forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Record the entities that this entity links to for the rules that look for incoming links.
+     *
+     * @param subject The {@link IRI} of the entity.
+     * @param types   The types of the entity.
+     * @param values  All of the values of the entity, by predicate.
+     */
+    private void recordTargets(final IRI subject, final List<IRI> types, final Map<IRI, List<Object>> values) {
+        for (int index = 0; index < RULES.size(); index++) {
+            final Condition condition = RULES.get(index).condition();
+            if (condition.incoming() && (condition.link().type() == null || types.contains(condition.link().type()))) {
+                final Set<String> ruleTargets = targets.get(index);
+                values.getOrDefault(condition.link().predicate(), List.of()).forEach(value -> {
+                    if (value instanceof IRI target) {
+                        ruleTargets.add(target.getIri());
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Check whether any of the values of a link are entities of a type.
+     *
+     * @param values The values of the link's predicate.
+     * @param type   The type {@link IRI}, or null for any value.
+     * @return true if the link is present.
+     */
+    private boolean isLinked(final List<Object> values, final IRI type) {
+        if (type == null) {
+            return !values.isEmpty();
+        }
+        final int flag = LINKED_TYPES.get(type);
+        for (final Object value : values) {
+            if (value instanceof IRI iri && (linkedTypes.getOrDefault(iri.getIri(), 0) & flag) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create the error {@link Thing} for an entity in the form the SPARQL checks construct it.
+     *
+     * @param rule    The {@link Rule} that failed.
+     * @param subject The {@link IRI} of the entity.
+     * @param types   The types to report.
+     * @return The error {@link Thing}.
+     */
+    private static Thing error(final Rule rule, final IRI subject, final List<IRI> types) {
+        final List<Pair<IRI, Object>> pairs = new ArrayList<>();
+        pairs.add(new Pair<>(rule.error(), rule.message()));
+        types.forEach(type -> pairs.add(new Pair<>(RDF_TYPE, type)));
+        return HqdmObjectFactory.create(subject, pairs);
+    }
+
+    /**
+     * Compile a check into a rule, taking its error, message and types from its query.
+     *
+     * @param check The {@link Check}.
+     * @return The {@link Rule}.
+     */
+    private static Rule compile(final Check check) {
+        final Condition condition = CONDITIONS.get(check.name());
+        final Matcher error = ERROR.matcher(check.query());
+        if (condition == null || !error.find()) {
+            throw new IllegalStateException("No rule for integrity check: " + check.name());
+        }
+
+        final String where = check.query().substring(check.query().indexOf("where {"));
+        final Matcher typeList = TYPE_LIST.matcher(where);
+        final Matcher singleType = SINGLE_TYPE.matcher(where);
+        final Set<IRI> types;
+        if (typeList.find()) {
+            types = new LinkedHashSet<>();
+            final Matcher name = HQDM_NAME.matcher(typeList.group(1));
+            while (name.find()) {
+                types.add(new IRI(HQDM.HQDM, name.group(1)));
+            }
+        } else if (singleType.find()) {
+            types = Set.of(toIri(singleType.group(1)));
+        } else {
+            types = null;
+        }
+        return new Rule(toIri(error.group(1)), error.group(2), types, condition);
+    }
+
+    /**
+     * Add a bit for the type at the far end of a link.
+     *
+     * @param link The {@link Link}, or null.
+     */
+    private static void addLinkedType(final Link link) {
+        if (link != null && link.type() != null && !LINKED_TYPES.containsKey(link.type())) {
+            LINKED_TYPES.put(link.type(), 1 << LINKED_TYPES.size());
+        }
+    }
+
+    /**
+     * Create a condition that an entity has no value for a predicate.
+     *
+     * @param predicate The predicate {@link IRI}.
+     * @return The {@link Condition}.
+     */
+    private static Condition missing(final IRI predicate) {
+        return new Condition(false, new Link(predicate, null), null);
+    }
+
+    /**
+     * Convert a name with the hqdm prefix to an {@link IRI}.
+     *
+     * @param name The prefixed name.
+     * @return The {@link IRI}.
+     */
+    private static IRI toIri(final String name) {
+        return new IRI(HQDM.HQDM, name.substring("hqdm:".length()));
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.verify;
+
+import static uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM.PART_OF_POSSIBLE_WORLD;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.jena.query.QueryCancelledException;
+
+import uk.gov.gchq.magmacore.database.MagmaCoreDatabase;
+import uk.gov.gchq.magmacore.database.query.QueryResult;
+import uk.gov.gchq.magmacore.database.validation.ValidationReportEntry;
+import uk.gov.gchq.magmacore.service.dto.PartitionedValidationReport;
+import uk.gov.gchq.magmacore.service.dto.ValidationPartitioning;
+
+/**
+ * Validates a model against a set of rules in partitions, so that the whole subset selected for
+ * validation never has to be held in memory at once.
+ *
+ * <p>
+ * The subjects in the model are counted and packed into partitions holding roughly
+ * {@code tripleBudget / parallelism} triples each, optionally keeping the things that are part of the
+ * same possible world together. Each partition is validated by binding the {@code ?s} variable of the
+ * CONSTRUCT query to its subjects, so the query must select the subset by a subject called
+ * {@code ?s}, as {@code CONSTRUCT {?s ?p ?o} WHERE {?s ?p ?o}} does. Rules that join triples about
+ * subjects in different partitions will not see both, so partitioning suits rules that look at one
+ * thing, or one possible world, at a time.
+ * </p>
+ *
+ * <p>
+ * A partition that runs for longer than the partition timeout is counted as timed out and left out
+ * of the report. Its query is given the same timeout, but once the rules are being applied its work
+ * cannot be interrupted, so a timed-out partition may still be running, and holding a read
+ * transaction, when the report is returned. At most {@code parallelism} partitions are running at
+ * once, including timed-out ones, so new partitions wait for them to finish.
+ * </p>
+ */
+public final class PartitionedValidator {
+
+    /** Query to count the triples of each subject. */
+    private static final String SUBJECT_SIZES = "SELECT ?s (COUNT(*) AS ?n) WHERE { ?s ?p ?o } GROUP BY ?s ORDER BY ?s";
+
+    /** Query to find the possible world of each thing that is part of one. */
+    private static final String SUBJECT_WORLDS = "SELECT ?s (MIN(STR(?w)) AS ?world) WHERE { ?s <"
+            + PART_OF_POSSIBLE_WORLD.getIri() + "> ?w } GROUP BY ?s";
+
+    /** Finds the start of the WHERE clause of a query. */
+    private static final Pattern WHERE = Pattern.compile("where\\s*\\{", Pattern.CASE_INSENSITIVE);
+
+    private PartitionedValidator() {
+    }
+
+    /**
+     * Validate a model in partitions, in parallel, and merge the results. Each partition is validated
+     * in a read transaction of its own, so the partitions only see the same data if no write
+     * transaction commits while they run. This must not be called in a transaction.
+     *
+     * @param db               {@link MagmaCoreDatabase}.
+     * @param constructQuery   A CONSTRUCT query that selects the subset to validate by a subject
+     *                         {@code ?s}.
+     * @param rules            The inference rules to validate against.
+     * @param includeRdfsRules true if inferencing should include the standard RDFS entailments.
+     * @param partitioning     How to partition the model.
+     * @return A {@link PartitionedValidationReport}.
+     * @throws IllegalArgumentException if the partitioning is invalid or the query has no WHERE clause.
+     * @throws IllegalStateException    if a partition fails or the thread is interrupted while waiting.
+     */
+    public static PartitionedValidationReport validate(final MagmaCoreDatabase db, final String constructQuery,
+            final String rules, final boolean includeRdfsRules, final ValidationPartitioning partitioning) {
+        if (partitioning.parallelism() < 1 || partitioning.tripleBudget() < 1 || partitioning.maxErrors() < 0) {
+            throw new IllegalArgumentException("Invalid validation partitioning: " + partitioning);
+        }
+        if (!WHERE.matcher(constructQuery).find()) {
+            throw new IllegalArgumentException("The query has no WHERE clause: " + constructQuery);
+        }
+
+        final long partitionSize = Math.max(1, partitioning.tripleBudget() / partitioning.parallelism());
+        final List<String> partitions = partition(db, partitioning.byPossibleWorld(), partitionSize);
+        final ExecutorService executor = Executors.newFixedThreadPool(partitioning.parallelism());
+        try {
+            return run(db, constructQuery, rules, includeRdfsRules, partitions, partitioning, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Validate each partition as a separate task and merge the results in partition order. A partition
+     * is only started when a permit is free, and its permit is released when its task has really
+     * finished, so timed-out partitions that are still running count towards the parallelism.
+     *
+     * @param db               {@link MagmaCoreDatabase}.
+     * @param constructQuery   The CONSTRUCT query that selects the subset to validate.
+     * @param rules            The inference rules to validate against.
+     * @param includeRdfsRules true if inferencing should include the standard RDFS entailments.
+     * @param partitions       The contents of a VALUES block for each partition.
+     * @param partitioning     How the model was partitioned.
+     * @param executor         The {@link ExecutorService} to run the partitions.
+     * @return A {@link PartitionedValidationReport}.
+     */
+    private static PartitionedValidationReport run(final MagmaCoreDatabase db, final String constructQuery,
+            final String rules, final boolean includeRdfsRules, final List<String> partitions,
+            final ValidationPartitioning partitioning, final ExecutorService executor) {
+        final Semaphore permits = new Semaphore(partitioning.parallelism());
+        final Deque<Future<List<ValidationReportEntry>>> results = new ArrayDeque<>();
+        final AtomicLongArray started = new AtomicLongArray(partitions.size());
+        final int maxErrors = partitioning.maxErrors();
+        final List<ValidationReportEntry> entries = new ArrayList<>();
+        int submitted = 0;
+        int awaited = 0;
+        int timedOut = 0;
+        try {
+            while (awaited < partitions.size()) {
+                if (submitted < partitions.size() && (results.isEmpty() ? acquire(permits) : permits.tryAcquire())) {
+                    final int index = submitted++;
+                    results.add(submit(executor, permits, () -> {
+                        started.set(index, System.nanoTime());
+                        db.beginRead();
+                        try {
+                            return db.validate(scope(constructQuery, partitions.get(index)), rules, includeRdfsRules,
+                                    null, partitioning.partitionTimeout());
+                        } catch (final QueryCancelledException e) {
+                            // The query timed out.
+                            return null;
+                        } finally {
+                            db.abort();
+                        }
+                    }));
+                    continue;
+                }
+                final List<ValidationReportEntry> partitionEntries = await(results.remove(), started, awaited++,
+                        partitioning.partitionTimeout());
+                if (partitionEntries == null) {
+                    timedOut++;
+                    continue;
+                }
+                entries.addAll(partitionEntries);
+                if (maxErrors > 0 && entries.size() >= maxErrors) {
+                    results.forEach(result -> result.cancel(true));
+                    return new PartitionedValidationReport(List.copyOf(entries.subList(0, maxErrors)),
+                            partitions.size(), timedOut, true);
+                }
+            }
+        } catch (final ExecutionException e) {
+            results.forEach(result -> result.cancel(true));
+            throw new IllegalStateException("Partition validation failed", e.getCause());
+        } catch (final InterruptedException e) {
+            results.forEach(result -> result.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for partition validation", e);
+        }
+        return new PartitionedValidationReport(entries, partitions.size(), timedOut, false);
+    }
+
+    /**
+     * Wait for a permit to start a partition.
+     *
+     * @param permits The {@link Semaphore} of partitions that may run at once.
+     * @return true once a permit has been acquired.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private static boolean acquire(final Semaphore permits) throws InterruptedException {
+        permits.acquire();
+        return true;
+    }
+
+    /**
+     * Start a task that holds a permit, releasing the permit when the task has finished.
+     *
+     * @param executor The {@link ExecutorService} to run the task.
+     * @param permits  The {@link Semaphore} the permit was acquired from.
+     * @param task     The task.
+     * @return The {@link Future} of the task.
+     */
+    private static Future<List<ValidationReportEntry>> submit(final ExecutorService executor,
+            final Semaphore permits, final Callable<List<ValidationReportEntry>> task) {
+        try {
+            return executor.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (final RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for a partition to finish, giving up on it if it runs for longer than the timeout. A
+     * partition that is given up on is not stopped, as cancelling it would not interrupt the rules, so
+     * it keeps its permit until it finishes.
+     *
+     * @param result  The {@link Future} of the partition.
+     * @param started The time each partition started, or 0 if it has not.
+     * @param index   The index of the partition.
+     * @param timeout The longest a partition may run for, or null for no limit.
+     * @return The entries for the partition, or null if it or its query timed out.
+     * @throws ExecutionException   if the partition failed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private static List<ValidationReportEntry> await(final Future<List<ValidationReportEntry>> result,
+            final AtomicLongArray started, final int index, final Duration timeout)
+            throws ExecutionException, InterruptedException {
+        if (timeout == null) {
+            return result.get();
+        }
+        final long limit = timeout.toNanos();
+        while (true) {
+            final long start = started.get(index);
+            final long remaining = start == 0 ? limit : start + limit - System.nanoTime();
+            if (remaining <= 0) {
+                return result.isDone() ? result.get() : null;
+            }
+            try {
+                return result.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (final TimeoutException e) {
+                // Check again how long the partition has been running for.
+            }
+        }
+    }
+
+    /**
+     * Split the subjects of a model into partitions of about the same number of triples.
+     *
+     * @param db              {@link MagmaCoreDatabase}.
+     * @param byPossibleWorld true to keep the things in each possible world together.
+     * @param partitionSize   The number of triples to aim for in each partition.
+     * @return The contents of a VALUES block for each partition.
+     */
+    private static List<String> partition(final MagmaCoreDatabase db, final boolean byPossibleWorld,
+            final long partitionSize) {
+        final Map<String, String> worlds = new HashMap<>();
+        final Map<String, Partitions> groups = new LinkedHashMap<>();
+        db.beginRead();
+        try {
+            if (byPossibleWorld) {
+                try (Stream<QueryResult> rows = db.streamResults(SUBJECT_WORLDS)) {
+                    rows.forEach(row -> worlds.put(row.get("s").toString(), row.get("world").asLiteral().getString()));
+                }
+            }
+            try (Stream<QueryResult> rows = db.streamResults(SUBJECT_SIZES)) {
+                // Blank nodes cannot be bound in a VALUES block.
+                rows.filter(row -> row.get("s").isURIResource()).forEach(row -> {
+                    final String subject = row.get("s").asResource().getURI();
+                    groups.computeIfAbsent(worlds.getOrDefault(subject, ""), group -> new Partitions(partitionSize))
+                            .add(subject, row.get("n").asLiteral().getLong());
+                });
+            }
+        } finally {
+            db.abort();
+        }
+
+        final List<String> partitions = new ArrayList<>();
+        groups.values().forEach(group -> partitions.addAll(group.finish()));
+        return partitions;
+    }
+
+    /**
+     * Restrict a CONSTRUCT query to some subjects by binding its {@code ?s} variable at the start of
+     * its WHERE clause.
+     *
+     * @param query  The CONSTRUCT query.
+     * @param values The contents of a VALUES block.
+     * @return The scoped query.
+     */
+    private static String scope(final String query, final String values) {
+        final Matcher matcher = WHERE.matcher(query);
+        matcher.find();
+        return query.substring(0, matcher.end()) + "\nVALUES ?s { " + values + "}\n" + query.substring(matcher.end());
+    }
+
+    /**
+     * Packs subjects into partitions in the order they are added, starting a new partition when the
+     * next subject would take the current one over its size.
+     */
+    private static final class Partitions {
+
+        private final long partitionSize;
+        private final List<String> partitions = new ArrayList<>();
+        private StringBuilder current = new StringBuilder();
+        private long currentSize;
+
+        /**
+         * Constructs a Partitions.
+         *
+         * @param partitionSize The number of triples to aim for in each partition.
+         */
+        Partitions(final long partitionSize) {
+            this.partitionSize = partitionSize;
+        }
+
+        /**
+         * Add a subject to the current partition.
+         *
+         * @param subject The IRI of the subject.
+         * @param triples The number of triples it has.
+         */
+        void add(final String subject, final long triples) {
+            if (currentSize > 0 && currentSize + triples > partitionSize) {
+                finishCurrent();
+            }
+            current.append('<').append(subject).append("> ");
+            currentSize += triples;
+        }
+
+        /**
+         * Finish packing.
+         *
+         * @return The contents of a VALUES block for each partition.
+         */
+        List<String> finish() {
+            if (currentSize > 0) {
+                finishCurrent();
+            }
+            return partitions;
+        }
+
+        /**
+         * Close the current partition and start a new one.
+         */
+        private void finishCurrent() {
+            partitions.add(current.toString());
+            current = new StringBuilder();
+            currentSize = 0;
+        }
+    }
+}
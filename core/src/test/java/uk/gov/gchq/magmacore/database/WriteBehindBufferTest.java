@@ -0,0 +1,103 @@
+package uk.gov.gchq.magmacore.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.update.UpdateAction;
+import org.apache.jena.update.UpdateRequest;
+import org.junit.Test;
+
+/**
+ * Test the {@link WriteBehindBuffer} used by {@link MagmaCoreRemoteSparqlDatabase}.
+ */
+public class WriteBehindBufferTest {
+
+    private static final String NS = "http://example.com/test#";
+
+    /**
+     * Create a test {@link Triple}.
+     *
+     * @param subject The local name of the subject.
+     * @param value   The string value.
+     * @return {@link Triple}
+     */
+    private static Triple triple(final String subject, final String value) {
+        return Triple.create(NodeFactory.createURI(NS + subject), NodeFactory.createURI(NS + "p"),
+                NodeFactory.createLiteralString(value));
+    }
+
+    /**
+     * Check that writes are sent in order in one request, with consecutive inserts and deletes combined.
+     */
+    @Test
+    public void testCoalescesInOrder() {
+        final Dataset dataset = DatasetFactory.create();
+        final List<UpdateRequest> sent = new ArrayList<>();
+        final WriteBehindBuffer buffer = new WriteBehindBuffer(100, Long.MAX_VALUE, request -> {
+            sent.add(request);
+            UpdateAction.execute(request, dataset);
+        });
+
+        buffer.insert(List.of(triple("a", "1")));
+        buffer.insert(List.of(triple("a", "2"), triple("b", "1")));
+        buffer.delete(List.of(triple("a", "1")));
+        buffer.update("DELETE WHERE { <" + NS + "b> ?p ?o }");
+        buffer.insert(List.of(triple("b", "2")));
+        assertTrue(sent.isEmpty());
+
+        buffer.flush();
+        assertEquals(1, sent.size());
+        assertEquals(4, sent.get(0).getOperations().size());
+
+        final Graph graph = dataset.getDefaultModel().getGraph();
+        assertFalse(graph.contains(triple("a", "1")));
+        assertTrue(graph.contains(triple("a", "2")));
+        assertFalse(graph.contains(triple("b", "1")));
+        assertTrue(graph.contains(triple("b", "2")));
+    }
+
+    /**
+     * Check that the buffer sends itself when it is full, and that a failure is kept until the next
+     * flush.
+     */
+    @Test
+    public void testSizeThresholdAndFailure() {
+        final List<UpdateRequest> sent = new ArrayList<>();
+        final RuntimeException failure = new IllegalStateException("unavailable");
+        final WriteBehindBuffer buffer = new WriteBehindBuffer(2, Long.MAX_VALUE, request -> {
+            sent.add(request);
+            if (sent.size() > 1) {
+                throw failure;
+            }
+        });
+
+        buffer.insert(List.of(triple("a", "1")));
+        buffer.insert(List.of(triple("a", "2")));
+        assertEquals(1, sent.size());
+
+        buffer.insert(List.of(triple("b", "1"), triple("b", "2")));
+        assertEquals(2, sent.size());
+        buffer.insert(List.of(triple("c", "1")));
+        try {
+            buffer.flush();
+            fail("Expected the failure of the earlier flush");
+        } catch (final IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(2, sent.size());
+
+        buffer.flush();
+        assertEquals(2, sent.size());
+    }
+}
@@ -0,0 +1,188 @@
+package uk.gov.gchq.magmacore.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.gov.gchq.magmacore.database.CachingMagmaCoreDatabase;
+import uk.gov.gchq.magmacore.database.MagmaCoreJenaDatabase;
+import uk.gov.gchq.magmacore.hqdm.model.Individual;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
+import uk.gov.gchq.magmacore.hqdm.services.SpatioTemporalExtentServices;
+import uk.gov.gchq.magmacore.service.dto.CacheStatistics;
+
+/**
+ * Test the {@link CachingMagmaCoreDatabase} through a {@link MagmaCoreService}.
+ */
+public class MagmaCoreServiceCachingTest {
+
+    private static final IriBase TEST_BASE = new IriBase("test", "http://example.com/test#");
+    private static final IRI INDIVIDUAL1 = new IRI(TEST_BASE, "individual1");
+    private static final IRI INDIVIDUAL2 = new IRI(TEST_BASE, "individual2");
+    private static final IRI INDIVIDUAL3 = new IRI(TEST_BASE, "individual3");
+
+    /**
+     * Create a {@link MagmaCoreService} with a small cache and three individuals.
+     *
+     * @return {@link MagmaCoreService}
+     */
+    private static MagmaCoreService createService() {
+        final MagmaCoreService service = new MagmaCoreService(
+                new CachingMagmaCoreDatabase(new MagmaCoreJenaDatabase(), 2));
+        service.runInWriteTransaction(mc -> {
+            for (final IRI iri : List.of(INDIVIDUAL1, INDIVIDUAL2, INDIVIDUAL3)) {
+                final Individual individual = SpatioTemporalExtentServices.createIndividual(iri);
+                individual.addStringValue(HQDM.ENTITY_NAME, iri.getIri());
+                mc.create(individual);
+            }
+            return mc;
+        });
+        return service;
+    }
+
+    /**
+     * Check that repeated gets are answered from the cache with independent copies, and that the least
+     * recently used object is evicted when the cache is full.
+     */
+    @Test
+    public void testHitsMissesAndEvictions() {
+        final MagmaCoreService service = createService();
+
+        service.runInReadTransaction(mc -> {
+            final Thing first = mc.get(INDIVIDUAL1);
+            final Thing second = mc.get(INDIVIDUAL1);
+            assertNotSame(first, second);
+            assertEquals(first.getPredicates(), second.getPredicates());
+
+            second.addStringValue(HQDM.ENTITY_NAME, "changed");
+            assertFalse(mc.get(INDIVIDUAL1).hasThisStringValue(HQDM.ENTITY_NAME, "changed"));
+
+            mc.get(INDIVIDUAL2);
+            mc.get(INDIVIDUAL3);
+            assertEquals(3, mc.getAll(List.of(INDIVIDUAL1, INDIVIDUAL2, INDIVIDUAL3)).size());
+            return mc;
+        });
+
+        final CacheStatistics statistics = service.getCacheStatistics();
+        assertEquals(4, statistics.hits());
+        assertEquals(4, statistics.misses());
+        assertEquals(2, statistics.evictions());
+        assertEquals(2, statistics.size());
+    }
+
+    /**
+     * Check that a write transaction reads its own changes, that an abort leaves the cache holding the
+     * committed data and that a commit replaces it.
+     */
+    @Test
+    public void testWriteTransactions() {
+        final MagmaCoreService service = createService();
+        service.runInReadTransaction(mc -> {
+            mc.get(INDIVIDUAL1);
+            return mc;
+        });
+
+        try {
+            service.runInWriteTransaction(mc -> {
+                final Thing thing = mc.get(INDIVIDUAL1);
+                thing.addStringValue(HQDM.ENTITY_NAME, "aborted");
+                mc.update(thing);
+                assertTrue(mc.get(INDIVIDUAL1).hasThisStringValue(HQDM.ENTITY_NAME, "aborted"));
+                throw new IllegalStateException("abort");
+            });
+        } catch (final IllegalStateException e) {
+            assertEquals("abort", e.getMessage());
+        }
+
+        service.runInReadTransaction(mc -> {
+            assertFalse(mc.get(INDIVIDUAL1).hasThisStringValue(HQDM.ENTITY_NAME, "aborted"));
+            return mc;
+        });
+
+        service.runInWriteTransaction(mc -> {
+            final Thing thing = mc.get(INDIVIDUAL1);
+            thing.addStringValue(HQDM.ENTITY_NAME, "committed");
+            mc.update(thing);
+            return mc;
+        });
+
+        service.runInReadTransaction(mc -> {
+            assertTrue(mc.get(INDIVIDUAL1).hasThisStringValue(HQDM.ENTITY_NAME, "committed"));
+            assertNull(mc.get(new IRI(TEST_BASE, "missing")));
+            return mc;
+        });
+    }
+
+    /**
+     * Check that an object read by a transaction that began before another thread committed a change
+     * to it is not cached, so that later transactions read the committed change.
+     */
+    @Test
+    public void testReadFromOlderTransactionIsNotCached() throws InterruptedException {
+        final CachingMagmaCoreDatabase db = new CachingMagmaCoreDatabase(new MagmaCoreJenaDatabase());
+        final MagmaCoreService service = new MagmaCoreService(db);
+        service.runInWriteTransaction(mc -> {
+            mc.create(SpatioTemporalExtentServices.createIndividual(INDIVIDUAL1));
+            return mc;
+        });
+
+        db.beginRead();
+        final Thread writer = new Thread(() -> service.runInWriteTransaction(mc -> {
+            final Thing thing = mc.get(INDIVIDUAL1);
+            thing.addStringValue(HQDM.ENTITY_NAME, "committed");
+            mc.update(thing);
+            return mc;
+        }));
+        writer.start();
+        writer.join();
+        assertFalse(db.get(INDIVIDUAL1).hasThisStringValue(HQDM.ENTITY_NAME, "committed"));
+        db.commit();
+
+        service.runInReadTransaction(mc -> {
+            assertTrue(mc.get(INDIVIDUAL1).hasThisStringValue(HQDM.ENTITY_NAME, "committed"));
+            return mc;
+        });
+    }
+
+    /**
+     * Check that an object read and cached by another transaction while a write transaction drops all
+     * the data is not read from the cache once the drop has been committed.
+     */
+    @Test
+    public void testDropIsSeenAfterConcurrentRead() throws InterruptedException {
+        final CachingMagmaCoreDatabase db = new CachingMagmaCoreDatabase(new MagmaCoreJenaDatabase());
+        final MagmaCoreService service = new MagmaCoreService(db);
+        service.runInWriteTransaction(mc -> {
+            mc.create(SpatioTemporalExtentServices.createIndividual(INDIVIDUAL1));
+            return mc;
+        });
+
+        db.beginWrite();
+        db.drop();
+        assertNull(db.get(INDIVIDUAL1));
+        final Thing[] read = new Thing[1];
+        final Thread reader = new Thread(() -> service.runInReadTransaction(mc -> {
+            read[0] = mc.get(INDIVIDUAL1);
+            return mc;
+        }));
+        reader.start();
+        reader.join();
+        assertNotNull(read[0]);
+        db.commit();
+
+        service.runInReadTransaction(mc -> {
+            assertNull(mc.get(INDIVIDUAL1));
+            return mc;
+        });
+    }
+}
@@ -77,4 +77,30 @@ public class MagmaCoreServiceFindByKindOfAssociationTest {
         });
     }
 
+    /**
+     * Check that the associated items are found with and without a point in time when the association
+     * has a beginning and an ending.
+     */
+    @Test
+    public void testFindAssociated() {
+        final MagmaCoreDatabase db = new MagmaCoreJenaDatabase();
+        AssociationPatternTestData.createAssociationPattern(db);
+        final MagmaCoreService service = new MagmaCoreService(db);
+
+        final IRI person1Iri = new IRI(AssociationPatternTestData.TEST_BASE, "person1");
+        final IRI system1Iri = new IRI(AssociationPatternTestData.TEST_BASE, "system1");
+        final PointInTime now = SpatioTemporalExtentServices
+                .createPointInTime(new IRI("http://example.com/entity#now"));
+        now.addStringValue(HQDM.ENTITY_NAME, Instant.now().toString());
+
+        db.beginRead();
+        final List<? extends Thing> untimed = service.findAssociated(person1Iri,
+                AssociationPatternTestData.userAssociationKindIri);
+        final List<? extends Thing> timed = service.findAssociated(person1Iri,
+                AssociationPatternTestData.userAssociationKindIri, now);
+        db.commit();
+
+        assertEquals(List.of(system1Iri), untimed.stream().map(Thing::getId).toList());
+        assertEquals(List.of(system1Iri), timed.stream().map(Thing::getId).toList());
+    }
 }
@@ -15,15 +15,22 @@
 package uk.gov.gchq.magmacore.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.impl.ResourceImpl;
 import org.junit.Test;
 
+import uk.gov.gchq.magmacore.database.CachingMagmaCoreDatabase;
 import uk.gov.gchq.magmacore.database.MagmaCoreDatabase;
 import uk.gov.gchq.magmacore.database.MagmaCoreJenaDatabase;
 import uk.gov.gchq.magmacore.database.query.QueryResultList;
@@ -31,8 +38,12 @@ import uk.gov.gchq.magmacore.database.validation.ValidationReportEntry;
 import uk.gov.gchq.magmacore.exception.MagmaCoreException;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
+import uk.gov.gchq.magmacore.service.dto.InferenceTiming;
+import uk.gov.gchq.magmacore.service.dto.PartitionedValidationReport;
+import uk.gov.gchq.magmacore.service.dto.ValidationPartitioning;
 import uk.gov.gchq.magmacore.service.transformation.DbChangeSet;
 import uk.gov.gchq.magmacore.service.transformation.DbCreateOperation;
+import uk.gov.gchq.magmacore.service.transformation.DbDeleteOperation;
 import uk.gov.gchq.magmacore.service.transformation.DbTransformation;
 
 /**
@@ -55,6 +66,16 @@ public class MagmaCoreServiceInferencingTest {
                 (?s ex:some_predicate ?value)
             ]
                                 """;
+    private static final String TRANSITIVE_RULE = """
+            @prefix ex: <http://example.com/test#> .
+
+            [transitiveDependencies:
+                (?x ex:depends_on ?y) (?y ex:depends_on ?z)
+                ->
+                (?x ex:depends_on ?z)
+            ]
+            """;
+    private static final String INFERRED_GRAPH = "http://example.com/test#inferred";
     private static final IriBase TEST_BASE = new IriBase("test", "http://example.com/test#");
     private static final IRI DEPENDS_ON = new IRI(TEST_BASE, "depends_on");
     private static final IRI SOME_PREDICATE = new IRI(TEST_BASE, "some_predicate");
@@ -147,4 +168,149 @@ public class MagmaCoreServiceInferencingTest {
         final Resource resource = (Resource) entry.additionalInformation();
         assertEquals("*", resource.toString());
     }
+
+    /**
+     * Test that a rule set applied a second time is reused rather than parsed again, and gives the same
+     * result.
+     */
+    @Test
+    public void testRepeatedValidationReusesRuleSet() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        service.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(new IRI(TEST_BASE, "a"), SOME_PREDICATE, "This predicate is invalid"))));
+
+        final String query = "CONSTRUCT {?s ?p ?o} WHERE {?s ?p ?o}";
+        final List<InferenceTiming> timings = new ArrayList<>();
+        final List<ValidationReportEntry> first = service.validate(query, RULE_SET, false, timings::add);
+        final List<ValidationReportEntry> second = service.validate(query, RULE_SET, false, timings::add);
+
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        assertEquals(2, timings.size());
+        assertTrue(timings.get(1).cached());
+    }
+
+    /**
+     * Test that materialised inferences are kept up to date as triples are added and removed.
+     */
+    @Test
+    public void testMaterialisedInferencesFollowChanges() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final IRI a = new IRI(TEST_BASE, "a");
+        final IRI b = new IRI(TEST_BASE, "b");
+        final IRI c = new IRI(TEST_BASE, "c");
+        final IRI d = new IRI(TEST_BASE, "d");
+        service.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(a, DEPENDS_ON, b),
+                new DbCreateOperation(b, DEPENDS_ON, c))));
+
+        service.materialiseInferences(INFERRED_GRAPH, TRANSITIVE_RULE);
+        assertEquals(List.of("a c"), inferredDependencies(service));
+
+        service.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(c, DEPENDS_ON, d))));
+        assertEquals(List.of("a c", "a d", "b d"), inferredDependencies(service));
+
+        // Once b no longer depends on c, a depends on d only through the direct link.
+        service.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(a, DEPENDS_ON, d))));
+        service.runInWriteTransaction(new DbChangeSet(List.of(
+                new DbDeleteOperation(b, DEPENDS_ON, c)), List.of()));
+        assertEquals(List.of(), inferredDependencies(service));
+
+        service.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(b, DEPENDS_ON, c))));
+        assertEquals(List.of("a c", "b d"), inferredDependencies(service));
+
+        // Removing the direct link leaves a depending on d through c.
+        service.runInWriteTransaction(new DbChangeSet(List.of(
+                new DbDeleteOperation(a, DEPENDS_ON, d)), List.of()));
+        assertEquals(List.of("a c", "a d", "b d"), inferredDependencies(service));
+    }
+
+    /**
+     * Test that a materialised inference graph is kept up to date by a database opened later on the
+     * same dataset, and through a cached database.
+     */
+    @Test
+    public void testMaterialisedInferencesAfterReopening() {
+        final Dataset dataset = DatasetFactory.createTxnMem();
+        final IRI a = new IRI(TEST_BASE, "a");
+        final IRI b = new IRI(TEST_BASE, "b");
+        final IRI c = new IRI(TEST_BASE, "c");
+        final IRI d = new IRI(TEST_BASE, "d");
+        final MagmaCoreService service = new MagmaCoreService(
+                new CachingMagmaCoreDatabase(new MagmaCoreJenaDatabase(dataset)));
+        service.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(a, DEPENDS_ON, b),
+                new DbCreateOperation(b, DEPENDS_ON, c))));
+        service.materialiseInferences(INFERRED_GRAPH, TRANSITIVE_RULE);
+        assertEquals(List.of("a c"), inferredDependencies(service));
+
+        final MagmaCoreService reopened = new MagmaCoreService(new MagmaCoreJenaDatabase(dataset));
+        reopened.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(c, DEPENDS_ON, d))));
+        assertEquals(List.of("a c", "a d", "b d"), inferredDependencies(reopened));
+    }
+
+    /**
+     * Find the inferred dependencies in the materialised graph.
+     *
+     * @param service The {@link MagmaCoreService}.
+     * @return The local names of each subject and object, sorted.
+     */
+    private static List<String> inferredDependencies(final MagmaCoreService service) {
+        service.beginRead();
+        try {
+            return service.executeQuery("SELECT ?s ?o WHERE { GRAPH <" + INFERRED_GRAPH + "> { ?s <"
+                    + DEPENDS_ON.getIri() + "> ?o } }").getQueryResults().stream()
+                    .map(result -> localName(result.get("s")) + " " + localName(result.get("o")))
+                    .sorted()
+                    .toList();
+        } finally {
+            service.abort();
+        }
+    }
+
+    /**
+     * Get the part of an IRI after the '#'.
+     *
+     * @param node An {@link RDFNode} for an IRI.
+     * @return The local name.
+     */
+    private static String localName(final RDFNode node) {
+        final String iri = node.toString();
+        return iri.substring(iri.indexOf('#') + 1);
+    }
+
+    /**
+     * Test that validating in partitions finds the same entries as validating the whole model, and
+     * stops early when asked to.
+     */
+    @Test
+    public void testPartitionedValidation() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final List<DbCreateOperation> creates = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            creates.add(new DbCreateOperation(new IRI(TEST_BASE, "a" + i), SOME_PREDICATE, "invalid " + i));
+            creates.add(new DbCreateOperation(new IRI(TEST_BASE, "b" + i), DEPENDS_ON, new IRI(TEST_BASE, "a" + i)));
+        }
+        service.runInWriteTransaction(new DbChangeSet(List.of(), creates));
+
+        final String query = "CONSTRUCT {?s ?p ?o} WHERE {?s ?p ?o}";
+        final List<ValidationReportEntry> whole = service.validate(query, RULE_SET, false);
+        final PartitionedValidationReport partitioned = service.validate(query, RULE_SET, false,
+                new ValidationPartitioning(false, 2, 6, 0, Duration.ofMinutes(1)));
+
+        assertEquals(10, whole.size());
+        assertEquals(whole.size(), partitioned.entries().size());
+        assertEquals(7, partitioned.partitions());
+        assertEquals(0, partitioned.timedOut());
+        assertFalse(partitioned.truncated());
+
+        final PartitionedValidationReport firstErrors = service.validate(query, RULE_SET, false,
+                new ValidationPartitioning(false, 2, 6, 4, null));
+        assertEquals(4, firstErrors.entries().size());
+        assertTrue(firstErrors.truncated());
+    }
 }
@@ -0,0 +1,235 @@
+package uk.gov.gchq.magmacore.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import uk.gov.gchq.magmacore.database.MagmaCoreJenaDatabase;
+import uk.gov.gchq.magmacore.hqdm.model.Individual;
+import uk.gov.gchq.magmacore.hqdm.model.PointInTime;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
+import uk.gov.gchq.magmacore.hqdm.services.SpatioTemporalExtentServices;
+
+/**
+ * Test the temporal index used by {@link MagmaCoreService#findActiveAt(Instant)}.
+ */
+public class MagmaCoreServiceTemporalIndexTest {
+
+    private static final IriBase TEST_BASE = new IriBase("test", "http://example.com/test#");
+    private static final IRI BOUNDED = new IRI(TEST_BASE, "bounded");
+    private static final IRI OPEN_ENDED = new IRI(TEST_BASE, "openEnded");
+    private static final IRI BOUNDED_BEGIN = new IRI(TEST_BASE, "boundedBegin");
+    private static final IRI BOUNDED_END = new IRI(TEST_BASE, "boundedEnd");
+    private static final IRI OPEN_ENDED_BEGIN = new IRI(TEST_BASE, "openEndedBegin");
+
+    private static final Instant T2000 = Instant.parse("2000-01-01T00:00:00Z");
+    private static final Instant T2010 = Instant.parse("2010-01-01T00:00:00Z");
+    private static final Instant T2020 = Instant.parse("2020-01-01T00:00:00Z");
+
+    /**
+     * Create a {@link PointInTime} named by an {@link Instant}.
+     *
+     * @param iri  {@link IRI}
+     * @param when {@link Instant}
+     * @return {@link PointInTime}
+     */
+    private static PointInTime pointInTime(final IRI iri, final Instant when) {
+        final PointInTime pointInTime = SpatioTemporalExtentServices.createPointInTime(iri);
+        pointInTime.addStringValue(HQDM.ENTITY_NAME, when.toString());
+        return pointInTime;
+    }
+
+    /**
+     * Create a service holding an individual existing from 2000 to 2010, and one existing from 2010
+     * with no ending.
+     *
+     * @return {@link MagmaCoreService}
+     */
+    private static MagmaCoreService createService() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        service.runInWriteTransaction(mc -> {
+            final Individual bounded = SpatioTemporalExtentServices.createIndividual(BOUNDED);
+            bounded.addValue(HQDM.BEGINNING, BOUNDED_BEGIN);
+            bounded.addValue(HQDM.ENDING, BOUNDED_END);
+            final Individual openEnded = SpatioTemporalExtentServices.createIndividual(OPEN_ENDED);
+            openEnded.addValue(HQDM.BEGINNING, OPEN_ENDED_BEGIN);
+
+            mc.create(pointInTime(BOUNDED_BEGIN, T2000));
+            mc.create(pointInTime(BOUNDED_END, T2010));
+            mc.create(pointInTime(OPEN_ENDED_BEGIN, T2010));
+            mc.create(bounded);
+            mc.create(openEnded);
+            return mc;
+        });
+        return service;
+    }
+
+    /**
+     * Find the {@link IRI}s of the entities active at an {@link Instant}.
+     *
+     * @param service {@link MagmaCoreService}
+     * @param when    {@link Instant}
+     * @return {@link Set} of {@link IRI}
+     */
+    private static Set<IRI> activeAt(final MagmaCoreService service, final Instant when) {
+        service.beginRead();
+        try {
+            return service.findActiveAt(when).stream().map(Thing::getId).collect(Collectors.toSet());
+        } finally {
+            service.commit();
+        }
+    }
+
+    /**
+     * Check that periods include their beginning and ending and that a missing ending is open.
+     */
+    @Test
+    public void testFindActiveAt() {
+        final MagmaCoreService service = createService();
+
+        assertEquals(Set.of(), activeAt(service, T2000.minusSeconds(1)));
+        assertEquals(Set.of(BOUNDED), activeAt(service, T2000));
+        assertEquals(Set.of(BOUNDED, OPEN_ENDED), activeAt(service, T2010));
+        assertEquals(Set.of(OPEN_ENDED), activeAt(service, T2010.plusSeconds(1)));
+        assertEquals(Set.of(OPEN_ENDED), activeAt(service, T2020));
+    }
+
+    /**
+     * Check that committed changes to events and entities are seen by the index and aborted ones are
+     * not.
+     */
+    @Test
+    public void testIndexFollowsWrites() {
+        final MagmaCoreService service = createService();
+        assertEquals(Set.of(BOUNDED), activeAt(service, T2000));
+
+        // Move the end of the bounded individual to 2020.
+        service.runInWriteTransaction(mc -> {
+            final Thing end = mc.get(BOUNDED_END);
+            end.removeValue(HQDM.ENTITY_NAME, T2010.toString());
+            end.addStringValue(HQDM.ENTITY_NAME, T2020.toString());
+            mc.update(end);
+            return mc;
+        });
+        assertEquals(Set.of(BOUNDED, OPEN_ENDED), activeAt(service, T2020));
+
+        // Give the open ended individual an ending, but abort after using the index.
+        try {
+            service.runInWriteTransaction(mc -> {
+                mc.create(pointInTime(new IRI(TEST_BASE, "openEndedEnd"), T2010));
+                final Thing openEnded = mc.get(OPEN_ENDED);
+                openEnded.addValue(HQDM.ENDING, new IRI(TEST_BASE, "openEndedEnd"));
+                mc.update(openEnded);
+                assertEquals(Set.of(BOUNDED), mc.findActiveAt(T2020).stream().map(Thing::getId)
+                        .collect(Collectors.toSet()));
+                throw new IllegalStateException("abort");
+            });
+        } catch (final IllegalStateException e) {
+            assertEquals("abort", e.getMessage());
+        }
+        assertEquals(Set.of(BOUNDED, OPEN_ENDED), activeAt(service, T2020));
+    }
+
+    /**
+     * Check that a change is seen by the index after it commits even if a read transaction that began
+     * before the commit used the index in the meantime.
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the reader.
+     */
+    @Test
+    public void testIndexFollowsWritesReadConcurrently() throws InterruptedException {
+        final MagmaCoreService service = createService();
+        assertEquals(Set.of(OPEN_ENDED), activeAt(service, T2020));
+
+        // Give the open ended individual an ending while another thread reads the older data.
+        service.beginWrite();
+        service.create(pointInTime(new IRI(TEST_BASE, "openEndedEnd"), T2010));
+        final Thing openEnded = service.get(OPEN_ENDED);
+        openEnded.addValue(HQDM.ENDING, new IRI(TEST_BASE, "openEndedEnd"));
+        service.update(openEnded);
+
+        final Thread reader = new Thread(() -> assertEquals(Set.of(OPEN_ENDED), activeAt(service, T2020)));
+        reader.start();
+        reader.join();
+        service.commit();
+
+        assertEquals(Set.of(), activeAt(service, T2020));
+    }
+
+    /**
+     * Check that an event whose name is not an ISO-8601 instant leaves the period open on that side.
+     */
+    @Test
+    public void testEventNameThatIsNotAnInstant() {
+        final MagmaCoreService service = createService();
+        final IRI undated = new IRI(TEST_BASE, "undated");
+        final IRI undatedBegin = new IRI(TEST_BASE, "undatedBegin");
+        service.runInWriteTransaction(mc -> {
+            final PointInTime begin = SpatioTemporalExtentServices.createPointInTime(undatedBegin);
+            begin.addStringValue(HQDM.ENTITY_NAME, "the beginning of time");
+            final Individual individual = SpatioTemporalExtentServices.createIndividual(undated);
+            individual.addValue(HQDM.BEGINNING, undatedBegin);
+            individual.addValue(HQDM.ENDING, BOUNDED_END);
+            mc.create(begin);
+            mc.create(individual);
+            return mc;
+        });
+
+        assertEquals(Set.of(undated), activeAt(service, T2000.minusSeconds(1)));
+        assertEquals(Set.of(BOUNDED, OPEN_ENDED, undated), activeAt(service, T2010));
+        assertEquals(Set.of(OPEN_ENDED), activeAt(service, T2020));
+    }
+
+    /**
+     * Check the index against every period, both when it is built again after many changes and when
+     * it checks a few changed entities one by one.
+     */
+    @Test
+    public void testManyPeriods() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final Map<IRI, Instant[]> periods = new HashMap<>();
+        final Random random = new Random(1L);
+        for (final int changes : List.of(200, 200, 20)) {
+            service.runInWriteTransaction(mc -> {
+                for (int i = 0; i < changes; i++) {
+                    final String name = "individual" + random.nextInt(300);
+                    final IRI iri = new IRI(TEST_BASE, name);
+                    final IRI begin = new IRI(TEST_BASE, name + "Begin");
+                    final IRI end = new IRI(TEST_BASE, name + "End");
+                    final Instant from = T2000.plus(random.nextInt(3650), ChronoUnit.DAYS);
+                    final Instant to = from.plus(random.nextInt(1000), ChronoUnit.DAYS);
+
+                    final Individual individual = SpatioTemporalExtentServices.createIndividual(iri);
+                    individual.addValue(HQDM.BEGINNING, begin);
+                    individual.addValue(HQDM.ENDING, end);
+                    mc.update(pointInTime(begin, from));
+                    mc.update(pointInTime(end, to));
+                    mc.update(individual);
+                    periods.put(iri, new Instant[] { from, to });
+                }
+                return mc;
+            });
+
+            for (int days = -10; days < 5000; days += 97) {
+                final Instant when = T2000.plus(days, ChronoUnit.DAYS);
+                final Set<IRI> expected = periods.entrySet().stream()
+                        .filter(e -> !when.isBefore(e.getValue()[0]) && !when.isAfter(e.getValue()[1]))
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet());
+                assertEquals(expected, activeAt(service, when));
+            }
+        }
+    }
+}
@@ -20,11 +20,33 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
 import org.junit.Test;
 
 import uk.gov.gchq.magmacore.database.MagmaCoreDatabase;
@@ -40,8 +62,14 @@ import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.RDFS;
 import uk.gov.gchq.magmacore.hqdm.services.SpatioTemporalExtentServices;
+import uk.gov.gchq.magmacore.service.dto.ChangeEvent;
+import uk.gov.gchq.magmacore.service.dto.ChangeSubscription;
+import uk.gov.gchq.magmacore.service.dto.IntegrityCheckTiming;
+import uk.gov.gchq.magmacore.service.dto.IntegrityReport;
+import uk.gov.gchq.magmacore.service.dto.LoadProgress;
 import uk.gov.gchq.magmacore.service.transformation.DbChangeSet;
 import uk.gov.gchq.magmacore.service.transformation.DbCreateOperation;
+import uk.gov.gchq.magmacore.service.transformation.DbTransformation;
 
 /**
  * Check that {@link MagmaCoreService} works correctly.
@@ -227,6 +255,36 @@ public class MagmaCoreServiceTest {
         assertTrue(found.isEmpty());
     }
 
+    /**
+     * Check that the point in time filter includes its beginning and ending and excludes times outside
+     * them.
+     */
+    @Test
+    public void testFindBySignAtPointInTimeBoundaries() throws MagmaCoreException {
+        final MagmaCoreDatabase db = new MagmaCoreJenaDatabase();
+        SignPatternTestData.createSignPattern(db);
+        final MagmaCoreService service = new MagmaCoreService(db);
+
+        db.beginRead();
+        final Instant begin = Instant.parse(db.get(new IRI(SignPatternTestData.TEST_BASE, "begin"))
+                .oneValue(HQDM.ENTITY_NAME));
+        final Instant end = Instant.parse(db.get(new IRI(SignPatternTestData.TEST_BASE, "end"))
+                .oneValue(HQDM.ENTITY_NAME));
+
+        for (final Instant when : List.of(begin, end, begin.minusSeconds(1L), end.plusSeconds(1L))) {
+            final PointInTime pointInTime = SpatioTemporalExtentServices
+                    .createPointInTime(new IRI("http://example.com/entity#when"));
+            pointInTime.addStringValue(HQDM.ENTITY_NAME, when.toString());
+
+            final List<? extends Thing> found = service.findBySignValue(SignPatternTestData.community1,
+                    SignPatternTestData.pattern1, "person1", pointInTime);
+
+            final boolean inside = !when.isBefore(begin) && !when.isAfter(end);
+            assertEquals(inside, !found.isEmpty());
+        }
+        db.commit();
+    }
+
     /**
      * Test that entities can be found by predicate only or predicate and value.
      */
@@ -422,4 +480,479 @@ public class MagmaCoreServiceTest {
         assertEquals(2, result.size());
         result.values().forEach(t -> assertTrue(t instanceof Thing));
     }
+
+    /**
+     * Check that members of a class can be streamed, with each member emitted once with all of its
+     * predicates.
+     */
+    @Test
+    public void testStreamByClass() {
+        final MagmaCoreService service = MagmaCoreServiceFactory.createWithJenaDatabase();
+
+        final IRI classIri = new IRI(TEST_BASE, "classOfIndividual");
+        final IRI otherClassIri = new IRI(TEST_BASE, "otherClassOfIndividual");
+        final Individual individual1 = SpatioTemporalExtentServices
+                .createIndividual(new IRI(TEST_BASE, "individual1"));
+        final Individual individual2 = SpatioTemporalExtentServices
+                .createIndividual(new IRI(TEST_BASE, "individual2"));
+        final Individual individual3 = SpatioTemporalExtentServices
+                .createIndividual(new IRI(TEST_BASE, "individual3"));
+
+        individual1.addValue(HQDM.MEMBER_OF, classIri);
+        individual2.addValue(HQDM.MEMBER_OF, classIri);
+        individual2.addValue(HQDM.MEMBER_OF, otherClassIri);
+        individual3.addValue(HQDM.MEMBER_OF, otherClassIri);
+
+        service.runInWriteTransaction(mc -> {
+            mc.create(individual1);
+            mc.create(individual2);
+            mc.create(individual3);
+            return mc;
+        });
+
+        service.runInReadTransaction(mc -> {
+            final List<Thing> result;
+            try (Stream<Thing> stream = mc.streamByClass(classIri)) {
+                result = stream.collect(Collectors.toList());
+            }
+
+            assertEquals(2, result.size());
+            assertTrue(result.contains(individual1));
+            assertTrue(result.contains(individual2));
+
+            final Thing found = result.get(result.indexOf(individual2));
+            assertTrue(found.hasThisValue(HQDM.MEMBER_OF, classIri));
+            assertTrue(found.hasThisValue(HQDM.MEMBER_OF, otherClassIri));
+            return mc;
+        });
+    }
+
+    /**
+     * Check that native graph access and SPARQL produce the same results for get and the findByPredicate
+     * methods.
+     */
+    @Test
+    public void testNativeGraphAccessMatchesSparql() {
+        final MagmaCoreJenaDatabase db = new MagmaCoreJenaDatabase();
+        SignPatternTestData.createSignPattern(db);
+
+        final List<Function<MagmaCoreDatabase, List<Thing>>> lookups = List.of(
+                d -> List.of(d.get(SignPatternTestData.person1.getId())),
+                d -> d.findByPredicateIri(HQDM.MEMBER_OF, SignPatternTestData.classOfPersonIri),
+                d -> d.findByPredicateIriOnly(HQDM.VALUE_),
+                d -> d.findByPredicateIriAndValue(HQDM.MEMBER_OF_KIND, SignPatternTestData.kindOfPersonIri),
+                d -> d.findByPredicateIriAndValue(HQDM.VALUE_, "person2"),
+                d -> d.findByPredicateIriAndStringCaseInsensitive(HQDM.VALUE_, "person3"));
+
+        db.beginRead();
+        for (final Function<MagmaCoreDatabase, List<Thing>> lookup : lookups) {
+            db.setNativeGraphAccess(true);
+            final Map<IRI, Map<IRI, Set<Object>>> fromGraph = predicatesById(lookup.apply(db));
+            db.setNativeGraphAccess(false);
+            final Map<IRI, Map<IRI, Set<Object>>> fromSparql = predicatesById(lookup.apply(db));
+
+            assertFalse(fromGraph.isEmpty());
+            assertEquals(fromSparql, fromGraph);
+        }
+        assertNull(db.get(new IRI(TEST_BASE, "missing")));
+        db.setNativeGraphAccess(true);
+        assertNull(db.get(new IRI(TEST_BASE, "missing")));
+        db.commit();
+    }
+
+    /**
+     * Check that streamQuery returns each thing whole even if the query orders its rows by something
+     * other than the subject.
+     */
+    @Test
+    public void testStreamQueryWithOtherOrderBy() {
+        final MagmaCoreJenaDatabase db = new MagmaCoreJenaDatabase();
+        SignPatternTestData.createSignPattern(db);
+
+        db.beginRead();
+        final List<Thing> expected = db.findByPredicateIriOnly(RDFS.RDF_TYPE);
+        final List<Thing> streamed;
+        try (Stream<Thing> stream = db.streamQuery("SELECT ?s ?p ?o WHERE { ?s ?p ?o } ORDER BY DESC(?o) ?p")) {
+            streamed = stream.collect(Collectors.toList());
+        }
+        db.commit();
+
+        assertEquals(expected.size(), streamed.size());
+        assertEquals(predicatesById(expected), predicatesById(streamed));
+    }
+
+    /**
+     * Check that getAll returns the same objects as get for both native graph access and SPARQL, and
+     * leaves out IRIs that are not found.
+     */
+    @Test
+    public void testGetAll() {
+        final MagmaCoreJenaDatabase db = new MagmaCoreJenaDatabase();
+        SignPatternTestData.createSignPattern(db);
+
+        final IRI missing = new IRI(TEST_BASE, "missing");
+        final List<IRI> iris = List.of(SignPatternTestData.person1.getId(), SignPatternTestData.person2.getId(),
+                SignPatternTestData.person1.getId(), missing);
+
+        db.beginRead();
+        for (final boolean nativeGraphAccess : List.of(true, false)) {
+            db.setNativeGraphAccess(nativeGraphAccess);
+            final Map<IRI, Thing> result = db.getAll(iris);
+
+            assertEquals(2, result.size());
+            assertFalse(result.containsKey(missing));
+            for (final IRI iri : List.of(SignPatternTestData.person1.getId(), SignPatternTestData.person2.getId())) {
+                assertEquals(db.get(iri).getPredicates(), result.get(iri).getPredicates());
+            }
+            assertTrue(db.getAll(List.of()).isEmpty());
+        }
+        db.commit();
+    }
+
+    /**
+     * Check that update only changes the values that differ, leaving unchanged stored literals as they
+     * are.
+     */
+    @Test
+    public void testUpdateAppliesDelta() {
+        final MagmaCoreJenaDatabase db = new MagmaCoreJenaDatabase();
+        final MagmaCoreService service = new MagmaCoreService(db);
+        final IRI individualIri = new IRI(TEST_BASE, "individual");
+        final IRI class1 = new IRI(TEST_BASE, "class1");
+        final IRI class2 = new IRI(TEST_BASE, "class2");
+        final Triple typedName = Triple.create(NodeFactory.createURI(individualIri.getIri()),
+                NodeFactory.createURI(HQDM.ENTITY_NAME.getIri()), NodeFactory.createLiteralByValue(42));
+
+        service.runInWriteTransaction(mc -> {
+            final Individual individual = SpatioTemporalExtentServices.createIndividual(individualIri);
+            individual.addValue(HQDM.MEMBER_OF, class1);
+            mc.create(individual);
+            db.getDataset().getDefaultModel().getGraph().add(typedName);
+            return mc;
+        });
+
+        service.runInWriteTransaction(mc -> {
+            final Thing individual = mc.get(individualIri);
+            individual.removeValue(HQDM.MEMBER_OF, class1);
+            individual.addValue(HQDM.MEMBER_OF, class2);
+            mc.update(individual);
+            return mc;
+        });
+
+        db.beginRead();
+        final Graph graph = db.getDataset().getDefaultModel().getGraph();
+        assertTrue(graph.contains(typedName));
+        assertEquals(3, graph.size());
+        final Thing updated = db.get(individualIri);
+        assertTrue(updated.hasThisValue(HQDM.MEMBER_OF, class2));
+        assertFalse(updated.hasThisValue(HQDM.MEMBER_OF, class1));
+        db.commit();
+    }
+
+    /**
+     * Check that change sets hold only the changed values, for both tracked and untracked objects, and
+     * that applying the inverse restores the stored state.
+     */
+    @Test
+    public void testCreateDbChangeSet() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final IRI tracked = new IRI(TEST_BASE, "tracked");
+        final IRI untracked = new IRI(TEST_BASE, "untracked");
+        final IRI class1 = new IRI(TEST_BASE, "class1");
+        final IRI class2 = new IRI(TEST_BASE, "class2");
+
+        service.runInWriteTransaction(mc -> {
+            for (final IRI iri : List.of(tracked, untracked)) {
+                final Individual individual = SpatioTemporalExtentServices.createIndividual(iri);
+                individual.addValue(HQDM.MEMBER_OF, class1);
+                mc.create(individual);
+            }
+            return mc;
+        });
+
+        service.runInWriteTransaction(mc -> {
+            final Thing trackedThing = mc.get(tracked);
+            trackedThing.trackChanges();
+            final Thing untrackedThing = mc.get(untracked);
+            for (final Thing thing : List.of(trackedThing, untrackedThing)) {
+                thing.removeValue(HQDM.MEMBER_OF, class1);
+                thing.addValue(HQDM.MEMBER_OF, class2);
+            }
+
+            final DbChangeSet changeSet = mc.createDbChangeSet(List.of(trackedThing, untrackedThing));
+            final DbTransformation transformation = new DbTransformation(List.of(changeSet));
+            transformation.apply(mc);
+            assertTrue(mc.get(tracked).hasThisValue(HQDM.MEMBER_OF, class2));
+            assertFalse(mc.get(untracked).hasThisValue(HQDM.MEMBER_OF, class1));
+
+            transformation.invert().apply(mc);
+            assertTrue(mc.get(tracked).hasThisValue(HQDM.MEMBER_OF, class1));
+            assertFalse(mc.get(untracked).hasThisValue(HQDM.MEMBER_OF, class2));
+            return mc;
+        });
+    }
+
+    /**
+     * Check that a chunked import commits every chunk, reports its progress and resumes from a
+     * checkpoint.
+     *
+     * @throws IOException if the checkpoint file cannot be used.
+     */
+    @Test
+    public void testImportTtlInChunks() throws IOException {
+        final StringBuilder ttl = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            ttl.append("<http://example.com/test#s").append(i).append("> <http://example.com/test#p> \"")
+                    .append(i).append("\" .\n");
+        }
+        final byte[] bytes = ttl.toString().getBytes(StandardCharsets.UTF_8);
+
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final List<LoadProgress> progress = new ArrayList<>();
+        assertEquals(5, service.importTtl(new ByteArrayInputStream(bytes), 2, null, progress::add));
+        assertEquals(List.of(2L, 4L, 5L), progress.stream().map(LoadProgress::triples).toList());
+        assertEquals(3, progress.get(2).chunks());
+        assertEquals(5, countTriples(service));
+
+        // Resume a load that had already committed three triples.
+        final Path checkpoint = Files.createTempFile("magma-core", ".checkpoint");
+        Files.writeString(checkpoint, "3");
+        final MagmaCoreService resumed = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        assertEquals(5, resumed.importTtl(new ByteArrayInputStream(bytes), 2, checkpoint, null));
+        assertEquals(2, countTriples(resumed));
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    /**
+     * Check that running the data integrity checks in parallel finds the same errors as running them
+     * one after another, and reports every check.
+     */
+    @Test
+    public void testParallelVerifyModel() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        service.runInWriteTransaction(mc -> {
+            final Individual individual = SpatioTemporalExtentServices
+                    .createIndividual(new IRI(TEST_BASE, "individual"));
+            individual.addValue(HQDM.MEMBER_OF, new IRI(TEST_BASE, "class"));
+            mc.create(individual);
+            return mc;
+        });
+
+        final List<Thing> errors = service.verifyModel();
+        final IntegrityReport report = service.verifyModel(4);
+
+        assertFalse(errors.isEmpty());
+        assertEquals(errors.size(), report.errors().size());
+        assertEquals(17, report.checks().size());
+        assertEquals(errors.size(), report.checks().stream().mapToInt(IntegrityCheckTiming::errors).sum());
+    }
+
+    /**
+     * Check that the single pass verification reports the same errors as running each check as a
+     * query, including the checks that look at linked entities.
+     */
+    @Test
+    public void testSinglePassVerifyModelMatchesQueries() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final IRI association = new IRI(TEST_BASE, "association");
+        final IRI kindOfAssociation = new IRI(TEST_BASE, "kindOfAssociation");
+        final IRI role = new IRI(TEST_BASE, "role");
+        final IRI repBySign = new IRI(TEST_BASE, "repBySign");
+        final IRI pattern = new IRI(TEST_BASE, "pattern");
+        service.runInWriteTransaction(new DbChangeSet(List.of(), List.of(
+                new DbCreateOperation(association, RDFS.RDF_TYPE, HQDM.ASSOCIATION),
+                new DbCreateOperation(association, HQDM.MEMBER_OF_KIND, kindOfAssociation),
+                new DbCreateOperation(kindOfAssociation, RDFS.RDF_TYPE, HQDM.KIND_OF_ASSOCIATION),
+                new DbCreateOperation(role, RDFS.RDF_TYPE, HQDM.ROLE),
+                new DbCreateOperation(role, HQDM.PART_OF_BY_CLASS_, association),
+                new DbCreateOperation(new IRI(TEST_BASE, "participant1"), RDFS.RDF_TYPE, HQDM.PARTICIPANT),
+                new DbCreateOperation(new IRI(TEST_BASE, "participant1"), HQDM.PARTICIPANT_IN, association),
+                new DbCreateOperation(new IRI(TEST_BASE, "participant1"), HQDM.MEMBER_OF_KIND, role),
+                new DbCreateOperation(new IRI(TEST_BASE, "participant2"), RDFS.RDF_TYPE, HQDM.PARTICIPANT),
+                new DbCreateOperation(new IRI(TEST_BASE, "participant2"), HQDM.PARTICIPANT_IN, association),
+                new DbCreateOperation(repBySign, RDFS.RDF_TYPE, HQDM.REPRESENTATION_BY_SIGN),
+                new DbCreateOperation(new IRI(TEST_BASE, "stateOfSign"), RDFS.RDF_TYPE, HQDM.STATE_OF_SIGN),
+                new DbCreateOperation(new IRI(TEST_BASE, "stateOfSign"), HQDM.PARTICIPANT_IN, repBySign),
+                new DbCreateOperation(pattern, RDFS.RDF_TYPE, HQDM.PATTERN),
+                new DbCreateOperation(new IRI(TEST_BASE, "untyped"), HQDM.CONSISTS_OF_BY_CLASS, pattern),
+                new DbCreateOperation(new IRI(TEST_BASE, "sign"), RDFS.RDF_TYPE, HQDM.SIGN))));
+
+        final Function<List<Thing>, Set<String>> summarise = errors -> errors.stream()
+                .map(error -> error.getId().getIri() + " "
+                        + error.getPredicates().keySet().stream().map(IRI::getIri).sorted().toList())
+                .collect(Collectors.toSet());
+        final List<Thing> errors = service.verifyModel();
+
+        assertEquals(summarise.apply(service.verifyModel(2).errors()), summarise.apply(errors));
+        assertTrue(summarise.apply(errors).stream().anyMatch(error -> error.startsWith(TEST_BASE.getNamespace()
+                + "participant2 ") && error.contains("error_participant_with_no_role")));
+    }
+
+    /**
+     * Check that verifying the model around a change set only reports errors for the entities it
+     * touched and their neighbours.
+     */
+    @Test
+    public void testIncrementalVerifyModel() {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final IRI changed = new IRI(TEST_BASE, "changed");
+        final IRI neighbour = new IRI(TEST_BASE, "neighbour");
+        final IRI unrelated = new IRI(TEST_BASE, "unrelated");
+        service.runInWriteTransaction(mc -> {
+            mc.create(SpatioTemporalExtentServices.createIndividual(changed));
+            final Individual individual = SpatioTemporalExtentServices.createIndividual(neighbour);
+            individual.addValue(HQDM.PART__OF, changed);
+            mc.create(individual);
+            mc.create(SpatioTemporalExtentServices.createIndividual(unrelated));
+            return mc;
+        });
+
+        final DbChangeSet changeSet = new DbChangeSet(List.of(),
+                List.of(new DbCreateOperation(changed, HQDM.MEMBER_OF, new IRI(TEST_BASE, "class"))));
+        service.runInWriteTransaction(changeSet);
+
+        final Set<IRI> all = service.verifyModel().stream().map(Thing::getId).collect(Collectors.toSet());
+        final Set<IRI> scoped = service.verifyModel(changeSet.subjects()).stream().map(Thing::getId)
+                .collect(Collectors.toSet());
+
+        assertTrue(all.contains(unrelated));
+        assertEquals(Set.of(changed, neighbour), scoped);
+        assertTrue(service.verifyModel(List.of()).isEmpty());
+    }
+
+    /**
+     * Check that subscribers receive the net changes of committed transactions only.
+     *
+     * @throws InterruptedException if interrupted while waiting for an event.
+     */
+    @Test
+    public void testSubscribe() throws InterruptedException {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+        final IRI individualIri = new IRI(TEST_BASE, "individual");
+        final Triple memberOf = Triple.create(NodeFactory.createURI(individualIri.getIri()),
+                NodeFactory.createURI(HQDM.MEMBER_OF.getIri()), NodeFactory.createURI(TEST_BASE.getNamespace() + "c"));
+
+        try (ChangeSubscription subscription = service.subscribe(events::add, 16, false)) {
+            service.runInWriteTransaction(mc -> {
+                final Individual individual = SpatioTemporalExtentServices.createIndividual(individualIri);
+                individual.addValue(HQDM.MEMBER_OF, new IRI(TEST_BASE, "c"));
+                mc.create(individual);
+                return mc;
+            });
+            final ChangeEvent created = events.poll(10, TimeUnit.SECONDS);
+            assertTrue(created.added().contains(memberOf));
+            assertTrue(created.removed().isEmpty());
+
+            // Removing and adding the same value again in one transaction is not a net change.
+            service.runInWriteTransaction(mc -> {
+                final Thing thing = mc.get(individualIri);
+                thing.removeValue(HQDM.MEMBER_OF, new IRI(TEST_BASE, "c"));
+                mc.update(thing);
+                thing.addValue(HQDM.MEMBER_OF, new IRI(TEST_BASE, "c"));
+                thing.addValue(HQDM.MEMBER_OF, new IRI(TEST_BASE, "d"));
+                mc.update(thing);
+                return mc;
+            });
+            final ChangeEvent updated = events.poll(10, TimeUnit.SECONDS);
+            assertEquals(1, updated.added().size());
+            assertTrue(updated.removed().isEmpty());
+
+            // Nothing is published for an aborted transaction.
+            service.beginWrite();
+            service.delete(service.get(individualIri));
+            service.abort();
+            service.runInWriteTransaction(mc -> {
+                mc.delete(mc.get(individualIri));
+                return mc;
+            });
+            final ChangeEvent deleted = events.poll(10, TimeUnit.SECONDS);
+            assertEquals(3, deleted.removed().size());
+            assertTrue(deleted.added().isEmpty());
+            assertEquals(0, deleted.missed());
+        }
+    }
+
+    /**
+     * Check that read transactions ending on another thread neither publish nor discard the changes of
+     * a write transaction that is still open.
+     *
+     * @throws InterruptedException if interrupted while waiting for the reader or an event.
+     */
+    @Test
+    public void testSubscribeWithConcurrentReader() throws InterruptedException {
+        final MagmaCoreService service = new MagmaCoreService(new MagmaCoreJenaDatabase());
+        final BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+        final IRI individualIri = new IRI(TEST_BASE, "individual");
+        final Triple memberOf = Triple.create(NodeFactory.createURI(individualIri.getIri()),
+                NodeFactory.createURI(HQDM.MEMBER_OF.getIri()), NodeFactory.createURI(TEST_BASE.getNamespace() + "c"));
+
+        try (ChangeSubscription subscription = service.subscribe(events::add, 16, false)) {
+            service.beginWrite();
+            final Individual individual = SpatioTemporalExtentServices.createIndividual(individualIri);
+            individual.addValue(HQDM.MEMBER_OF, new IRI(TEST_BASE, "c"));
+            service.create(individual);
+
+            final Thread reader = new Thread(() -> {
+                service.beginRead();
+                service.commit();
+                service.beginRead();
+                service.abort();
+            });
+            reader.start();
+            reader.join();
+            assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+
+            service.commit();
+            final ChangeEvent created = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(created);
+            assertTrue(created.added().contains(memberOf));
+        }
+    }
+
+    /**
+     * Check that a gzipped streaming export can be read back as the same triples.
+     *
+     * @throws IOException if the export cannot be decompressed.
+     */
+    @Test
+    public void testExportGzip() throws IOException {
+        final MagmaCoreJenaDatabase db = new MagmaCoreJenaDatabase();
+        SignPatternTestData.createSignPattern(db);
+        final MagmaCoreService service = new MagmaCoreService(db);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(out, Lang.NTRIPLES, true);
+
+        final Model exported = ModelFactory.createDefaultModel();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            RDFDataMgr.read(exported, in, Lang.NTRIPLES);
+        }
+        db.beginRead();
+        assertTrue(exported.isIsomorphicWith(db.getDataset().getDefaultModel()));
+        db.commit();
+    }
+
+    /**
+     * Count the triples in the database of a {@link MagmaCoreService}.
+     *
+     * @param service {@link MagmaCoreService}
+     * @return the number of triples.
+     */
+    private static int countTriples(final MagmaCoreService service) {
+        service.beginRead();
+        final int count = service.executeQuery("SELECT * WHERE { ?s ?p ?o }").getQueryResults().size();
+        service.commit();
+        return count;
+    }
+
+    /**
+     * Index the predicates of each {@link Thing} by its {@link IRI}.
+     *
+     * @param things a {@link List} of {@link Thing}
+     * @return a {@link Map} of {@link IRI} to predicates.
+     */
+    private static Map<IRI, Map<IRI, Set<Object>>> predicatesById(final List<Thing> things) {
+        return things.stream().collect(Collectors.toMap(Thing::getId, Thing::getPredicates));
+    }
 }
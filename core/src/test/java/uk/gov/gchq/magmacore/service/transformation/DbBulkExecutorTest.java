@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.transformation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.gov.gchq.magmacore.exception.DbTransformationException;
+import uk.gov.gchq.magmacore.hqdm.model.Thing;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.RDFS;
+import uk.gov.gchq.magmacore.service.MagmaCoreService;
+import uk.gov.gchq.magmacore.service.MagmaCoreServiceFactory;
+
+/**
+ * Check that {@link DbBulkExecutor} gives the same results as applying each operation on its own.
+ */
+public class DbBulkExecutorTest {
+
+    private static final IriBase TEST_BASE = new IriBase("test", "http://example.com/test#");
+
+    private static final IRI INDIVIDUAL1 = new IRI(TEST_BASE, "individual1");
+    private static final IRI INDIVIDUAL2 = new IRI(TEST_BASE, "individual2");
+
+    /**
+     * Test that a sequence of operations on several subjects is applied, including a create that is
+     * deleted again later in the sequence.
+     */
+    @Test
+    public void testApply() {
+        final MagmaCoreService mcService = MagmaCoreServiceFactory.createWithJenaDatabase();
+        mcService.runInWriteTransaction(new DbCreateOperation(INDIVIDUAL2, HQDM.MEMBER_OF, "class1"));
+
+        mcService.runInWriteTransaction(mc -> DbBulkExecutor.apply(mc, List.of(
+                new DbCreateOperation(INDIVIDUAL1, RDFS.RDF_TYPE, HQDM.INDIVIDUAL),
+                new DbCreateOperation(INDIVIDUAL1, HQDM.MEMBER_OF, "class1"),
+                new DbCreateOperation(INDIVIDUAL2, RDFS.RDF_TYPE, HQDM.INDIVIDUAL),
+                new DbDeleteOperation(INDIVIDUAL2, HQDM.MEMBER_OF, "class1"),
+                new DbCreateOperation(INDIVIDUAL2, HQDM.MEMBER_OF, "class2"),
+                new DbDeleteOperation(INDIVIDUAL1, HQDM.MEMBER_OF, "class1"))));
+
+        final Thing individual1 = mcService.getInTransaction(INDIVIDUAL1);
+        assertTrue(individual1.hasThisValue(RDFS.RDF_TYPE, HQDM.INDIVIDUAL));
+        assertFalse(individual1.hasThisValue(HQDM.MEMBER_OF, "class1"));
+
+        final Thing individual2 = mcService.getInTransaction(INDIVIDUAL2);
+        assertTrue(individual2.hasThisValue(RDFS.RDF_TYPE, HQDM.INDIVIDUAL));
+        assertFalse(individual2.hasThisValue(HQDM.MEMBER_OF, "class1"));
+        assertTrue(individual2.hasThisValue(HQDM.MEMBER_OF, "class2"));
+    }
+
+    /**
+     * Test that creating a triple that an earlier operation in the sequence created fails with the same
+     * exception as applying the operations one at a time, and that nothing is written.
+     */
+    @Test
+    public void testCreateWhenAlreadyPresent() {
+        final MagmaCoreService mcService = MagmaCoreServiceFactory.createWithJenaDatabase();
+        final DbCreateOperation create = new DbCreateOperation(INDIVIDUAL1, RDFS.RDF_TYPE, HQDM.INDIVIDUAL);
+
+        try {
+            mcService.runInWriteTransaction(mc -> DbBulkExecutor.apply(mc, List.of(create, create)));
+            fail("Expected a DbTransformationException");
+        } catch (final DbTransformationException e) {
+            assertEquals(create.alreadyExists().getMessage(), e.getMessage());
+        }
+        assertNull(mcService.getInTransaction(INDIVIDUAL1));
+    }
+
+    /**
+     * Test that deleting a triple that an earlier operation in the sequence deleted fails.
+     */
+    @Test(expected = DbTransformationException.class)
+    public void testDeleteWhenNotPresent() {
+        final MagmaCoreService mcService = MagmaCoreServiceFactory.createWithJenaDatabase();
+        mcService.runInWriteTransaction(new DbCreateOperation(INDIVIDUAL1, HQDM.MEMBER_OF, "class1"));
+        final DbDeleteOperation delete = new DbDeleteOperation(INDIVIDUAL1, HQDM.MEMBER_OF, "class1");
+
+        mcService.runInWriteTransaction(mc -> DbBulkExecutor.apply(mc, List.of(delete, delete)));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.service.transformation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.RDFS;
+import uk.gov.gchq.magmacore.service.MagmaCoreService;
+import uk.gov.gchq.magmacore.service.MagmaCoreServiceFactory;
+
+/**
+ * Check that {@link DbChangeJournal} records change sets and reads them back in both directions.
+ */
+public class DbChangeJournalTest {
+
+    private static final IriBase TEST_BASE = new IriBase("test", "http://example.com/test#");
+
+    /**
+     * Create some change sets with each kind of value.
+     *
+     * @param count The number of change sets.
+     * @return A {@link List} of {@link DbChangeSet}.
+     */
+    private static List<DbChangeSet> changeSets(final int count) {
+        final List<DbChangeSet> changeSets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final IRI subject = new IRI(TEST_BASE, "individual" + i);
+            changeSets.add(new DbChangeSet(
+                    List.of(new DbDeleteOperation(subject, HQDM.MEMBER_OF, "old value " + i)),
+                    List.of(new DbCreateOperation(subject, RDFS.RDF_TYPE, HQDM.INDIVIDUAL),
+                            new DbCreateOperation(subject, HQDM.MEMBER_OF, "new value " + i),
+                            new DbCreateOperation(subject, HQDM.VALUE_, (double) i))));
+        }
+        return changeSets;
+    }
+
+    /**
+     * Check that two change sets have the same operations.
+     *
+     * @param expected The expected {@link DbChangeSet}.
+     * @param actual   The actual {@link DbChangeSet}.
+     */
+    private static void assertSameOperations(final DbChangeSet expected, final DbChangeSet actual) {
+        assertEquals(expected.deletes, actual.deletes);
+        assertEquals(expected.creates, actual.creates);
+    }
+
+    /**
+     * Test that change sets spread over several segments can be read forwards and inverted backwards,
+     * including after the journal is reopened.
+     *
+     * @throws IOException if the journal directory cannot be created.
+     */
+    @Test
+    public void testForwardAndInverse() throws IOException {
+        final Path directory = Files.createTempDirectory("journal");
+        final List<DbChangeSet> changeSets = changeSets(50);
+        try (DbChangeJournal journal = new DbChangeJournal(directory, 1024)) {
+            changeSets.subList(0, 30).forEach(journal::append);
+        }
+
+        try (DbChangeJournal journal = new DbChangeJournal(directory, 1024)) {
+            assertEquals(30, journal.size());
+            changeSets.subList(30, 50).forEach(journal::append);
+            assertEquals(50, journal.size());
+            try (var files = Files.list(directory)) {
+                assertTrue(files.count() > 1);
+            }
+
+            final Iterator<DbChangeSet> forward = journal.forward();
+            changeSets.forEach(changeSet -> assertSameOperations(changeSet, forward.next()));
+            assertFalse(forward.hasNext());
+
+            final Iterator<DbChangeSet> inverse = journal.inverse();
+            for (int i = changeSets.size() - 1; i >= 0; i--) {
+                assertSameOperations(DbChangeSet.invert(changeSets.get(i)), inverse.next());
+            }
+            assertFalse(inverse.hasNext());
+        }
+    }
+
+    /**
+     * Test that a service records committed change sets only, and that the journal can undo them.
+     *
+     * @throws IOException if the journal directory cannot be created.
+     */
+    @Test
+    public void testServiceJournal() throws IOException {
+        final MagmaCoreService mcService = MagmaCoreServiceFactory.createWithJenaDatabase();
+        final List<DbChangeSet> changeSets = changeSets(2);
+        try (DbChangeJournal journal = new DbChangeJournal(Files.createTempDirectory("journal"))) {
+            mcService.setChangeJournal(journal);
+
+            mcService.runInWriteTransaction(new DbChangeSet(List.of(), changeSets.get(0).creates));
+            mcService.runInWriteTransaction(new DbChangeSet(List.of(), changeSets.get(1).creates));
+            try {
+                mcService.runInWriteTransaction(mc -> {
+                    new DbChangeSet(List.of(), changeSets.get(1).creates).apply(mc);
+                    throw new IllegalStateException("abort");
+                });
+            } catch (final IllegalStateException e) {
+                // The change set of the aborted transaction should not be recorded.
+            }
+            assertEquals(2, journal.size());
+
+            mcService.setChangeJournal(null);
+            DbStreamingApplier.apply(mcService, journal.inverse(), 2, null, null);
+            assertNull(mcService.getInTransaction(new IRI(TEST_BASE, "individual0")));
+            assertNull(mcService.getInTransaction(new IRI(TEST_BASE, "individual1")));
+        }
+    }
+
+    /**
+     * Test that a read transaction committed by another thread does not record the change sets of a
+     * write transaction that has not committed.
+     *
+     * @throws IOException          if the journal directory cannot be created.
+     * @throws InterruptedException if the test is interrupted while waiting for the reader.
+     */
+    @Test
+    public void testReaderCommitDoesNotRecordWriterChanges() throws IOException, InterruptedException {
+        final MagmaCoreService mcService = MagmaCoreServiceFactory.createWithJenaDatabase();
+        final List<DbChangeSet> changeSets = changeSets(1);
+        try (DbChangeJournal journal = new DbChangeJournal(Files.createTempDirectory("journal"))) {
+            mcService.setChangeJournal(journal);
+
+            mcService.beginWrite();
+            new DbChangeSet(List.of(), changeSets.get(0).creates).apply(mcService);
+            final Thread reader = new Thread(() -> {
+                mcService.beginRead();
+                mcService.commit();
+            });
+            reader.start();
+            reader.join();
+            assertEquals(0, journal.size());
+
+            mcService.abort();
+            assertEquals(0, journal.size());
+        }
+    }
+}
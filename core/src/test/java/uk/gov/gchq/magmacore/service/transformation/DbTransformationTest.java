@@ -14,10 +14,16 @@
 
 package uk.gov.gchq.magmacore.service.transformation;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
@@ -29,6 +35,7 @@ import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
 import uk.gov.gchq.magmacore.hqdm.rdf.iri.RDFS;
 import uk.gov.gchq.magmacore.service.MagmaCoreService;
 import uk.gov.gchq.magmacore.service.MagmaCoreServiceFactory;
+import uk.gov.gchq.magmacore.service.dto.ApplyProgress;
 
 /**
  * Check that {@link DbTransformation} works correctly.
@@ -87,4 +94,44 @@ public class DbTransformationTest {
         assertNull(mcService.getInTransaction(individualIri));
         assertNull(mcService.getInTransaction(personIri));
     }
+
+    /**
+     * Test that a DbTransformation can be applied in batches, and resumed from a checkpoint.
+     *
+     * @throws IOException if the checkpoint file cannot be written.
+     */
+    @Test
+    public void testApplyInBatches() throws IOException {
+        final IRI individualIri = new IRI(TEST_BASE, "individual");
+        final IRI personIri = new IRI(TEST_BASE, "person");
+        final DbTransformation transformation = new DbTransformation(List.of(
+                new DbChangeSet(List.of(),
+                        List.of(new DbCreateOperation(individualIri, RDFS.RDF_TYPE, HQDM.INDIVIDUAL),
+                                new DbCreateOperation(individualIri, HQDM.MEMBER_OF, "classOfIndividual"),
+                                new DbCreateOperation(personIri, RDFS.RDF_TYPE, HQDM.PERSON))),
+                new DbChangeSet(List.of(new DbDeleteOperation(individualIri, HQDM.MEMBER_OF, "classOfIndividual")),
+                        List.of(new DbCreateOperation(personIri, HQDM.MEMBER_OF, "classOfPerson")))));
+
+        // Apply all the operations in batches of two.
+        final MagmaCoreService mcService = MagmaCoreServiceFactory.createWithJenaDatabase();
+        final Path checkpoint = Files.createTempDirectory("transformation").resolve("checkpoint");
+        final List<ApplyProgress> progress = new ArrayList<>();
+        assertEquals(5, transformation.applyInBatches(mcService, 2, checkpoint, progress::add));
+
+        assertEquals(3, progress.size());
+        assertEquals(5, progress.get(2).operations());
+        assertFalse(Files.exists(checkpoint));
+        assertFalse(mcService.getInTransaction(individualIri).hasThisValue(HQDM.MEMBER_OF, "classOfIndividual"));
+        assertTrue(mcService.getInTransaction(personIri).hasThisValue(HQDM.MEMBER_OF, "classOfPerson"));
+
+        // Resume after the first four operations, so only the last is applied.
+        final MagmaCoreService resumed = MagmaCoreServiceFactory.createWithJenaDatabase();
+        Files.writeString(checkpoint, "4");
+        assertEquals(5, transformation.applyInBatches(resumed, 2, checkpoint, null));
+
+        assertNull(resumed.getInTransaction(individualIri));
+        final Thing person = resumed.getInTransaction(personIri);
+        assertFalse(person.hasThisValue(RDFS.RDF_TYPE, HQDM.PERSON));
+        assertTrue(person.hasThisValue(HQDM.MEMBER_OF, "classOfPerson"));
+    }
 }
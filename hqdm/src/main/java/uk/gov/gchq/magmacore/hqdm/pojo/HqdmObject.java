@@ -25,12 +25,31 @@ import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
 
 /**
  * Basic implementation of a HQDM object.
+ *
+ * <p>
+ * After {@link #trackChanges()} is called, the values added with the add methods and removed with
+ * {@link #removeValue(IRI, Object)} or {@link #setPredicates(Map)} are recorded, so that only the
+ * changed values need to be written back. Changes made directly to the map returned by
+ * {@link #getPredicates()} are not recorded.
+ * </p>
+ *
+ * <p>
+ * The values are held in a {@link PredicateStore}, which keeps the few values most objects have in a
+ * single array. {@link #getPredicates()} and {@link #values(IRI)} return live views of it, and a
+ * predicate whose last value is removed is no longer present.
+ * </p>
  */
 public abstract class HqdmObject implements Thing {
 
     private IRI id;
 
-    private final Map<IRI, Set<Object>> predicates = new HashMap<>();
+    private final PredicateStore predicates = new PredicateStore();
+
+    /** Values added since changes began to be tracked, or null if they are not tracked. */
+    private Map<IRI, Set<Object>> addedValues;
+
+    /** Values removed since changes began to be tracked, or null if they are not tracked. */
+    private Map<IRI, Set<Object>> removedValues;
 
     /**
      * Constructs a new {@code HqdmObject}.
@@ -59,13 +78,20 @@ public abstract class HqdmObject implements Thing {
      * {@inheritDoc}
      */
     public Map<IRI, Set<Object>> getPredicates() {
-        return predicates;
+        return predicates.asMap();
     }
 
     /**
      * {@inheritDoc}
      */
     public void setPredicates(final Map<IRI, Set<Object>> predicates) {
+        // Suspend tracking while the values are replaced, then record the difference.
+        final Map<IRI, Set<Object>> previous = addedValues == null ? null : copy(this.predicates.asMap());
+        final Map<IRI, Set<Object>> added = addedValues;
+        final Map<IRI, Set<Object>> removed = removedValues;
+        addedValues = null;
+        removedValues = null;
+
         // Convert some values to Strings if necessary - required when deserializing the
         // object.
         if (!predicates.isEmpty()) {
@@ -75,97 +101,171 @@ public abstract class HqdmObject implements Thing {
                 final IRI key = entry.getKey();
                 if (value instanceof Map) {
                     final Map valueMap = (Map) value;
-                    this.predicates.remove(key);
+                    this.predicates.removeAll(key);
                     this.addValue(key, (IRI) valueMap.get("id"));
                 } else {
-                    this.predicates.put(key, entry.getValue());
+                    entry.getValue().forEach(v -> this.predicates.add(key, v));
                 }
             }
         }
+
+        if (previous != null) {
+            addedValues = added;
+            removedValues = removed;
+            previous.forEach((key, values) -> values.forEach(value -> {
+                if (!hasThisValue(key, value)) {
+                    recordChange(removedValues, addedValues, key, value);
+                }
+            }));
+            this.predicates.asMap().forEach((key, values) -> values.forEach(value -> {
+                final Set<Object> previousValues = previous.get(key);
+                if (previousValues == null || !previousValues.contains(value)) {
+                    recordChange(addedValues, removedValues, key, value);
+                }
+            }));
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     public <T> Set<T> values(final IRI predicateId) {
-        return (Set<T>) predicates.get(predicateId);
+        return (Set<T>) predicates.values(predicateId);
     }
 
     /**
      * {@inheritDoc}
      */
     public <T> T oneValue(final IRI predicateId) {
-        final Set<T> predicateValues = (Set<T>) predicates.get(predicateId);
-        if (predicateValues != null && !predicateValues.isEmpty()) {
-            return predicateValues.iterator().next();
-        }
-        return null;
+        return (T) predicates.firstValue(predicateId);
     }
 
     /**
      * {@inheritDoc}
      */
     public void addValue(final IRI predicateId, final IRI objectId) {
-        final Set<Object> values = predicates.computeIfAbsent(predicateId, k -> new HashSet<>());
-        values.add(objectId);
+        if (predicates.add(predicateId, objectId)) {
+            recordChange(addedValues, removedValues, predicateId, objectId);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     public void addStringValue(final IRI predicateId, final String value) {
-        final Set<Object> values = predicates.computeIfAbsent(predicateId, k -> new HashSet<>());
-        values.add(value);
+        if (predicates.add(predicateId, value)) {
+            recordChange(addedValues, removedValues, predicateId, value);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     public void addRealValue(final IRI predicateId, final double value) {
-        final Set<Object> values = predicates.computeIfAbsent(predicateId, k -> new HashSet<>());
-        values.add(value);
+        if (predicates.add(predicateId, value)) {
+            recordChange(addedValues, removedValues, predicateId, value);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     public void removeValue(final IRI predicateId, final Object value) {
-        if (predicates.containsKey(predicateId)) {
-            final var v = predicates.get(predicateId);
-            if (v.contains(value)) {
-                v.remove(value);
+        if (predicates.remove(predicateId, value)) {
+            recordChange(removedValues, addedValues, predicateId, value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void trackChanges() {
+        addedValues = new HashMap<>();
+        removedValues = new HashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean tracksChanges() {
+        return addedValues != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<IRI, Set<Object>> addedValues() {
+        return addedValues == null ? Map.of() : copy(addedValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<IRI, Set<Object>> removedValues() {
+        return removedValues == null ? Map.of() : copy(removedValues);
+    }
+
+    /**
+     * Record a change if changes are being tracked. A change that undoes an earlier one cancels it.
+     *
+     * @param changes     The record of changes of this kind.
+     * @param opposites   The record of changes of the opposite kind.
+     * @param predicateId The predicate IRI.
+     * @param value       The value added or removed.
+     */
+    private static void recordChange(final Map<IRI, Set<Object>> changes, final Map<IRI, Set<Object>> opposites,
+            final IRI predicateId, final Object value) {
+        if (changes == null) {
+            return;
+        }
+        final Set<Object> opposite = opposites.get(predicateId);
+        if (opposite != null && opposite.remove(value)) {
+            if (opposite.isEmpty()) {
+                opposites.remove(predicateId);
             }
+        } else {
+            changes.computeIfAbsent(predicateId, k -> new HashSet<>()).add(value);
         }
     }
 
+    /**
+     * Copy a map of predicate values.
+     *
+     * @param values The map to copy.
+     * @return A copy with its own value sets.
+     */
+    private static Map<IRI, Set<Object>> copy(final Map<IRI, Set<Object>> values) {
+        final Map<IRI, Set<Object>> result = new HashMap<>();
+        values.forEach((key, set) -> result.put(key, new HashSet<>(set)));
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
     public boolean hasValue(final IRI predicateId) {
-        return predicates.containsKey(predicateId);
+        return predicates.containsPredicate(predicateId);
     }
 
     /**
      * {@inheritDoc}
      */
     public boolean hasThisValue(final IRI predicateId, final Object objectId) {
-        final Set<Object> values = predicates.get(predicateId);
-        return values != null && values.contains(objectId);
+        return predicates.contains(predicateId, objectId);
     }
 
     /**
      * {@inheritDoc}
      */
     public boolean hasThisStringValue(final IRI predicateId, final String value) {
-        final Set<Object> values = predicates.get(predicateId);
-        return values != null && values.contains(value);
+        return predicates.contains(predicateId, value);
     }
 
     /**
      * {@inheritDoc}
      */
     public boolean hasThisStringValueIgnoreCase(final IRI predicateId, final String value) {
-        final Set<Object> values = predicates.get(predicateId);
+        final Set<Object> values = predicates.values(predicateId);
         if (values != null) {
             for (final Object object : values) {
                 if (value.equalsIgnoreCase(object.toString())) {
@@ -180,7 +280,7 @@ public abstract class HqdmObject implements Thing {
      * {@inheritDoc}
      */
     public boolean hasThisStringValueFuzzy(final IRI predicateId, final String value) {
-        final Set<Object> values = predicates.get(predicateId);
+        final Set<Object> values = predicates.values(predicateId);
         if (values != null) {
             for (final Object object : values) {
                 if (object.toString().toLowerCase().contains(value.toLowerCase())) {
@@ -199,7 +299,7 @@ public abstract class HqdmObject implements Thing {
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
-        predicates.forEach((key, value) -> {
+        predicates.asMap().forEach((key, value) -> {
             builder.append("        key: ");
             builder.append(key.toString());
             builder.append(", values: [");
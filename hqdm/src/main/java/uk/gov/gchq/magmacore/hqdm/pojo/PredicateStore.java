@@ -0,0 +1,505 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.hqdm.pojo;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+
+/**
+ * The predicate values of a HQDM object, stored compactly.
+ *
+ * <p>
+ * Most objects have a handful of predicates with one value each, so up to
+ * {@link #MAX_COMPACT_VALUES} values are held as predicate and value pairs in a single array and
+ * found by scanning it, which costs one array rather than a map entry and a set for every predicate.
+ * Past that the values move to a {@link HashMap} of {@link HashSet}s for good. {@link #asMap()} and
+ * {@link #values(IRI)} are live views in either form, and a predicate is dropped when its last value
+ * is removed.
+ * </p>
+ */
+final class PredicateStore {
+
+    /** The most values held in the compact form. */
+    static final int MAX_COMPACT_VALUES = 16;
+
+    /** The number of values the array has room for when it is first created. */
+    private static final int INITIAL_VALUES = 4;
+
+    /** The predicate and value pairs, predicates at even indexes, or null if there are none. */
+    private Object[] pairs;
+
+    /** The number of pairs in use. */
+    private int size;
+
+    /** The values once there are too many for the compact form, otherwise null. */
+    private Map<IRI, Set<Object>> hashed;
+
+    /**
+     * Add a value.
+     *
+     * @param predicate The predicate {@link IRI}.
+     * @param value     The value.
+     * @return true if the value was not already present.
+     */
+    boolean add(final IRI predicate, final Object value) {
+        if (hashed == null) {
+            if (indexOf(predicate, value) >= 0) {
+                return false;
+            }
+            if (size < MAX_COMPACT_VALUES) {
+                if (pairs == null) {
+                    pairs = new Object[INITIAL_VALUES * 2];
+                } else if (size * 2 == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, Math.min(pairs.length * 2, MAX_COMPACT_VALUES * 2));
+                }
+                pairs[size * 2] = predicate;
+                pairs[size * 2 + 1] = value;
+                size++;
+                return true;
+            }
+            hashed = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                hashed.computeIfAbsent((IRI) pairs[i * 2], k -> new HashSet<>()).add(pairs[i * 2 + 1]);
+            }
+            pairs = null;
+            size = 0;
+        }
+        return hashed.computeIfAbsent(predicate, k -> new HashSet<>()).add(value);
+    }
+
+    /**
+     * Remove a value.
+     *
+     * @param predicate The predicate.
+     * @param value     The value.
+     * @return true if the value was present.
+     */
+    boolean remove(final Object predicate, final Object value) {
+        if (hashed != null) {
+            final Set<Object> values = hashed.get(predicate);
+            if (values == null || !values.remove(value)) {
+                return false;
+            }
+            if (values.isEmpty()) {
+                hashed.remove(predicate);
+            }
+            return true;
+        }
+        final int index = indexOf(predicate, value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Remove every value of a predicate.
+     *
+     * @param predicate The predicate.
+     */
+    void removeAll(final Object predicate) {
+        if (hashed != null) {
+            hashed.remove(predicate);
+            return;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            if (pairs[i * 2].equals(predicate)) {
+                removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Remove every value.
+     */
+    void clear() {
+        pairs = null;
+        size = 0;
+        hashed = null;
+    }
+
+    /**
+     * Check whether a predicate has a value.
+     *
+     * @param predicate The predicate.
+     * @param value     The value.
+     * @return true if it does.
+     */
+    boolean contains(final Object predicate, final Object value) {
+        if (hashed != null) {
+            final Set<Object> values = hashed.get(predicate);
+            return values != null && values.contains(value);
+        }
+        return indexOf(predicate, value) >= 0;
+    }
+
+    /**
+     * Check whether a predicate has any values.
+     *
+     * @param predicate The predicate.
+     * @return true if it does.
+     */
+    boolean containsPredicate(final Object predicate) {
+        if (hashed != null) {
+            return hashed.containsKey(predicate);
+        }
+        return first(predicate, 0) >= 0;
+    }
+
+    /**
+     * Get a value of a predicate.
+     *
+     * @param predicate The predicate {@link IRI}.
+     * @return The first value, or null if there are none.
+     */
+    Object firstValue(final IRI predicate) {
+        if (hashed != null) {
+            final Set<Object> values = hashed.get(predicate);
+            return values == null || values.isEmpty() ? null : values.iterator().next();
+        }
+        final int index = first(predicate, 0);
+        return index < 0 ? null : pairs[index * 2 + 1];
+    }
+
+    /**
+     * Get a live view of the values of a predicate.
+     *
+     * @param predicate The predicate {@link IRI}.
+     * @return A {@link Set} of the values, or null if there are none.
+     */
+    Set<Object> values(final IRI predicate) {
+        return containsPredicate(predicate) ? new ValueSet(predicate) : null;
+    }
+
+    /**
+     * Get a live view of the values by predicate.
+     *
+     * @return A {@link Map} of predicate {@link IRI} to the {@link Set} of its values.
+     */
+    Map<IRI, Set<Object>> asMap() {
+        return new PredicateMap();
+    }
+
+    /**
+     * Find a predicate and value pair in the compact form.
+     *
+     * @param predicate The predicate.
+     * @param value     The value.
+     * @return The index of the pair, or -1.
+     */
+    private int indexOf(final Object predicate, final Object value) {
+        for (int i = 0; i < size; i++) {
+            if (pairs[i * 2].equals(predicate) && Objects.equals(pairs[i * 2 + 1], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first pair for a predicate in the compact form.
+     *
+     * @param predicate The predicate.
+     * @param from      The index to start looking at.
+     * @return The index of the pair, or -1.
+     */
+    private int first(final Object predicate, final int from) {
+        for (int i = from; i < size; i++) {
+            if (pairs[i * 2].equals(predicate)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove a pair from the compact form, keeping the others in order.
+     *
+     * @param index The index of the pair.
+     */
+    private void removeAt(final int index) {
+        System.arraycopy(pairs, (index + 1) * 2, pairs, index * 2, (size - index - 1) * 2);
+        size--;
+        pairs[size * 2] = null;
+        pairs[size * 2 + 1] = null;
+    }
+
+    /**
+     * Iterate over the predicates that have values, each once, in the order they were first added.
+     *
+     * @return An {@link Iterator} of predicate {@link IRI}s that supports removing all the values of
+     *         the last predicate.
+     */
+    private Iterator<IRI> predicates() {
+        if (hashed != null) {
+            return hashed.keySet().iterator();
+        }
+        return new Iterator<>() {
+            private int next = advance(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public IRI next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance(next + 1);
+                return (IRI) pairs[last * 2];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                // The later pairs of the predicate follow its first, so the ones before are unaffected.
+                removeAll(pairs[last * 2]);
+                next = advance(last);
+                last = -1;
+            }
+
+            /**
+             * Find the next pair whose predicate has not been seen at an earlier index.
+             *
+             * @param from The index to start looking at.
+             * @return The index of the pair, or -1.
+             */
+            private int advance(final int from) {
+                for (int i = from; i < size; i++) {
+                    if (first(pairs[i * 2], 0) == i) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        };
+    }
+
+    /**
+     * Count the predicates that have values.
+     *
+     * @return The number of predicates.
+     */
+    private int predicateCount() {
+        if (hashed != null) {
+            return hashed.size();
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (first(pairs[i * 2], 0) == i) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A live view of the values of one predicate.
+     */
+    private final class ValueSet extends AbstractSet<Object> {
+
+        private final IRI predicate;
+
+        /**
+         * Constructs a ValueSet.
+         *
+         * @param predicate The predicate {@link IRI}.
+         */
+        ValueSet(final IRI predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public int size() {
+            if (hashed != null) {
+                final Set<Object> values = hashed.get(predicate);
+                return values == null ? 0 : values.size();
+            }
+            int count = 0;
+            for (int i = first(predicate, 0); i >= 0; i = first(predicate, i + 1)) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean contains(final Object value) {
+            return PredicateStore.this.contains(predicate, value);
+        }
+
+        @Override
+        public boolean add(final Object value) {
+            return PredicateStore.this.add(predicate, value);
+        }
+
+        @Override
+        public boolean remove(final Object value) {
+            return PredicateStore.this.remove(predicate, value);
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            if (hashed != null) {
+                final Set<Object> values = hashed.get(predicate);
+                if (values == null) {
+                    return Collections.emptyIterator();
+                }
+                final Iterator<Object> iterator = values.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Object next() {
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                        if (values.isEmpty() && hashed != null) {
+                            hashed.remove(predicate);
+                        }
+                    }
+                };
+            }
+            return new Iterator<>() {
+                private int next = first(predicate, 0);
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Object next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = first(predicate, next + 1);
+                    return pairs[last * 2 + 1];
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeAt(last);
+                    next = first(predicate, last);
+                    last = -1;
+                }
+            };
+        }
+    }
+
+    /**
+     * A live view of the values by predicate.
+     */
+    private final class PredicateMap extends AbstractMap<IRI, Set<Object>> {
+
+        @Override
+        public Set<Object> get(final Object key) {
+            return key instanceof IRI predicate ? PredicateStore.this.values(predicate) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return containsPredicate(key);
+        }
+
+        @Override
+        public Set<Object> put(final IRI key, final Set<Object> values) {
+            final Set<Object> previous = remove(key);
+            values.forEach(value -> add(key, value));
+            return previous;
+        }
+
+        @Override
+        public Set<Object> remove(final Object key) {
+            final Set<Object> previous = get(key);
+            if (previous == null) {
+                return null;
+            }
+            final Set<Object> copy = new HashSet<>(previous);
+            removeAll(key);
+            return copy;
+        }
+
+        @Override
+        public void clear() {
+            PredicateStore.this.clear();
+        }
+
+        @Override
+        public int size() {
+            return predicateCount();
+        }
+
+        @Override
+        public Set<Map.Entry<IRI, Set<Object>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return predicateCount();
+                }
+
+                @Override
+                public Iterator<Map.Entry<IRI, Set<Object>>> iterator() {
+                    final Iterator<IRI> keys = predicates();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return keys.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<IRI, Set<Object>> next() {
+                            final IRI key = keys.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(key, new ValueSet(key));
+                        }
+
+                        @Override
+                        public void remove() {
+                            keys.remove();
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -143,4 +143,30 @@ public interface Top {
      * @return {@code true} if has fuzzy string value.
      */
     boolean hasThisStringValueFuzzy(IRI predicateIri, String value);
+
+    /**
+     * Start recording the values added and removed from now on, discarding any earlier record.
+     */
+    void trackChanges();
+
+    /**
+     * Is the entity recording the values added and removed.
+     *
+     * @return {@code true} if changes are being tracked.
+     */
+    boolean tracksChanges();
+
+    /**
+     * Get the values added since changes began to be tracked, not counting any that were removed again.
+     *
+     * @return Map of predicate IRI to the values added, empty if changes are not tracked.
+     */
+    Map<IRI, Set<Object>> addedValues();
+
+    /**
+     * Get the values removed since changes began to be tracked, not counting any that were added again.
+     *
+     * @return Map of predicate IRI to the values removed, empty if changes are not tracked.
+     */
+    Map<IRI, Set<Object>> removedValues();
 }
@@ -14,17 +14,31 @@
 
 package uk.gov.gchq.magmacore.hqdm.rdf.iri;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import uk.gov.gchq.magmacore.hqdm.rdf.exception.IriException;
 
 /**
  * An implementation of Internationalized Resource Identifiers.
+ *
+ * <p>
+ * Code that creates the same IRIs over and over, such as the predicates of query results, should use
+ * {@link #of(String)}, which returns a shared instance for each IRI string rather than parsing it
+ * again.
+ * </p>
  */
 public class IRI {
 
+    /** The shared instances by IRI string, held weakly so that IRIs no longer in use can be collected. */
+    private static final ConcurrentMap<String, PooledIri> POOL = new ConcurrentHashMap<>();
+
+    /** Receives the pool entries whose IRIs have been collected. */
+    private static final ReferenceQueue<IRI> COLLECTED = new ReferenceQueue<>();
+
     private String resource;
 
     private String iri;
@@ -49,6 +63,45 @@ public class IRI {
         fromString(iri);
     }
 
+    /**
+     * Get the shared IRI for a string, creating it if there is not one already.
+     *
+     * @param iri IRI string.
+     * @return The {@link IRI}.
+     * @throws IriException If the IRI string is malformed.
+     */
+    public static IRI of(final String iri) throws IriException {
+        final PooledIri pooled = POOL.get(iri);
+        final IRI existing = pooled == null ? null : pooled.get();
+        if (existing != null) {
+            return existing;
+        }
+
+        expungeCollected();
+        final IRI created = new IRI(iri);
+        final IRI[] result = new IRI[1];
+        POOL.compute(iri, (key, current) -> {
+            result[0] = current == null ? null : current.get();
+            if (result[0] != null) {
+                return current;
+            }
+            result[0] = created;
+            return new PooledIri(key, created);
+        });
+        return result[0];
+    }
+
+    /**
+     * Remove the pool entries whose IRIs have been collected.
+     */
+    private static void expungeCollected() {
+        PooledIri collected = (PooledIri) COLLECTED.poll();
+        while (collected != null) {
+            POOL.remove(collected.key, collected);
+            collected = (PooledIri) COLLECTED.poll();
+        }
+    }
+
     /**
      * The name of the resource.
      *
@@ -71,28 +124,69 @@ public class IRI {
      * Convert a {@link String} to an IRI.
      *
      * @param rawIri {@link String}
-     * @throws IriException if the {@link String} is not a valid URL.
+     * @throws IriException if the {@link String} is not an absolute IRI with a resource name.
      */
     private void fromString(final String rawIri) throws IriException {
         final String iri = rawIri.trim();
-        try {
-
-            new URL(iri);
-            this.iri = iri;
-        } catch (final MalformedURLException m) {
+        final int index = resourceStart(iri);
+        if (index < 0) {
             throw new IriException("Cannot parse IRI: " + iri);
         }
+        this.iri = iri;
+        this.resource = iri.substring(index);
+    }
 
-        int index = iri.lastIndexOf('#');
-        if (index < 0) {
-            index = iri.lastIndexOf('/');
+    /**
+     * Check that a string is an absolute IRI, which is a scheme and a ':' followed by characters that
+     * may appear in an IRI, and find where the resource name starts. The resource name follows the last
+     * '#', or the last '/' if there is no '#'. This is a single scan of the string, with none of the
+     * parsing and allocation of {@link java.net.URI} or {@link java.net.URL}, and unlike
+     * {@link java.net.URL} it does not restrict the scheme to the protocols the JVM can open.
+     *
+     * @param iri The trimmed IRI string.
+     * @return The index of the resource name, or -1 if the string is not a valid IRI.
+     */
+    private static int resourceStart(final String iri) {
+        final int length = iri.length();
+        if (length == 0 || !isAsciiLetter(iri.charAt(0))) {
+            return -1;
         }
-        if (index < 0) {
-            throw new IriException("Cannot parse IRI: " + iri);
-        } else {
-            this.resource = iri.substring(index + 1);
+        int i = 1;
+        while (i < length && iri.charAt(i) != ':') {
+            final char c = iri.charAt(i);
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.') {
+                return -1;
+            }
+            i++;
         }
 
+        int hash = -1;
+        int slash = -1;
+        for (i++; i < length; i++) {
+            final char c = iri.charAt(i);
+            if (c <= ' ' || c == 0x7f || "<>\"{}|\\^`".indexOf(c) >= 0) {
+                return -1;
+            }
+            if (c == '#') {
+                hash = i;
+            } else if (c == '/') {
+                slash = i;
+            }
+        }
+        if (hash >= 0) {
+            return hash + 1;
+        }
+        return slash >= 0 ? slash + 1 : -1;
+    }
+
+    /**
+     * Check whether a character is an ASCII letter.
+     *
+     * @param c The character.
+     * @return true if it is.
+     */
+    private static boolean isAsciiLetter(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
     }
 
     /**
@@ -127,4 +221,24 @@ public class IRI {
     public int hashCode() {
         return iri.hashCode();
     }
+
+    /**
+     * A weak reference to a pooled IRI that remembers its key, so the entry can be removed once the IRI
+     * has been collected.
+     */
+    private static final class PooledIri extends WeakReference<IRI> {
+
+        private final String key;
+
+        /**
+         * Constructs a PooledIri.
+         *
+         * @param key The IRI string the entry is pooled under.
+         * @param iri The {@link IRI}.
+         */
+        PooledIri(final String key, final IRI iri) {
+            super(iri, COLLECTED);
+            this.key = key;
+        }
+    }
 }
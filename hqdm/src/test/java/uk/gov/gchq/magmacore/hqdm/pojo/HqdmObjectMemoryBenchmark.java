@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.hqdm.pojo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import uk.gov.gchq.magmacore.hqdm.model.impl.ThingImpl;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.HQDM;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IRI;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.IriBase;
+import uk.gov.gchq.magmacore.hqdm.rdf.iri.RDFS;
+
+/**
+ * Measures the heap used per entity to hold the predicate values of HQDM objects, comparing the
+ * compact {@link PredicateStore} with the map of sets that {@link HqdmObject} used before. Run it with
+ * a fixed heap, for example {@code java -Xms2g -Xmx2g}, so that the garbage collector does not resize
+ * the heap between measurements. It is not run as part of the test suite.
+ */
+public final class HqdmObjectMemoryBenchmark {
+
+    private static final IriBase TEST_BASE = new IriBase("test", "http://example.com/test#");
+    private static final int ENTITIES = 200_000;
+    private static final IRI[] PREDICATES = {
+        RDFS.RDF_TYPE, HQDM.PART_OF_POSSIBLE_WORLD, HQDM.MEMBER_OF, HQDM.BEGINNING, HQDM.ENDING,
+        HQDM.TEMPORAL_PART_OF, HQDM.PART_OF, HQDM.ENTITY_NAME, };
+
+    private HqdmObjectMemoryBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args Not used.
+     */
+    public static void main(final String[] args) {
+        // The IDs and values are shared by both layouts and created before measuring, so that only the
+        // storage of the predicates is counted.
+        final IRI[] ids = new IRI[ENTITIES];
+        final IRI[] values = new IRI[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            ids[i] = new IRI(TEST_BASE, "entity" + i);
+            values[i] = new IRI(TEST_BASE, "value" + i);
+        }
+
+        System.out.println("predicates  map of sets  compact  (bytes per entity)");
+        for (final int predicates : new int[] {3, 5, 8}) {
+            final long before = bytesPerEntity(i -> {
+                final Map<IRI, Set<Object>> map = new HashMap<>();
+                for (int p = 0; p < predicates; p++) {
+                    map.computeIfAbsent(PREDICATES[p], k -> new HashSet<>()).add(values[i]);
+                }
+                return new MapOfSets(ids[i], map);
+            });
+            final long after = bytesPerEntity(i -> {
+                final ThingImpl thing = new ThingImpl(ids[i]);
+                for (int p = 0; p < predicates; p++) {
+                    thing.addValue(PREDICATES[p], values[i]);
+                }
+                return thing;
+            });
+            System.out.printf("%10d  %11d  %7d%n", predicates, before, after);
+        }
+    }
+
+    /**
+     * Measure the heap retained by one object per entity.
+     *
+     * @param factory Creates the object for an entity.
+     * @return The average number of bytes per entity.
+     */
+    private static long bytesPerEntity(final IntFunction<Object> factory) {
+        final long start = usedMemory();
+        final List<Object> retained = new ArrayList<>(ENTITIES);
+        for (int i = 0; i < ENTITIES; i++) {
+            retained.add(factory.apply(i));
+        }
+        final long used = usedMemory() - start;
+        if (retained.size() != ENTITIES) {
+            throw new IllegalStateException();
+        }
+        // Exclude the list holding the objects.
+        return (used - (long) ENTITIES * Integer.BYTES) / ENTITIES;
+    }
+
+    /**
+     * Get the heap in use after collecting garbage.
+     *
+     * @return The number of bytes in use.
+     */
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * An entity holding its predicates the way {@link HqdmObject} did before {@link PredicateStore}.
+     *
+     * @param id         The entity ID.
+     * @param predicates The values of each predicate.
+     */
+    private record MapOfSets(IRI id, Map<IRI, Set<Object>> predicates) {
+    }
+}
@@ -15,10 +15,15 @@
 package uk.gov.gchq.magmacore.hqdm.pojo;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -135,4 +140,123 @@ public class HqdmObjectTest {
 
         assertTrue(things.contains(thing1));
     }
+
+    /**
+     * Test that the values added and removed are recorded once changes are tracked, and that a change
+     * that is undone is not recorded.
+     */
+    @Test
+    public void testChangeTracking() {
+        final Thing thing = new ThingImpl(new IRI(TEST_BASE, "thing1"));
+        final IRI testPredicate = new IRI(TEST_BASE, "test-predicate");
+        final IRI testValue1 = new IRI(TEST_BASE, "test-value-1");
+        final IRI testValue2 = new IRI(TEST_BASE, "test-value-2");
+        final IRI testValue3 = new IRI(TEST_BASE, "test-value-3");
+
+        thing.addValue(testPredicate, testValue1);
+        assertFalse(thing.tracksChanges());
+        assertTrue(thing.addedValues().isEmpty());
+
+        thing.trackChanges();
+        thing.addValue(testPredicate, testValue1);
+        thing.addValue(testPredicate, testValue2);
+        thing.addValue(testPredicate, testValue3);
+        thing.removeValue(testPredicate, testValue3);
+        thing.removeValue(testPredicate, testValue1);
+        thing.addStringValue(testPredicate, "name");
+
+        assertTrue(thing.tracksChanges());
+        assertEquals(Map.of(testPredicate, Set.of(testValue2, "name")), thing.addedValues());
+        assertEquals(Map.of(testPredicate, Set.of(testValue1)), thing.removedValues());
+
+        thing.setPredicates(Map.of(testPredicate, Set.of(testValue1)));
+        assertTrue(thing.addedValues().isEmpty());
+        assertTrue(thing.removedValues().isEmpty());
+    }
+
+    /**
+     * Test that values are kept correctly when an object has more values than fit in the compact
+     * storage, and when some are removed again.
+     */
+    @Test
+    public void testManyValues() {
+        final Thing thing = new ThingImpl(new IRI(TEST_BASE, "thing1"));
+        final IRI testPredicate1 = new IRI(TEST_BASE, "test-predicate-1");
+        final IRI testPredicate2 = new IRI(TEST_BASE, "test-predicate-2");
+        final Map<IRI, Set<Object>> expected = new HashMap<>();
+        for (int i = 0; i < PredicateStore.MAX_COMPACT_VALUES * 2; i++) {
+            final IRI predicate = i % 2 == 0 ? testPredicate1 : testPredicate2;
+            thing.addStringValue(predicate, "value" + i);
+            expected.computeIfAbsent(predicate, k -> new HashSet<>()).add("value" + i);
+            assertEquals(expected, thing.getPredicates());
+        }
+
+        thing.removeValue(testPredicate1, "value0");
+        expected.get(testPredicate1).remove("value0");
+        assertEquals(expected, thing.getPredicates());
+        assertEquals(PredicateStore.MAX_COMPACT_VALUES, thing.values(testPredicate2).size());
+    }
+
+    /**
+     * Test that the map of predicates is a live view that can be changed, and that a predicate with no
+     * values left is not present.
+     */
+    @Test
+    public void testPredicatesView() {
+        final Thing thing = new ThingImpl(new IRI(TEST_BASE, "thing1"));
+        final IRI testPredicate1 = new IRI(TEST_BASE, "test-predicate-1");
+        final IRI testPredicate2 = new IRI(TEST_BASE, "test-predicate-2");
+        final IRI testValue1 = new IRI(TEST_BASE, "test-value-1");
+        final IRI testValue2 = new IRI(TEST_BASE, "test-value-2");
+
+        thing.addValue(testPredicate1, testValue1);
+        thing.addValue(testPredicate2, testValue1);
+        thing.addValue(testPredicate1, testValue2);
+        final Map<IRI, Set<Object>> predicates = thing.getPredicates();
+        assertEquals(Map.of(testPredicate1, Set.of(testValue1, testValue2), testPredicate2, Set.of(testValue1)),
+                predicates);
+        assertEquals(testValue1, thing.oneValue(testPredicate2));
+
+        thing.values(testPredicate1).remove(testValue1);
+        predicates.remove(testPredicate2);
+        assertEquals(Map.of(testPredicate1, Set.of(testValue2)), predicates);
+        assertFalse(thing.hasValue(testPredicate2));
+        assertNull(thing.values(testPredicate2));
+
+        thing.removeValue(testPredicate1, testValue2);
+        assertTrue(thing.getPredicates().isEmpty());
+        assertFalse(thing.hasValue(testPredicate1));
+    }
+
+    /**
+     * Test that a predicate with no values left is not present once there are too many values for the
+     * compact form, however its last value is removed.
+     */
+    @Test
+    public void testPredicatesViewWithManyValues() {
+        final Thing thing = new ThingImpl(new IRI(TEST_BASE, "thing1"));
+        final IRI testPredicate1 = new IRI(TEST_BASE, "test-predicate-1");
+        final IRI testPredicate2 = new IRI(TEST_BASE, "test-predicate-2");
+        final IRI testPredicate3 = new IRI(TEST_BASE, "test-predicate-3");
+        final IRI testValue1 = new IRI(TEST_BASE, "test-value-1");
+
+        for (int i = 0; i <= PredicateStore.MAX_COMPACT_VALUES; i++) {
+            thing.addStringValue(testPredicate1, "value" + i);
+        }
+        thing.addValue(testPredicate2, testValue1);
+        thing.addValue(testPredicate3, testValue1);
+        final Map<IRI, Set<Object>> predicates = thing.getPredicates();
+
+        thing.values(testPredicate2).remove(testValue1);
+        assertFalse(thing.hasValue(testPredicate2));
+        assertNull(thing.values(testPredicate2));
+        assertFalse(predicates.containsKey(testPredicate2));
+
+        final Iterator<Object> values = thing.values(testPredicate3).iterator();
+        values.next();
+        values.remove();
+        assertFalse(thing.hasValue(testPredicate3));
+        assertNull(thing.values(testPredicate3));
+        assertEquals(Set.of(testPredicate1), predicates.keySet());
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package uk.gov.gchq.magmacore.hqdm.rdf.iri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import uk.gov.gchq.magmacore.hqdm.rdf.exception.IriException;
+
+/**
+ * IRI tests.
+ */
+public class IriTest {
+
+    @Test
+    public void testResourceFollowsLastHashOrSlash() {
+        assertEquals("thing", new IRI("http://example.com/test#thing").getResource());
+        assertEquals("thing", new IRI("  http://example.com/test/thing ").getResource());
+        assertEquals("", new IRI("http://example.com/test#").getResource());
+        assertEquals("http://example.com/test#thing", new IRI(" http://example.com/test#thing").getIri());
+        assertEquals("b", new IRI("urn:a/b").getResource());
+    }
+
+    @Test(expected = IriException.class)
+    public void testNoScheme() {
+        new IRI("example.com/test#thing");
+    }
+
+    @Test(expected = IriException.class)
+    public void testNoResourceSeparator() {
+        new IRI("mailto:someone");
+    }
+
+    @Test(expected = IriException.class)
+    public void testInvalidCharacter() {
+        new IRI("http://example.com/test#a thing");
+    }
+
+    @Test(expected = IriException.class)
+    public void testInvalidScheme() {
+        new IRI("1http://example.com/test#thing");
+    }
+
+    @Test
+    public void testOfReturnsSharedInstance() {
+        final IRI iri = IRI.of("http://example.com/test#shared");
+
+        assertSame(iri, IRI.of("http://example.com/test#shared"));
+        assertEquals(new IRI("http://example.com/test#shared"), iri);
+    }
+}